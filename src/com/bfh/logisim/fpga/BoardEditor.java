@@ -55,7 +55,6 @@ import com.bfh.logisim.settings.Settings;
 import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.file.Loader;
 import com.cburch.logisim.gui.generic.ComboBox;
-import com.cburch.logisim.gui.main.ExportImage;
 import com.cburch.logisim.proj.Projects;
 import com.cburch.logisim.util.Errors;
 import com.cburch.logisim.util.JDialogOk;
@@ -458,7 +457,7 @@ public class BoardEditor extends JFrame {
     JFileChooser fc = new JFileChooser();
     fc.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
     fc.setDialogTitle("Choose FPGA board picture to use");
-    fc.setFileFilter(ExportImage.PNG_FILTER);
+    fc.setFileFilter(Loader.PNG_FILTER);
     fc.setAcceptAllFileFilterUsed(false);
     int retval = fc.showOpenDialog(null);
     if (retval == JFileChooser.APPROVE_OPTION) {
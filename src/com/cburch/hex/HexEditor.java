@@ -38,6 +38,7 @@ import java.awt.Graphics2D;
 import java.awt.Graphics;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
+import java.util.function.LongFunction;
 
 import javax.swing.JComponent;
 import javax.swing.Scrollable;
@@ -66,6 +67,7 @@ public class HexEditor extends JComponent implements Scrollable {
 	private Measures measures;
 	private Caret caret;
 	private Highlighter highlighter;
+	private LongFunction<Color> cellBackground = null;
 
 	public HexEditor(HexModel model) {
 		this.model = model;
@@ -87,6 +89,13 @@ public class HexEditor extends JComponent implements Scrollable {
 		return highlighter.add(start, end, color);
 	}
 
+	// Sets a function giving the background color of each cell, or null for
+	// none, e.g. to show a heatmap beneath the values.
+	public void setCellBackground(LongFunction<Color> value) {
+		cellBackground = value;
+		repaint();
+	}
+
 	public void delete() {
 		long p0 = caret.getMark();
 		long p1 = caret.getDot();
@@ -189,6 +198,8 @@ public class HexEditor extends JComponent implements Scrollable {
 		if (xaddr0 == addr0)
 			xaddr0 = measures.getBaseAddress(model);
 		long xaddr1 = measures.toAddress(getWidth(), clip.y + clip.height) + 1;
+		if (cellBackground != null)
+			paintCellBackgrounds(g, xaddr0, xaddr1, addr0, addr1);
 		highlighter.paint(g, xaddr0, xaddr1);
 
     g.setColor(getForeground());
@@ -231,6 +242,19 @@ public class HexEditor extends JComponent implements Scrollable {
 		caret.paintForeground(g, xaddr0, xaddr1);
 	}
 
+	private void paintCellBackgrounds(Graphics g, long xaddr0, long xaddr1,
+			long addr0, long addr1) {
+		int cellWidth = measures.getCellWidth();
+		int cellHeight = measures.getCellHeight();
+		for (long b = Math.max(xaddr0, addr0); b < xaddr1 && b <= addr1; b++) {
+			Color c = cellBackground.apply(b);
+			if (c != null) {
+				g.setColor(c);
+				g.fillRect(measures.toX(b), measures.toY(b), cellWidth, cellHeight);
+			}
+		}
+	}
+
 	public void removeHighlight(Object tag) {
 		highlighter.remove(tag);
 	}
@@ -38,12 +38,15 @@ import java.awt.Desktop;
 import javax.swing.JOptionPane;
 
 import com.cburch.logisim.gui.start.Startup;
+import com.cburch.logisim.util.StartupTiming;
 
 public class Main {
   public static void main(String[] args) throws Exception {
+    StartupTiming.begin();
     Startup startup = Startup.parseArgs(args);
     if (startup == null)
       System.exit(0);
+    StartupTiming.mark("arguments parsed");
     try {
       startup.run();
     } catch (Throwable e) {
@@ -31,6 +31,7 @@
 package com.cburch.logisim.circuit;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -248,6 +249,20 @@ public class CircuitState implements InstanceData {
   private Object dirtyLock = new Object();
 
 
+  // Watchers are notified, on the simulator thread, whenever the value at a
+  // watched location changes or a watched component is propagated. The log
+  // Model uses this to sample only those signals that might have changed,
+  // rather than polling every logged signal after every propagation step.
+  // Both the map and the bitmap are replaced (never modified) when watches are
+  // added or removed, so the simulator can read them without locking.
+  public interface Watcher {
+    public void watchedValueChanged(CircuitState state, Object key);
+  }
+
+  private volatile HashMap<Object, Watcher[]> watchers; // null if none, protected by watchLock for writes
+  private volatile long[] watchedGrid; // bitmap over fastpath grid, null if no watched locations
+  private Object watchLock = new Object();
+
   private static int lastId = 0;
   private int id = lastId++;
 
@@ -517,10 +532,13 @@ public class CircuitState implements InstanceData {
 
     // DEBUG: boolean finished = false, progress = false;
     try { // comp.propagate() can fail if external (or std) library is buggy
+      HashMap<Object, Watcher[]> w = watchers;
       for (Component comp : dirtyComponentsWorking) {
         // DEBUG: progress = true;
 				// DEBUG: System.out.printf("Propagating (from %s) for dirty component %s\n", this, comp);
         comp.propagate(this);
+        if (w != null)
+          fireWatchers(w, comp);
         // pin values also get propagated to parent state
         if (comp.getFactory() instanceof Pin && parentState != null)
           parentComp.propagate(parentState);
@@ -736,18 +754,28 @@ public class CircuitState implements InstanceData {
 
   // for CircuitWires - to set value at point
   void setValueByWire(Value v, Location[] points, CircuitWires.BusConnection[] connections) {
+    long[] grid = watchedGrid;
     for (Location p : points) {
       if (p.x >= 0 && p.y >= 0
           && p.x % 10 == 0 && p.y % 10 == 0
           && p.x < FASTPATH_GRID_WIDTH*10
           && p.y < FASTPATH_GRID_HEIGHT*10) {
+        boolean changed;
         synchronized (valuesLock) {
-          fastpath(p, v);
+          changed = fastpath(p, v);
+        }
+        if (changed && grid != null) {
+          int b = (p.y/10) * FASTPATH_GRID_WIDTH + (p.x/10);
+          if ((grid[b >> 6] & (1L << b)) != 0)
+            fireWatchers(watchers, p);
         }
       } else {
+        boolean changed;
         synchronized (valuesLock) {
-          slowpath(p, v);
+          changed = slowpath(p, v);
         }
+        if (changed && grid != null)
+          fireWatchers(watchers, p);
       }
       base.locationTouched(this, p);
     }
@@ -762,6 +790,87 @@ public class CircuitState implements InstanceData {
       slowpath_values.clear(); // slow path
       clearFastpathGrid(); // fast path
     }
+    HashMap<Object, Watcher[]> w = watchers;
+    if (w != null) {
+      for (Object key : w.keySet())
+        if (key instanceof Location)
+          fireWatchers(w, key);
+    }
+  }
+
+  private void fireWatchers(HashMap<Object, Watcher[]> w, Object key) {
+    if (w == null)
+      return;
+    Watcher[] list = w.get(key);
+    if (list == null)
+      return;
+    for (Watcher l : list)
+      l.watchedValueChanged(this, key);
+  }
+
+  // The key should be a Location (notified when the value there changes) or a
+  // Component (notified whenever it is propagated).
+  public void addWatcher(Object key, Watcher l) {
+    synchronized (watchLock) {
+      HashMap<Object, Watcher[]> w = watchers == null
+          ? new HashMap<>() : new HashMap<>(watchers);
+      Watcher[] old = w.get(key);
+      if (old == null) {
+        w.put(key, new Watcher[] { l });
+      } else {
+        for (Watcher o : old)
+          if (o == l)
+            return;
+        Watcher[] list = new Watcher[old.length + 1];
+        System.arraycopy(old, 0, list, 0, old.length);
+        list[old.length] = l;
+        w.put(key, list);
+      }
+      updateWatchers(w);
+    }
+  }
+
+  public void removeWatcher(Object key, Watcher l) {
+    synchronized (watchLock) {
+      if (watchers == null)
+        return;
+      Watcher[] old = watchers.get(key);
+      if (old == null)
+        return;
+      int n = 0;
+      Watcher[] list = new Watcher[old.length];
+      for (Watcher o : old)
+        if (o != l)
+          list[n++] = o;
+      if (n == old.length)
+        return;
+      HashMap<Object, Watcher[]> w = new HashMap<>(watchers);
+      if (n == 0)
+        w.remove(key);
+      else
+        w.put(key, Arrays.copyOf(list, n));
+      updateWatchers(w);
+    }
+  }
+
+  private void updateWatchers(HashMap<Object, Watcher[]> w) { // precondition: watchLock held
+    long[] grid = null;
+    for (Object key : w.keySet()) {
+      if (!(key instanceof Location))
+        continue;
+      Location p = (Location)key;
+      if (grid == null)
+        grid = new long[(FASTPATH_GRID_WIDTH * FASTPATH_GRID_HEIGHT + 63) / 64];
+      if (p.x >= 0 && p.y >= 0
+          && p.x % 10 == 0 && p.y % 10 == 0
+          && p.x < FASTPATH_GRID_WIDTH*10
+          && p.y < FASTPATH_GRID_HEIGHT*10) {
+        int b = (p.y/10) * FASTPATH_GRID_WIDTH + (p.x/10);
+        grid[b >> 6] |= (1L << b);
+      }
+    }
+    watchers = w.isEmpty() ? null : w;
+    watchedGrid = grid;
   }
 
   // // for CircuitWires - to set value at point where there is no bus, just a
@@ -33,6 +33,11 @@ package com.cburch.logisim.circuit;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Stroke;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -43,6 +48,7 @@ import java.util.List;
 import java.util.Set;
 import javax.swing.SwingUtilities;
 
+import com.cburch.logisim.Main;
 import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.comp.ComponentDrawContext;
 import com.cburch.logisim.comp.EndData;
@@ -85,8 +91,16 @@ public class CircuitWires {
   //   traverses one or more WireBundles, and has a specific position within
   //   each WireBundle that it traverses. WireThreads traverse through
   //   splitters.
+  // Everything except allComponents and componentsAtLocations depends only on
+  // locations, widths, and the like, never on the Component objects, so those
+  // parts can be shared with other circuits that have identical wiring (see
+  // getSharedConnectivity).
   private static class Connectivity {
 
+    // A component-free Connectivity holding the location-only parts, which
+    // this one shares. Holding it keeps the entry in sharedConnectivity alive.
+    Connectivity base;
+
     // All wire bundles. Initially, a bundle is created and added to this for
     // every bus wire segment, splitter endpoint, pull resistor endpoint, etc.
     // Eventually, as bundles get unified together across intersecting points,
@@ -137,6 +151,18 @@ public class CircuitWires {
 
     void invalidate() { isValid = false; }
     boolean isValid() { return isValid; }
+
+    Connectivity() {
+      base = this;
+    }
+
+    Connectivity(Connectivity shared) {
+      base = shared.base;
+      bundles = base.bundles;
+      pointBundles = base.pointBundles;
+      allLocations = base.allLocations;
+      incompatibilityData = base.incompatibilityData;
+    }
   }
 
   static class SplitterData {
@@ -560,6 +586,7 @@ public class CircuitWires {
   final CircuitPoints points = new CircuitPoints();
   private Bounds bounds = Bounds.EMPTY_BOUNDS;
   private volatile Connectivity masterConnectivity = null;
+  private boolean shareFirstConnectivity = true;
 
   CircuitWires() { }
 
@@ -733,6 +760,30 @@ public class CircuitWires {
 
     // All bundles are made, all threads are now sewn together.
 
+    // Record all component locations so they can be marked as dirty when this
+    // wire connectivity map is used to initialize a new State.
+    ret.allLocations.addAll(points.getAllLocations());
+
+    recordComponents(ret);
+
+    // Compute the exception set before leaving.
+    Collection<WidthIncompatibilityData> exceptions = points
+        .getWidthIncompatibilityData();
+    if (exceptions != null && exceptions.size() > 0) {
+      for (WidthIncompatibilityData wid : exceptions) {
+        ret.addWidthIncompatibilityData(wid);
+      }
+    }
+    for (WireBundle b : ret.getBundles()) {
+      WidthIncompatibilityData e = b.getWidthIncompatibilityData();
+      if (e != null)
+        ret.addWidthIncompatibilityData(e);
+    }
+  }
+
+  // The part of computeConnectivity() that refers to this circuit's own
+  // components, also used to complete a shared Connectivity.
+  private void recordComponents(Connectivity ret) {
     // Record all interesting components so they can be marked as dirty when
     // this wire connectivity map is used to initialize a new State.
     // for (Component c: components) {
@@ -745,10 +796,6 @@ public class CircuitWires {
     // }
     ret.allComponents.addAll(components);
 
-    // Record all component locations so they can be marked as dirty when this
-    // wire connectivity map is used to initialize a new State.
-    ret.allLocations.addAll(points.getAllLocations());
-
     // Record all interesting component (non-wire, non-splitter) locations so
     // they can be used to filter out uninteresting points when this wire bundle
     // map is used to initialize a new State. We also need to know which
@@ -765,20 +812,6 @@ public class CircuitWires {
       if (a != null)
         ret.componentsAtLocations.put(p, a);
     }
-    
-    // Compute the exception set before leaving.
-    Collection<WidthIncompatibilityData> exceptions = points
-        .getWidthIncompatibilityData();
-    if (exceptions != null && exceptions.size() > 0) {
-      for (WidthIncompatibilityData wid : exceptions) {
-        ret.addWidthIncompatibilityData(wid);
-      }
-    }
-    for (WireBundle b : ret.getBundles()) {
-      WidthIncompatibilityData e = b.getWidthIncompatibilityData();
-      if (e != null)
-        ret.addWidthIncompatibilityData(e);
-    }
   }
 
   private void connectPullResistors(Connectivity ret) {
@@ -1046,27 +1079,29 @@ public class CircuitWires {
   // The simulation thread never creates a new connectivity map. On the other hand,
   // the simulation thread creates the State objects for each simulated instance
   // of the circuit, and each State duplicates data from the connectivity map.
+  // When headless, nothing is ever painted on the AWT thread, so there is no
+  // splitter lock to deadlock against. The calling thread then creates the map
+  // itself (one thread at a time), which avoids starting up AWT at all.
 
   private class ConnectivityGetter implements Runnable {
     Connectivity result;
     public void run() { result = getConnectivity(); }
   }
 
+  private final Object headlessConnectivityLock = new Object();
+
   /*synchronized*/ private Connectivity getConnectivity() {
     Connectivity ret = masterConnectivity; // volatile read by AWT or simulation thread
     if (ret != null)
       return ret;
-    if (SwingUtilities.isEventDispatchThread()) {
-      // AWT event thread.
-      ret = new Connectivity();
-      try {
-        computeConnectivity(ret);
-        masterConnectivity = ret; // volatile write by AWT thread
-      } catch (Exception t) {
-        ret.invalidate();
-        System.err.println(t.getLocalizedMessage());
+    if (Main.headless) {
+      synchronized (headlessConnectivityLock) {
+        ret = masterConnectivity;
+        return ret != null ? ret : createMasterConnectivity();
       }
-      return ret;
+    } else if (SwingUtilities.isEventDispatchThread()) {
+      // AWT event thread.
+      return createMasterConnectivity();
     } else {
       // Simulation thread.
       try {
@@ -1082,6 +1117,133 @@ public class CircuitWires {
     }
   }
 
+  private Connectivity createMasterConnectivity() {
+    Connectivity ret = new Connectivity();
+    try {
+      if (shareFirstConnectivity) {
+        shareFirstConnectivity = false;
+        ret = getSharedConnectivity(ret);
+      } else {
+        computeConnectivity(ret);
+      }
+      masterConnectivity = ret; // volatile write by AWT or headless thread
+    } catch (Exception t) {
+      ret.invalidate();
+      System.err.println(t.getLocalizedMessage());
+    }
+    return ret;
+  }
+
+  // Circuits that are loaded with identical wiring, e.g. a subcircuit copied
+  // under another name, or the same library opened by two projects, share the
+  // location-only parts of a single Connectivity. These are found by a digest
+  // of everything computeConnectivity() reads other than the Component objects
+  // themselves, so the circuit name plays no part, but positions do, since the
+  // shared bundles are keyed by Location. Only the first map for a circuit is
+  // shared. After an edit, the circuit computes its own map without paying for
+  // the digest, and the other circuits keep theirs.
+
+  private static class SharedConnectivity extends WeakReference<Connectivity> {
+    final String key;
+
+    SharedConnectivity(String key, Connectivity base) {
+      super(base, sharedConnectivityQueue);
+      this.key = key;
+    }
+  }
+
+  private static final HashMap<String, SharedConnectivity> sharedConnectivity = new HashMap<>();
+  private static final ReferenceQueue<Connectivity> sharedConnectivityQueue = new ReferenceQueue<>();
+
+  private Connectivity getSharedConnectivity(Connectivity fresh) {
+    String key = connectivityKey();
+    if (key != null) {
+      Connectivity shared = findSharedConnectivity(key);
+      if (shared != null) {
+        Connectivity ret = new Connectivity(shared);
+        recordComponents(ret);
+        return ret;
+      }
+    }
+    computeConnectivity(fresh);
+    if (key != null) {
+      Connectivity base = new Connectivity(fresh);
+      base.base = base;
+      fresh.base = base;
+      addSharedConnectivity(key, base);
+    }
+    return fresh;
+  }
+
+  private static Connectivity findSharedConnectivity(String key) {
+    synchronized (sharedConnectivity) {
+      SharedConnectivity ref = sharedConnectivity.get(key);
+      return ref == null ? null : ref.get();
+    }
+  }
+
+  private static void addSharedConnectivity(String key, Connectivity base) {
+    synchronized (sharedConnectivity) {
+      SharedConnectivity ref;
+      while ((ref = (SharedConnectivity) sharedConnectivityQueue.poll()) != null) {
+        if (sharedConnectivity.get(ref.key) == ref)
+          sharedConnectivity.remove(ref.key);
+      }
+      sharedConnectivity.put(key, new SharedConnectivity(key, base));
+    }
+  }
+
+  // Returns a SHA-256 digest of the wiring, or null if none can be made.
+  private String connectivityKey() {
+    ArrayList<String> parts = new ArrayList<>();
+    for (Wire w : wires)
+      parts.add(describeEnds('w', w).toString());
+    for (Component comp : components)
+      parts.add(describeEnds('c', comp).toString());
+    for (Component comp : tunnels) {
+      String label = comp.getAttributeSet().getValue(StdAttr.LABEL).trim();
+      parts.add(describeEnds('t', comp).append(' ').append(label).toString());
+    }
+    for (Component comp : pulls) {
+      Value pull = PullResistor.getPullValue(Instance.getInstanceFor(comp));
+      parts.add(describeEnds('p', comp).append(' ').append(pull).toString());
+    }
+    for (Splitter spl : splitters) {
+      StringBuilder s = describeEnds('s', spl).append(' ');
+      synchronized (spl) {
+        byte[] bit_end = ((SplitterAttributes) spl.getAttributeSet()).bit_end;
+        for (byte j : bit_end)
+          s.append((char) ('0' + j));
+      }
+      parts.add(s.toString());
+    }
+    Collections.sort(parts);
+    try {
+      MessageDigest md = MessageDigest.getInstance("SHA-256");
+      for (String part : parts) {
+        md.update(part.getBytes(StandardCharsets.UTF_8));
+        md.update((byte) '\n');
+      }
+      StringBuilder key = new StringBuilder();
+      for (byte x : md.digest())
+        key.append(Character.forDigit((x >> 4) & 0xf, 16)).append(Character.forDigit(x & 0xf, 16));
+      return key.toString();
+    } catch (NoSuchAlgorithmException e) {
+      return null;
+    }
+  }
+
+  private static StringBuilder describeEnds(char kind, Component comp) {
+    StringBuilder s = new StringBuilder().append(kind);
+    for (EndData e : comp.getEnds()) {
+      Location loc = e.getLocation();
+      s.append(' ').append(loc.getX()).append(',').append(loc.getY())
+          .append(',').append(e.getType()).append(',').append(e.getWidth().getWidth())
+          .append(e.isExclusive() ? "x" : "");
+    }
+    return s;
+  }
+
   Iterator<? extends Component> getComponents() {
     return IteratorUtil.createJoinedIterator(splitters.iterator(),
         wires.iterator());
@@ -31,6 +31,7 @@
 package com.cburch.logisim.circuit;
 
 //import java.util.PriorityQueue;
+import java.util.ArrayList;
 import java.util.Random;
 import java.lang.ref.WeakReference;
 
@@ -222,6 +223,12 @@ public class Propagator {
 
   private int eventSerialNumber = 0;
 
+  // Notifications deferred until the end of the current propagation step, so
+  // components that change a lot of internal state within one step (e.g. a
+  // RAM being written repeatedly) can publish one coalesced event instead of
+  // one per change.
+  private ArrayList<Runnable> deferred = new ArrayList<>();
+
   static int lastId = 0;
   int id = lastId++;
 
@@ -324,15 +331,36 @@ public class Propagator {
       } else {
         isOscillating = true;
         oscAdding = false;
+        runDeferred();
         return true;
       }
     }
     isOscillating = false;
     oscAdding = false;
     oscPoints.clear();
+    runDeferred();
     return iters > 0;
   }
 
+  // Schedules r to run once the current propagation step completes.
+  public void deferUntilPropagated(Runnable r) {
+    synchronized (deferred) {
+      deferred.add(r);
+    }
+  }
+
+  private void runDeferred() {
+    Runnable[] todo;
+    synchronized (deferred) {
+      if (deferred.isEmpty())
+        return;
+      todo = deferred.toArray(new Runnable[deferred.size()]);
+      deferred.clear();
+    }
+    for (Runnable r : todo)
+      r.run();
+  }
+
   // // precondition: state.valuesLock held
   // private static DrivenValue removeCause(CircuitState state, DrivenValue head, 
   //     Location loc, Component cause) {
@@ -410,6 +438,7 @@ public class Propagator {
     stepInternal(changedPoints);
     oscAdding = false;
     oscPoints = oldOsc;
+    runDeferred();
     return true;
   }
 
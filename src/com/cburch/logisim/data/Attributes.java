@@ -291,7 +291,7 @@ public class Attributes {
     @Override
     public java.awt.Component getCellEditor(Color value) {
       Color init = value == null ? Color.BLACK : value;
-      return new ColorChooser(init);
+      return ColorChooser.create(init);
     }
 
     private String hex(int value) {
@@ -331,6 +331,12 @@ public class Attributes {
     implements JInputComponent<Color> {
     private static final long serialVersionUID = 1L;
 
+    // Editors are made by their own classes, so that loading the attribute
+    // in headless runs doesn't load the editor's Swing superclasses.
+    static java.awt.Component create(Color initial) {
+      return new ColorChooser(initial);
+    }
+
     ColorChooser(Color initial) {
       if (initial != null)
         setColor(initial);
@@ -383,7 +389,7 @@ public class Attributes {
 
     @Override
     public java.awt.Component getCellEditor(Font value) {
-      return value == null ? new FontChooser() : new FontChooser(value);
+      return FontChooser.create(value);
     }
 
     @Override
@@ -412,6 +418,10 @@ public class Attributes {
     implements JInputComponent {
     private static final long serialVersionUID = 1L;
 
+    static java.awt.Component create(Font initial) {
+      return initial == null ? new FontChooser() : new FontChooser(initial);
+    }
+
     FontChooser() {
       super();
     }
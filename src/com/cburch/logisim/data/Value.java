@@ -472,6 +472,20 @@ public final class Value {
     return width;
   }
 
+  // Raw bit masks, for compact storage of values as primitives. A value can be
+  // recreated from these using create_unsafe().
+  public int getErrorMask() {
+    return error;
+  }
+
+  public int getUnknownMask() {
+    return unknown;
+  }
+
+  public int getValueMask() {
+    return value;
+  }
+
   @Override
   public int hashCode() {
     int ret = width;
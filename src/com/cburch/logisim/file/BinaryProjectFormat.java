@@ -0,0 +1,485 @@
+/**
+ * This file is part of Logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with Logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + Haute École Spécialisée Bernoise
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ *   + REDS Institute - HEIG-VD, Yverdon-les-Bains, Switzerland
+ *     http://reds.heig-vd.ch
+ * This version of the project is currently maintained by:
+ *   + Kevin Walsh (kwalsh@holycross.edu, http://mathcs.holycross.edu/~kwalsh)
+ */
+
+package com.cburch.logisim.file;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import com.cburch.logisim.gui.hex.HexFile;
+import com.cburch.logisim.std.memory.MemContents;
+
+// BinaryProjectFormat is a compact encoding of the same element tree as a .circ
+// file, for tools that open many projects in batch, where XML parsing is the
+// dominant cost. A .circb file decodes to a Document equal to what
+// XmlReader.loadXmlFrom would build from the .circ it was made from, so the
+// usual reader (with its version repairs) does the rest, and loading then
+// re-saving as .circ gives back the same XML.
+//
+// Layout, where all integers are unsigned LEB128 varints unless noted:
+//   "LGSB" version
+//   string table: count, then for each, byte length and UTF-8 bytes
+//   section index: count, then for each, circuit name (string id) and length
+//   root element record
+//   section bytes, concatenated in index order
+// An element record is its tag (string id), attribute count, then for each
+// attribute its name (string id) and value, then child count and children.
+// A value is 0 followed by zigzag x and y for a location like "(10,-20)", or
+// else 1 + the string id. A child is a kind byte followed by an element record,
+// inline UTF-8 text, a section number, or a memory image. Each <circuit> under
+// the root is stored as its own section. Decoding is eager: the whole file is
+// decoded into one Document, with each section inlined where it is referenced.
+// Only the root may refer to sections, each exactly once, so that a small
+// corrupt or hostile file can't expand into an enormous tree.
+//
+// Memory images replace the text of <a name="contents"> elements: address and
+// data widths, then each page of 4096 words holding a non-zero value as its
+// page number + 1 and fixed-width little-endian words, ending with 0. They
+// are only used when HexFile would write the parsed image back as exactly the
+// same text. On decode the image is attached to the element as user data under
+// MEMORY_KEY, instead of text, and handed to the attribute as is.
+public class BinaryProjectFormat {
+
+  public static final String MEMORY_KEY = "logisim.memory";
+
+  private static final byte[] MAGIC = { 'L', 'G', 'S', 'B' };
+  private static final int VERSION = 1;
+
+  private static final int CHILD_ELEMENT = 0;
+  private static final int CHILD_TEXT = 1;
+  private static final int CHILD_SECTION = 2;
+  private static final int CHILD_MEMORY = 3;
+
+  // Far deeper than any real project; guards against corrupt or hostile files.
+  private static final int MAX_DEPTH = 256;
+
+  private static final int PAGE_BITS = 12;
+  private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+  private static final String MEMORY_HEADER = "addr/data: ";
+
+  public static boolean isBinary(BufferedInputStream in) throws IOException {
+    byte[] first = new byte[MAGIC.length];
+    in.mark(first.length);
+    int n = in.readNBytes(first, 0, first.length);
+    in.reset();
+    return n == first.length && isBinary(first);
+  }
+
+  public static boolean isBinary(byte[] data) {
+    if (data.length < MAGIC.length)
+      return false;
+    for (int i = 0; i < MAGIC.length; i++)
+      if (data[i] != MAGIC[i])
+        return false;
+    return true;
+  }
+
+  // Encoding
+
+  public static void encode(Document doc, OutputStream out) throws IOException {
+    Encoder enc = new Encoder();
+    Element root = doc.getDocumentElement();
+    enc.element(enc.body, root);
+
+    ByteArrayOutputStream head = new ByteArrayOutputStream();
+    head.write(MAGIC);
+    head.write(VERSION);
+    writeVarint(head, enc.strings.size());
+    for (String s : enc.strings) {
+      byte[] b = s.getBytes(StandardCharsets.UTF_8);
+      writeVarint(head, b.length);
+      head.write(b);
+    }
+    writeVarint(head, enc.sections.size());
+    for (int i = 0; i < enc.sections.size(); i++) {
+      writeVarint(head, enc.sectionNames.get(i));
+      writeVarint(head, enc.sections.get(i).size());
+    }
+    head.writeTo(out);
+    enc.body.writeTo(out);
+    for (ByteArrayOutputStream section : enc.sections)
+      section.writeTo(out);
+  }
+
+  private static class Encoder {
+    final ArrayList<String> strings = new ArrayList<>();
+    final HashMap<String, Integer> ids = new HashMap<>();
+    final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    final ArrayList<ByteArrayOutputStream> sections = new ArrayList<>();
+    final ArrayList<Integer> sectionNames = new ArrayList<>();
+
+    int id(String s) {
+      Integer id = ids.get(s);
+      if (id == null) {
+        id = strings.size();
+        strings.add(s);
+        ids.put(s, id);
+      }
+      return id;
+    }
+
+    void element(ByteArrayOutputStream out, Element elt) throws IOException {
+      writeVarint(out, id(elt.getTagName()));
+      NamedNodeMap attrs = elt.getAttributes();
+      int n = attrs.getLength();
+      writeVarint(out, n);
+      for (int i = 0; i < n; i++) {
+        Attr a = (Attr)attrs.item(i);
+        writeVarint(out, id(a.getName()));
+        value(out, a.getValue());
+      }
+      int count = 0;
+      for (Node c = elt.getFirstChild(); c != null; c = c.getNextSibling())
+        count++;
+      writeVarint(out, count);
+      boolean isRoot = elt.getParentNode() == elt.getOwnerDocument();
+      for (Node c = elt.getFirstChild(); c != null; c = c.getNextSibling()) {
+        if (c.getNodeType() == Node.ELEMENT_NODE) {
+          Element e = (Element)c;
+          if (isRoot && e.getTagName().equals("circuit")) {
+            ByteArrayOutputStream section = new ByteArrayOutputStream();
+            element(section, e);
+            out.write(CHILD_SECTION);
+            writeVarint(out, sections.size());
+            sections.add(section);
+            sectionNames.add(id(e.getAttribute("name")));
+          } else {
+            out.write(CHILD_ELEMENT);
+            element(out, e);
+          }
+        } else {
+          String text = c.getNodeValue();
+          MemContents mem = count == 1 && elt.getTagName().equals("a")
+              && !elt.hasAttribute("val") ? parseMemory(text) : null;
+          if (mem != null) {
+            out.write(CHILD_MEMORY);
+            memory(out, mem);
+          } else {
+            out.write(CHILD_TEXT);
+            byte[] b = text.getBytes(StandardCharsets.UTF_8);
+            writeVarint(out, b.length);
+            out.write(b);
+          }
+        }
+      }
+    }
+
+    void value(ByteArrayOutputStream out, String v) {
+      int comma = v.indexOf(',');
+      if (v.length() >= 5 && v.charAt(0) == '(' && v.charAt(v.length() - 1) == ')'
+          && comma > 0) {
+        try {
+          int x = Integer.parseInt(v.substring(1, comma));
+          int y = Integer.parseInt(v.substring(comma + 1, v.length() - 1));
+          // only canonical forms, so that decoding gives back the same string
+          if (v.equals("(" + x + "," + y + ")")) {
+            writeVarint(out, 0);
+            writeVarint(out, ((x << 1) ^ (x >> 31)) & 0xffffffffL);
+            writeVarint(out, ((y << 1) ^ (y >> 31)) & 0xffffffffL);
+            return;
+          }
+        } catch (NumberFormatException e) { }
+      }
+      writeVarint(out, id(v) + 1);
+    }
+
+    void memory(ByteArrayOutputStream out, MemContents mem) {
+      int addrBits = mem.getLogLength();
+      int width = mem.getWidth();
+      int bytes = (width + 7) / 8;
+      long size = 1L << addrBits;
+      writeVarint(out, addrBits);
+      writeVarint(out, width);
+      int[] vals = new int[(int)Math.min(PAGE_SIZE, size)];
+      for (long a = mem.findNonZero(0); a >= 0; ) {
+        long page = a >>> PAGE_BITS;
+        long start = page << PAGE_BITS;
+        mem.get(start, vals);
+        writeVarint(out, page + 1);
+        for (int v : vals)
+          for (int k = 0; k < bytes; k++)
+            out.write(v >>> (8 * k));
+        a = mem.findNonZero(start + vals.length);
+      }
+      writeVarint(out, 0);
+    }
+  }
+
+  private static MemContents parseMemory(String text) {
+    if (!text.startsWith(MEMORY_HEADER))
+      return null;
+    int lineBreak = text.indexOf('\n');
+    if (lineBreak < 0)
+      return null;
+    String[] dims = text.substring(MEMORY_HEADER.length(), lineBreak).split(" ");
+    try {
+      if (dims.length != 2)
+        return null;
+      int addrBits = Integer.parseInt(dims[0]);
+      int width = Integer.parseInt(dims[1]);
+      MemContents mem = HexFile.parseFromCircFile(text.substring(lineBreak + 1),
+          addrBits, width);
+      if (mem == null || !text.equals(memoryText(mem)))
+        return null;
+      return mem;
+    } catch (IOException | RuntimeException e) {
+      return null;
+    }
+  }
+
+  // The text form of an image, as the ROM contents attribute writes it.
+  public static String memoryText(MemContents mem) {
+    return MEMORY_HEADER + mem.getLogLength() + " " + mem.getWidth() + "\n"
+        + HexFile.saveToStringForCircFile(mem);
+  }
+
+  // Decoding
+
+  public static Document decode(InputStream in) throws IOException {
+    return new BinaryProjectFormat(in.readAllBytes()).readDocument();
+  }
+
+  private final byte[] data;
+  private final String[] strings;
+  private final int[] sectionNames;
+  private final int[] sectionOffsets;
+  private final int rootOffset;
+  private final boolean[] used; // sections already referenced
+  private Document doc;
+  private int pos;
+  private int depth;
+
+  private BinaryProjectFormat(byte[] data) throws IOException {
+    this.data = data;
+    for (int i = 0; i < MAGIC.length; i++)
+      if (data.length <= i || data[i] != MAGIC[i])
+        throw new IOException("Not a binary Logisim project file");
+    pos = MAGIC.length;
+    int version = readByte();
+    if (version != VERSION)
+      throw new IOException("Unsupported binary project file version " + version);
+    strings = new String[readInt()];
+    for (int i = 0; i < strings.length; i++) {
+      int len = readInt();
+      checkLength(len);
+      strings[i] = new String(data, pos, len, StandardCharsets.UTF_8);
+      pos += len;
+    }
+    int n = readInt();
+    sectionNames = new int[n];
+    sectionOffsets = new int[n + 1];
+    int[] lengths = new int[n];
+    for (int i = 0; i < n; i++) {
+      sectionNames[i] = readInt();
+      lengths[i] = readInt();
+      if (sectionNames[i] >= strings.length)
+        throw new IOException("Corrupt binary project file index");
+    }
+    rootOffset = pos;
+    int end = data.length;
+    for (int i = n - 1; i >= 0; i--)
+      end -= lengths[i];
+    for (int i = 0; i < n; i++) {
+      sectionOffsets[i] = end;
+      end += lengths[i];
+    }
+    sectionOffsets[n] = end;
+    used = new boolean[n];
+    if (n > 0 && (sectionOffsets[0] < rootOffset || end != data.length))
+      throw new IOException("Corrupt binary project file index");
+  }
+
+  // Decodes the <circuit> element stored in the given section.
+  private Element readSection(int index) throws IOException {
+    pos = sectionOffsets[index];
+    Element elt = readElement();
+    if (pos != sectionOffsets[index + 1])
+      throw new IOException("Corrupt binary project file section " + index);
+    return elt;
+  }
+
+  private Document readDocument() throws IOException {
+    try {
+      doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+    } catch (ParserConfigurationException e) {
+      throw new IOException("XML parse configuration error: " + e.getMessage(), e);
+    }
+    pos = rootOffset;
+    doc.appendChild(readElement());
+    if (pos != sectionOffsets[0])
+      throw new IOException("Corrupt binary project file at offset " + pos);
+    for (int i = 0; i < used.length; i++)
+      if (!used[i])
+        throw new IOException("Corrupt binary project file section " + i);
+    return doc;
+  }
+
+  private Element readElement() throws IOException {
+    if (++depth > MAX_DEPTH)
+      throw new IOException("Corrupt binary project file: elements nested too deeply");
+    try {
+      return readElementBody();
+    } finally {
+      depth--;
+    }
+  }
+
+  private Element readElementBody() throws IOException {
+    Element elt = doc.createElement(string(readInt()));
+    for (int i = readInt(); i > 0; i--) {
+      String name = string(readInt());
+      int v = readInt();
+      if (v == 0) {
+        int x = (int)readLong(), y = (int)readLong();
+        x = (x >>> 1) ^ -(x & 1);
+        y = (y >>> 1) ^ -(y & 1);
+        elt.setAttribute(name, "(" + x + "," + y + ")");
+      } else {
+        elt.setAttribute(name, string(v - 1));
+      }
+    }
+    for (int i = readInt(); i > 0; i--) {
+      int kind = readByte();
+      switch (kind) {
+      case CHILD_ELEMENT:
+        elt.appendChild(readElement());
+        break;
+      case CHILD_TEXT:
+        int len = readInt();
+        checkLength(len);
+        elt.appendChild(doc.createTextNode(
+              new String(data, pos, len, StandardCharsets.UTF_8)));
+        pos += len;
+        break;
+      case CHILD_SECTION:
+        int index = readInt();
+        if (depth != 1 || index >= used.length || used[index])
+          throw new IOException("Corrupt binary project file section " + index);
+        used[index] = true;
+        int save = pos;
+        elt.appendChild(readSection(index));
+        pos = save;
+        break;
+      case CHILD_MEMORY:
+        elt.setUserData(MEMORY_KEY, readMemory(), null);
+        break;
+      default:
+        throw new IOException("Corrupt binary project file at offset " + (pos - 1));
+      }
+    }
+    return elt;
+  }
+
+  private MemContents readMemory() throws IOException {
+    int addrBits = readInt();
+    int width = readInt();
+    if (addrBits < 0 || addrBits > 32 || width < 1 || width > 32)
+      throw new IOException("Corrupt binary project file memory image");
+    int bytes = (width + 7) / 8;
+    long size = 1L << addrBits;
+    MemContents mem = MemContents.create(addrBits, width);
+    int[] vals = new int[(int)Math.min(PAGE_SIZE, size)];
+    long pages = Math.max(1, size >>> PAGE_BITS);
+    for (long page = readLong(); page != 0; page = readLong()) {
+      // check before shifting, as a large page number would overflow
+      if (page < 1 || page - 1 >= pages)
+        throw new IOException("Corrupt binary project file memory image");
+      long start = (page - 1) << PAGE_BITS;
+      checkLength(vals.length * bytes);
+      for (int j = 0; j < vals.length; j++) {
+        int v = 0;
+        for (int k = 0; k < bytes; k++)
+          v |= (data[pos++] & 0xff) << (8 * k);
+        vals[j] = v;
+      }
+      mem.set(start, vals);
+    }
+    return mem;
+  }
+
+  private String string(int id) throws IOException {
+    if (id < 0 || id >= strings.length)
+      throw new IOException("Corrupt binary project file string id " + id);
+    return strings[id];
+  }
+
+  private void checkLength(int len) throws IOException {
+    if (len < 0 || len > data.length - pos)
+      throw new IOException("Truncated binary project file");
+  }
+
+  private int readByte() throws IOException {
+    checkLength(1);
+    return data[pos++] & 0xff;
+  }
+
+  private int readInt() throws IOException {
+    long v = readLong();
+    if (v < 0 || v > Integer.MAX_VALUE)
+      throw new IOException("Corrupt binary project file at offset " + pos);
+    return (int)v;
+  }
+
+  private long readLong() throws IOException {
+    long v = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = readByte();
+      v |= (long)(b & 0x7f) << shift;
+      if ((b & 0x80) == 0)
+        return v;
+    }
+    throw new IOException("Corrupt binary project file at offset " + pos);
+  }
+
+  private static void writeVarint(ByteArrayOutputStream out, long v) {
+    while ((v & ~0x7fL) != 0) {
+      out.write((int)(v & 0x7f) | 0x80);
+      v >>>= 7;
+    }
+    out.write((int)v);
+  }
+
+}
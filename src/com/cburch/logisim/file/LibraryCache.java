@@ -0,0 +1,275 @@
+/**
+ * This file is part of Logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with Logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + Haute École Spécialisée Bernoise
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ *   + REDS Institute - HEIG-VD, Yverdon-les-Bains, Switzerland
+ *     http://reds.heig-vd.ch
+ * This version of the project is currently maintained by:
+ *   + Kevin Walsh (kwalsh@holycross.edu, http://mathcs.holycross.edu/~kwalsh)
+ */
+
+package com.cburch.logisim.file;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Set;
+
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+import com.cburch.logisim.Main;
+
+// LibraryCache keeps the parsed form of Logisim library files (file#foo.circ)
+// on disk, in the binary project format, so that a library shared by many
+// projects is parsed from XML once rather than in every session and every
+// -tty run. It lives in ~/.logisim-cache, or in the directory named by the
+// logisim.cache system property ("off" disables it). It works the same with
+// or without a GUI, and several processes of the same user may share it.
+//
+// Entries are used as libraries as they are, so whoever can write to the
+// directory can change any library. The directory is therefore created
+// private to the user, and one that is owned by someone else, or writable by
+// others, is not used at all. Each entry also begins with the hash of the
+// library it was made from, which is checked before the entry is used, and
+// entries that don't match are deleted.
+//
+// An entry is named for the SHA-256 of the library's bytes and the Logisim
+// version, as the reader's repairs depend on both. A small per-path key file
+// records the modification time, size, and hash last seen for each library,
+// so an unchanged library is found without reading it. When the time or size
+// differs, the library is read and hashed again, and an entry for the same
+// bytes (e.g. a copy elsewhere) is still reused. Entries are written to a
+// temporary file and moved into place, so readers never see partial ones.
+// Using an entry marks it recently used, and whenever an entry is added only
+// the most recently used files are kept, so the directory stays bounded.
+// The cache is only an optimization: if it cannot be written (e.g. the
+// directory is read-only), libraries are still loaded, just not cached.
+class LibraryCache {
+
+  private static final File dir = findDirectory();
+  private static Boolean usable; // whether dir is private, checked once
+
+  // Most recently used cache files (entries and key files) to keep.
+  private static final int MAX_FILES = 512;
+
+  private static File findDirectory() {
+    String prop = System.getProperty("logisim.cache");
+    if (prop != null && prop.equals("off"))
+      return null;
+    if (prop != null && !prop.equals(""))
+      return new File(prop);
+    return new File(System.getProperty("user.home"), ".logisim-cache");
+  }
+
+  // Returns the document for a library file, from the cache if possible, or
+  // else parsed from the file and added to the cache. Returns null if the
+  // file is not plain XML that the cache can handle, or the cache is off, in
+  // which case the caller should load the file as usual.
+  static Document load(File file) {
+    if (dir == null || !isUsable())
+      return null;
+    try {
+      File keyFile = new File(dir, hex(sha256(file.getAbsolutePath()
+              .getBytes(StandardCharsets.UTF_8))) + ".key");
+      long mtime = file.lastModified();
+      long size = file.length();
+      String hash = readKey(keyFile, mtime, size);
+      byte[] data = null;
+      if (hash == null) {
+        data = Files.readAllBytes(file.toPath());
+        hash = hex(sha256(data));
+      }
+      byte[] key = (mtime + " " + size + " " + hash).getBytes(StandardCharsets.UTF_8);
+      File entry = new File(dir, hash + "-" + versionTag() + LogisimFile.LOGISIM_EXTENSION_BINARY);
+      byte[] header = (hash + "\n").getBytes(StandardCharsets.UTF_8);
+      if (entry.isFile()) {
+        try {
+          byte[] cached = Files.readAllBytes(entry.toPath());
+          if (cached.length < header.length || !Arrays.equals(header, 0, header.length,
+                cached, 0, header.length))
+            throw new IOException("cache entry is for another library");
+          Document doc = BinaryProjectFormat.decode(new ByteArrayInputStream(
+                cached, header.length, cached.length - header.length));
+          long now = System.currentTimeMillis();
+          entry.setLastModified(now);
+          if (data == null)
+            keyFile.setLastModified(now);
+          else
+            store(keyFile, key);
+          return doc;
+        } catch (IOException e) {
+          entry.delete(); // damaged, so replace it below
+        }
+      }
+      if (data == null)
+        data = Files.readAllBytes(file.toPath());
+      if (BinaryProjectFormat.isBinary(data))
+        return null; // already compact, nothing to gain
+      Document doc = XmlReader.loadXmlFrom(new ByteArrayInputStream(data));
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      try {
+        out.write(header);
+        BinaryProjectFormat.encode(doc, out);
+      } catch (IOException | RuntimeException e) {
+        return doc; // parsed fine, but can't be cached
+      }
+      if (store(entry, out.toByteArray()) && store(keyFile, key))
+        prune();
+      return doc;
+    } catch (IOException | SAXException | RuntimeException e) {
+      // Not cacheable (or not XML at all), so let the usual path load it,
+      // and report any problem with the file itself.
+      return null;
+    }
+  }
+
+  // Creates the directory, readable and writable only by the user, if it
+  // doesn't exist, and returns whether it is safe to use.
+  private static synchronized boolean isUsable() {
+    if (usable == null) {
+      Path p = dir.toPath();
+      try {
+        if (!Files.exists(p, LinkOption.NOFOLLOW_LINKS)) {
+          try {
+            Files.createDirectories(p, PosixFilePermissions.asFileAttribute(
+                  PosixFilePermissions.fromString("rwx------")));
+          } catch (UnsupportedOperationException e) {
+            Files.createDirectories(p); // not POSIX, e.g. Windows
+          }
+        }
+        usable = isPrivate(p);
+      } catch (IOException | RuntimeException e) {
+        usable = false;
+      }
+    }
+    return usable;
+  }
+
+  private static boolean isPrivate(Path p) throws IOException {
+    if (!Files.isDirectory(p, LinkOption.NOFOLLOW_LINKS))
+      return false;
+    UserPrincipal me = p.getFileSystem().getUserPrincipalLookupService()
+        .lookupPrincipalByName(System.getProperty("user.name"));
+    PosixFileAttributes attrs;
+    try {
+      attrs = Files.readAttributes(p, PosixFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+    } catch (UnsupportedOperationException e) {
+      return Files.getOwner(p, LinkOption.NOFOLLOW_LINKS).equals(me);
+    }
+    Set<PosixFilePermission> perms = attrs.permissions();
+    return attrs.owner().equals(me)
+        && !perms.contains(PosixFilePermission.GROUP_WRITE)
+        && !perms.contains(PosixFilePermission.OTHERS_WRITE);
+  }
+
+  private static String readKey(File keyFile, long mtime, long size) {
+    try {
+      String[] fields = new String(Files.readAllBytes(keyFile.toPath()),
+          StandardCharsets.UTF_8).trim().split(" ");
+      if (fields.length == 3 && Long.parseLong(fields[0]) == mtime
+          && Long.parseLong(fields[1]) == size)
+        return fields[2];
+    } catch (IOException | NumberFormatException e) {
+    }
+    return null;
+  }
+
+  // Writes a cache file, returning false if that was not possible.
+  private static boolean store(File dest, byte[] data) {
+    try {
+      writeAtomically(dest, data);
+      return true;
+    } catch (IOException | RuntimeException e) {
+      return false;
+    }
+  }
+
+  // Deletes all but the MAX_FILES most recently used cache files. Only names
+  // the cache itself creates are considered, in case the directory is shared.
+  private static void prune() {
+    File[] files = dir.listFiles((d, name) -> name.endsWith(".key")
+        || name.endsWith(LogisimFile.LOGISIM_EXTENSION_BINARY)
+        || (name.startsWith("tmp") && name.endsWith(".tmp")));
+    if (files == null || files.length <= MAX_FILES)
+      return;
+    // sort on times fetched once, as other processes may touch files meanwhile
+    long[] times = new long[files.length];
+    Integer[] order = new Integer[files.length];
+    for (int i = 0; i < files.length; i++) {
+      times[i] = files[i].lastModified();
+      order[i] = i;
+    }
+    Arrays.sort(order, (a, b) -> Long.compare(times[b], times[a]));
+    for (int i = MAX_FILES; i < order.length; i++)
+      files[order[i]].delete();
+  }
+
+  private static void writeAtomically(File dest, byte[] data) throws IOException {
+    File tmp = File.createTempFile("tmp", null, dest.getParentFile());
+    try {
+      try (OutputStream out = new FileOutputStream(tmp)) {
+        out.write(data);
+      }
+      Files.move(tmp.toPath(), dest.toPath(), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      tmp.delete();
+    }
+  }
+
+  private static String versionTag() {
+    return Main.VERSION_NAME.replaceAll("[^a-zA-Z0-9.]", "_");
+  }
+
+  private static byte[] sha256(byte[] data) throws IOException {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(data);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException(e.getMessage(), e);
+    }
+  }
+
+  private static String hex(byte[] b) {
+    StringBuilder s = new StringBuilder(2 * b.length);
+    for (byte x : b)
+      s.append(Character.forDigit((x >> 4) & 0xf, 16)).append(Character.forDigit(x & 0xf, 16));
+    return s.toString();
+  }
+
+}
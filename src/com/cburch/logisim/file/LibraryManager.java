@@ -38,10 +38,14 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.WeakHashMap;
 
 import com.cburch.logisim.tools.Library;
+import com.cburch.logisim.tools.Tool;
 import com.cburch.logisim.std.Builtin;
 import com.cburch.logisim.util.Errors;
 import com.cburch.logisim.proj.Project;
@@ -71,9 +75,14 @@ public class LibraryManager {
       // return absoluteFile.equals(query);
     }
 
-    abstract void setBase(Loader loader, LoadedLibrary lib)
+    abstract Library loadBase(Loader loader, Map<String, String> substitutions)
         throws LoadFailedException, LoadCanceledByUser;
 
+    // The library's name, if it can be known without loading it.
+    String getPendingName() {
+      return null;
+    }
+
     String toShortDescriptor() {
       return prefix + "#"
           + absoluteFile.getName()
@@ -113,8 +122,9 @@ public class LibraryManager {
     }
 
     @Override
-    void setBase(Loader loader, LoadedLibrary lib) throws LoadFailedException, LoadCanceledByUser {
-      lib.setBase(loader.loadJarFile(absoluteFile, className));
+    Library loadBase(Loader loader, Map<String, String> substitutions)
+        throws LoadFailedException, LoadCanceledByUser {
+      return loader.loadJarFile(absoluteFile, className);
     }
   }
 
@@ -125,8 +135,19 @@ public class LibraryManager {
     }
 
     @Override
-    void setBase(Loader loader, LoadedLibrary lib) throws LoadFailedException, LoadCanceledByUser {
-      lib.setBase(loader.loadLogisimLibraryStage3(absoluteFile).file);
+    Library loadBase(Loader loader, Map<String, String> substitutions)
+        throws LoadFailedException, LoadCanceledByUser {
+      LogisimFile.FileWithSimulations loaded =
+          loader.loadLogisimLibraryStage3(absoluteFile, substitutions);
+      if (loaded == null)
+        throw new LoadFailedException(S.fmt("logisimLoadError",
+              getPendingName(), "file could not be opened"));
+      return loaded.file;
+    }
+
+    @Override
+    String getPendingName() {
+      return LogisimFile.toProjectName(absoluteFile);
     }
 
   }
@@ -340,7 +361,7 @@ public class LibraryManager {
   Collection<LogisimFile> getLogisimLibraries() {
     ArrayList<LogisimFile> ret = new ArrayList<LogisimFile>();
     for (LoadedLibrary lib : invMap.keySet()) {
-      if (lib.getBase() instanceof LogisimFile) {
+      if (lib.isLoaded() && lib.getBase() instanceof LogisimFile) {
         ret.add((LogisimFile) lib.getBase());
       }
     }
@@ -351,24 +372,7 @@ public class LibraryManager {
       String className) {
     if (!toReadAbsolute.isAbsolute())
       throw new IllegalArgumentException("jar path must be absolute");
-    JarDescriptor jarDescriptor = new JarDescriptor(toReadAbsolute, className);
-    LoadedLibrary ret = findKnown(jarDescriptor);
-    if (ret != null)
-      return ret;
-
-    try {
-      ret = new LoadedLibrary(loader.loadJarFile(toReadAbsolute, className));
-    } catch (LoadFailedException e) {
-      if (e.cause != null)
-        Errors.project(loader.getMainFile()).show(e.getMessage(), e.cause);
-      else
-        Errors.project(loader.getMainFile()).show(e.getMessage());
-      return null;
-    }
-
-    fileMap.put(jarDescriptor, new WeakReference<LoadedLibrary>(ret));
-    invMap.put(ret, jarDescriptor);
-    return ret;
+    return register(loader, new JarDescriptor(toReadAbsolute, className));
   }
 
   // Called only by Loader.loadLibrary()
@@ -404,25 +408,67 @@ public class LibraryManager {
   }
 
   // This is used only by Loader.loadLogisimLibrary()
-  LoadedLibrary loadLogisimLibraryStage2(Loader loader, File toRead) throws LoadCanceledByUser {
-    LoadedLibrary ret = findKnown(toRead);
+  LoadedLibrary loadLogisimLibraryStage2(Loader loader, File toRead) {
+    return register(loader, new LogisimProjectDescriptor(toRead));
+  }
+
+  // Opening a project only locates the files for the libraries it references
+  // (asking the user if need be). Each file is read later, by loadDeferred(),
+  // when its LoadedLibrary is first asked for its contents, so libraries that
+  // a project references but never uses cost nothing to open. The loader's
+  // substitutions are captured now, as they still apply to libraries that the
+  // deferred file references in turn.
+  private LoadedLibrary register(Loader loader, LibraryDescriptor desc) {
+    LoadedLibrary ret = findKnown(desc);
     if (ret != null)
       return ret;
+    ret = new LoadedLibrary(loader, new HashMap<>(loader.getSubstitutions()),
+        desc.getPendingName());
+    fileMap.put(desc, new WeakReference<LoadedLibrary>(ret));
+    invMap.put(ret, desc);
+    return ret;
+  }
 
+  // Called by LoadedLibrary the first time its contents are needed. If the
+  // file can't be loaded, the error is reported and an empty library stands
+  // in for it, and a later reference to the same file will try again.
+  Library loadDeferred(Loader loader, Map<String, String> substitutions,
+      LoadedLibrary lib) {
+    LibraryDescriptor desc = invMap.get(lib);
     try {
-      ret = new LoadedLibrary(loader.loadLogisimLibraryStage3(toRead).file);
+      Library ret = desc.loadBase(loader, substitutions);
+      if (ret instanceof LogisimFile)
+        loader.showMessages((LogisimFile) ret);
+      return ret;
+    } catch (LoadCanceledByUser e) {
+      // fall through
     } catch (LoadFailedException e) {
       if (e.cause != null)
         Errors.project(loader.getMainFile()).show(e.getMessage(), e.cause);
       else
         Errors.project(loader.getMainFile()).show(e.getMessage());
-      return null;
     }
+    fileMap.remove(desc);
+    String name = desc.getPendingName();
+    return new MissingLibrary(name != null ? name : desc.toShortDescriptor());
+  }
 
-    LogisimProjectDescriptor desc = new LogisimProjectDescriptor(toRead);
-    fileMap.put(desc, new WeakReference<LoadedLibrary>(ret));
-    invMap.put(ret, desc);
-    return ret;
+  private static class MissingLibrary extends Library {
+    private final String name;
+
+    MissingLibrary(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public List<Tool> getTools() {
+      return Collections.emptyList();
+    }
   }
 
   public void reload(Loader loader, LoadedLibrary lib) {
@@ -431,7 +477,7 @@ public class LibraryManager {
       Errors.project(loader.getMainFile()).show(S.fmt("unknownLibraryFileError", lib.getDisplayName()));
     } else {
       try {
-        descriptor.setBase(loader, lib);
+        lib.setBase(descriptor.loadBase(loader, loader.getSubstitutions()));
       } catch (LoadCanceledByUser e) {
         // eat exception
       } catch (LoadFailedException e) {
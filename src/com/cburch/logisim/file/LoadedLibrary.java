@@ -132,7 +132,16 @@ public class LoadedLibrary extends Library implements LibraryEventSource {
     }
   }
 
-  private Library base;
+  // A LoadedLibrary is created as soon as a project referencing the file is
+  // opened, but the file itself is read only when something first needs the
+  // library's tools or sublibraries, e.g. to resolve a component or tool by
+  // name. Until then, base is null, and lookups by factory or tool identity
+  // answer without loading, since nothing can have come from the library yet.
+  private volatile Library base;
+  private String pendingName; // known before loading (file libraries only)
+  private Loader pendingLoader;
+  private Map<String, String> pendingSubstitutions;
+  private boolean resolving;
 
   private boolean dirty;
 
@@ -140,17 +149,34 @@ public class LoadedLibrary extends Library implements LibraryEventSource {
 
   private EventSourceWeakSupport<LibraryListener> listeners;
 
-  LoadedLibrary(Library base) {
+  LoadedLibrary(Loader loader, Map<String, String> substitutions, String name) {
     dirty = false;
     myListener = new MyListener();
     listeners = new EventSourceWeakSupport<LibraryListener>();
+    pendingName = name;
+    pendingLoader = loader;
+    pendingSubstitutions = substitutions;
+  }
 
-    while (base instanceof LoadedLibrary)
-      base = ((LoadedLibrary) base).base;
-    this.base = base;
-    if (base instanceof LibraryEventSource) {
-      ((LibraryEventSource) base).addLibraryWeakListener(null, myListener);
+  private synchronized Library resolve() {
+    if (base == null) {
+      if (resolving) // circular reference, which loading again will report
+        return LibraryManager.instance.loadDeferred(pendingLoader, pendingSubstitutions, this);
+      resolving = true;
+      try {
+        Library loaded = LibraryManager.instance.loadDeferred(pendingLoader,
+            pendingSubstitutions, this);
+        if (base == null)
+          setBase(loaded);
+      } finally {
+        resolving = false;
+      }
     }
+    return base;
+  }
+
+  public boolean isLoaded() {
+    return base != null;
   }
 
   public void addLibraryWeakListener(Object owner, LibraryListener l) { listeners.add(owner, l); }
@@ -170,32 +196,56 @@ public class LoadedLibrary extends Library implements LibraryEventSource {
   }
 
   public Library getBase() {
-    return base;
+    return resolve();
   }
 
   @Override
   public String getDisplayName() {
-    return base.getDisplayName();
+    if (base == null && pendingName != null)
+      return pendingName;
+    return resolve().getDisplayName();
   }
 
   @Override
   public List<Library> getLibraries() {
-    return base.getLibraries();
+    return resolve().getLibraries();
   }
 
   @Override
   public String getName() {
-    return base.getName();
+    if (base == null && pendingName != null)
+      return pendingName;
+    return resolve().getName();
   }
 
   @Override
   public List<? extends Tool> getTools() {
-    return base.getTools();
+    return resolve().getTools();
+  }
+
+  @Override
+  public int indexOf(ComponentFactory query) {
+    return base == null ? -1 : super.indexOf(query);
+  }
+
+  @Override
+  public boolean containsFromSource(Tool query) {
+    return base != null && super.containsFromSource(query);
+  }
+
+  @Override
+  public AddTool findToolFor(ComponentFactory query) {
+    return base == null ? null : super.findToolFor(query);
+  }
+
+  @Override
+  public Tool findEquivalentTool(Tool query) {
+    return base == null ? null : super.findEquivalentTool(query);
   }
 
   @Override
   public boolean isDirty() {
-    return dirty || base.isDirty();
+    return dirty || (base != null && base.isDirty());
   }
 
   private void resolveChanges(Library old) {
@@ -253,12 +303,17 @@ public class LoadedLibrary extends Library implements LibraryEventSource {
   }
 
   void setBase(Library value) {
+    while (value instanceof LoadedLibrary)
+      value = ((LoadedLibrary) value).getBase();
+    pendingLoader = null;
+    pendingSubstitutions = null;
     if (base instanceof LibraryEventSource) {
       ((LibraryEventSource) base).removeLibraryWeakListener(null, myListener);
     }
     Library old = base;
     base = value;
-    resolveChanges(old);
+    if (old != null)
+      resolveChanges(old);
     if (base instanceof LibraryEventSource) {
       ((LibraryEventSource) base).addLibraryWeakListener(null, myListener);
     }
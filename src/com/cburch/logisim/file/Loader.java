@@ -79,7 +79,8 @@ public class Loader implements LibraryLoader {
 
   public static final FileFilter LOGISIM_FILTER =
       makeFileFilter(S.getter("logisimFileFilter"),
-          LogisimFile.LOGISIM_EXTENSION, LogisimFile.LOGISIM_EXTENSION_ALT);
+          LogisimFile.LOGISIM_EXTENSION, LogisimFile.LOGISIM_EXTENSION_ALT,
+          LogisimFile.LOGISIM_EXTENSION_BINARY);
 
   public static final FileFilter JAR_FILTER =
       makeFileFilter(S.getter("jarFileFilter"), ".jar");
@@ -89,15 +90,38 @@ public class Loader implements LibraryLoader {
       makeFileFilter(S.getter("vhdlFileFilter"), ".vhd", ".vhdl");
   public static final FileFilter XML_FILTER =
       makeFileFilter(S.getter("xmlFileFilter"), ".xml");
+  public static final FileFilter PNG_FILTER =
+      makeFileFilter(S.getter("pngFileFilter"), ".png");
+  public static final FileFilter JPG_FILTER =
+      makeFileFilter(S.getter("jpgFileFilter"),
+          ".jpg", ".jpeg", ".jpe", ".jfi", ".jfif", ".jfi");
+
+  // When headless there is nobody to ask where a missing library went, so
+  // the program ends. The simulation server instead cancels just that load.
+  private static boolean exitIfLibraryMissing = true;
+
+  public static void setExitIfLibraryMissing(boolean value) {
+    exitIfLibraryMissing = value;
+  }
 
   private Component parent;
-  private Builtin builtin = new Builtin();
+  private Builtin builtin;
   private File mainFile = null; // to be cleared with each new file
   private Stack<File> filesOpening = new Stack<>();
   private Map<String, String> substitutions = new HashMap<>();
 
   public Loader(Component parent) {
     this.parent = parent;
+    this.builtin = new Builtin();
+  }
+
+  // A loader for reading one library file, with the substitutions that apply
+  // to it, so that the loader it came from is left as others may be using it.
+  private Loader(Loader base, Map<String, String> substitutions) {
+    this.parent = base.parent;
+    this.builtin = base.builtin;
+    this.mainFile = base.mainFile;
+    this.substitutions = substitutions;
   }
 
   public JFileChooser createChooser() {
@@ -156,6 +180,8 @@ public class Loader implements LibraryLoader {
           ? S.fmt("fileLibraryUnreadableError", name, circName)
           : S.fmt("fileLibraryMissingError", name, circName);
       System.out.println(msg);
+      if (!exitIfLibraryMissing)
+        throw new LoadCanceledByUser();
       System.exit(1);
     }
     while (file == null || !file.canRead()) {
@@ -355,13 +381,21 @@ public class Loader implements LibraryLoader {
     return LibraryManager.instance.loadLibraryStage2(this, desc);
   }
 
-  // This is used only by Loader.loadLogisimFile(), which calls
-  // LibraryManager.loadLogisimFileStage2(), which calls this.
-  LogisimFile.FileWithSimulations loadLogisimLibraryStage3(File request) throws LoadFailedException, LoadCanceledByUser {
-    return loadLogisimFile(request);
+  // This is used only by LibraryManager, when a library is first used or is
+  // reloaded, with the substitutions in effect when it was referenced.
+  LogisimFile.FileWithSimulations loadLogisimLibraryStage3(File request,
+      Map<String, String> substitutions) throws LoadFailedException, LoadCanceledByUser {
+    return new Loader(this, substitutions).loadLogisimFile(request, true);
   }
 
   private LogisimFile.FileWithSimulations loadLogisimFile(File actual) throws LoadFailedException, LoadCanceledByUser {
+    return loadLogisimFile(actual, false);
+  }
+
+  // Libraries go through LibraryCache, as they tend to be shared by many
+  // projects and rarely change.
+  private LogisimFile.FileWithSimulations loadLogisimFile(File actual, boolean isLibrary)
+      throws LoadFailedException, LoadCanceledByUser {
     if (filesOpening.contains(actual))
       throw new LoadFailedException(
           S.fmt("logisimCircularError", LogisimFile.toProjectName(actual)));
@@ -369,7 +403,7 @@ public class Loader implements LibraryLoader {
     LogisimFile.FileWithSimulations ret = null;
     filesOpening.push(actual);
     try {
-      ret = LogisimFile.load(actual, this);
+      ret = isLibrary ? LogisimFile.loadCached(actual, this) : LogisimFile.load(actual, this);
     } catch (LoadCanceledByUser e) {
       throw e;
     } catch (Throwable e) {
@@ -390,10 +424,7 @@ public class Loader implements LibraryLoader {
   }
 
   public Library loadLogisimLibrary(File file) throws LoadCanceledByUser {
-    LoadedLibrary lib = LibraryManager.instance.loadLogisimLibraryStage2(this, file);
-    if (lib != null)
-      showMessages((LogisimFile) lib.getBase());
-    return lib;
+    return LibraryManager.instance.loadLogisimLibraryStage2(this, file);
   }
 
   public LogisimFile.FileWithSimulations openLogisimFile(File file) throws LoadFailedException, LoadCanceledByUser {
@@ -422,6 +453,12 @@ public class Loader implements LibraryLoader {
     return ret;
   }
 
+  // Used by LibraryManager, to load libraries on first use under the
+  // substitutions in effect when the project referencing them was opened.
+  Map<String, String> getSubstitutions() {
+    return substitutions;
+  }
+
   public void reload(LoadedLibrary lib) {
     LibraryManager.instance.reload(this, lib);
   }
@@ -436,7 +473,7 @@ public class Loader implements LibraryLoader {
     parent = value;
   }
 
-  private void showMessages(LogisimFile source) {
+  void showMessages(LogisimFile source) {
     if (source == null)
       return;
     File circFile = filesOpening.empty() ? null : filesOpening.peek();
@@ -48,9 +48,8 @@ import java.util.LinkedList;
 import java.util.List;
 
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.TransformerConfigurationException;
-import javax.xml.transform.TransformerException;
 
+import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
 import com.cburch.hdl.HdlModel;
@@ -163,6 +162,29 @@ public class LogisimFile extends Library implements LibraryEventSource {
     }
   }
 
+  // Loads a library file by way of LibraryCache, or as usual if the cache
+  // can't handle it.
+  static FileWithSimulations loadCached(File file, Loader loader)
+      throws IOException, LoadCanceledByUser {
+    Document doc = LibraryCache.load(file);
+    if (doc == null)
+      return load(file, loader);
+    try {
+      return loadSub(doc, loader, file);
+    } catch (SAXException e) {
+      Errors.project(file).show(S.fmt("xmlFormatError", e.toString()), e);
+      return null;
+    }
+  }
+
+  private static FileWithSimulations loadSub(Document doc, Loader loader, File srcFile)
+      throws IOException, SAXException, LoadCanceledByUser {
+    XmlProjectReader xmlReader = new XmlProjectReader(loader, srcFile);
+    FileWithSimulations ret = xmlReader.parseProjectWithSimulations(doc);
+    ret.file.loader = loader;
+    return ret;
+  }
+
   public static class FileWithSimulations {
     public final LogisimFile file;
     public final HashMap<Circuit, ArrayList<HashMap<String, AttributeSet>>> simulations = new HashMap<>();
@@ -175,6 +197,8 @@ public class LogisimFile extends Library implements LibraryEventSource {
       throws IOException, SAXException, LoadCanceledByUser {
     // fetch first line and then reset
     BufferedInputStream inBuffered = new BufferedInputStream(in);
+    if (BinaryProjectFormat.isBinary(inBuffered))
+      return loadSub(BinaryProjectFormat.decode(inBuffered), loader, srcFile);
     String firstLine = getFirstLine(inBuffered);
 
     if (firstLine == null) {
@@ -205,6 +229,7 @@ public class LogisimFile extends Library implements LibraryEventSource {
   private String name;
 
   private boolean dirty = false;
+  final XmlCircuitCache xmlCache = new XmlCircuitCache();
 
   LogisimFile(Loader loader) {
     this.loader = loader;
@@ -605,19 +630,19 @@ public class LogisimFile extends Library implements LibraryEventSource {
   //   write(out, null);
   // }
 
+  // Writes the project to dest like save(), but leaves this file's name and
+  // location alone, e.g. to keep a snapshot of a simulation in progress.
+  public void saveCopy(File dest, Project proj) throws IOException {
+    try (FileOutputStream out = new FileOutputStream(dest)) {
+      write(out, dest, proj);
+    }
+  }
+
   void write(OutputStream out, File dest, Project proj) throws IOException {
     try {
       XmlWriter.write(this, proj, out, dest);
-    } catch (TransformerConfigurationException e) {
-      Errors.project(dest).show("internal error configuring transformer", e);
     } catch (ParserConfigurationException e) {
       Errors.project(dest).show("internal error configuring parser", e);
-    } catch (TransformerException e) {
-      String msg = e.getMessage();
-      String err = S.get("xmlConversionError");
-      if (msg != null)
-        err += ": " + msg;
-      Errors.project(dest).show(err, e);
     }
   }
 
@@ -737,6 +762,8 @@ public class LogisimFile extends Library implements LibraryEventSource {
       name = name.substring(0, name.length() - LOGISIM_EXTENSION.length());
     } else if (name.endsWith(LOGISIM_EXTENSION_ALT)) {
       name = name.substring(0, name.length() - LOGISIM_EXTENSION_ALT.length());
+    } else if (name.endsWith(LOGISIM_EXTENSION_BINARY)) {
+      name = name.substring(0, name.length() - LOGISIM_EXTENSION_BINARY.length());
     }
     for (int i = 1; i <= 20; i++) {
       String ext = i == 1 ? ".bak" : (".bak" + i);
@@ -753,6 +780,8 @@ public class LogisimFile extends Library implements LibraryEventSource {
       return ret.substring(0, ret.length() - LOGISIM_EXTENSION.length());
     } else if (ret.endsWith(LOGISIM_EXTENSION_ALT)) {
       return ret.substring(0, ret.length() - LOGISIM_EXTENSION_ALT.length());
+    } else if (ret.endsWith(LOGISIM_EXTENSION_BINARY)) {
+      return ret.substring(0, ret.length() - LOGISIM_EXTENSION_BINARY.length());
     } else {
       return ret;
     }
@@ -760,5 +789,6 @@ public class LogisimFile extends Library implements LibraryEventSource {
 
   public static final String LOGISIM_EXTENSION = ".circ";
   public static final String LOGISIM_EXTENSION_ALT = ".circ.xml";
+  public static final String LOGISIM_EXTENSION_BINARY = ".circb";
 
 }
@@ -0,0 +1,189 @@
+/**
+ * This file is part of Logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with Logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + Haute École Spécialisée Bernoise
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ *   + REDS Institute - HEIG-VD, Yverdon-les-Bains, Switzerland
+ *     http://reds.heig-vd.ch
+ * This version of the project is currently maintained by:
+ *   + Kevin Walsh (kwalsh@holycross.edu, http://mathcs.holycross.edu/~kwalsh)
+ */
+
+package com.cburch.logisim.file;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+
+import com.cburch.draw.model.CanvasModelEvent;
+import com.cburch.draw.model.CanvasModelListener;
+import com.cburch.hex.HexModel;
+import com.cburch.hex.HexModelListener;
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitEvent;
+import com.cburch.logisim.circuit.CircuitListener;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeEvent;
+import com.cburch.logisim.data.AttributeListener;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.tools.AddTool;
+
+// XmlCircuitCache holds the serialized <circuit> elements from the most recent
+// save of a LogisimFile, so that saving (and especially auto-backup) of a large
+// project only re-serializes the circuits that changed since. A fragment is
+// dropped whenever its circuit fires a CircuitEvent, when an attribute changes
+// on the circuit, its tool, or any of its components, when its appearance
+// changes, or when memory contents held by one of its components change.
+// Everything else a fragment depends on (library ids, circuit and vhdl names
+// used by subcircuit instances, and the directory used to relativize paths) is
+// summarized in a stamp, and a change of stamp drops every fragment. Non-volatile
+// simulation state and FPGA configurations are never cached.
+class XmlCircuitCache {
+
+  class Entry implements CircuitListener, AttributeListener,
+        CanvasModelListener, HexModelListener {
+    final Circuit circuit;
+    final AddTool tool;
+    private String head, tail; // null unless valid
+    private boolean defaultAppearance;
+    private boolean pending; // fragment being built, no changes seen yet
+    private ArrayList<AttributeSet> watchedAttrs = new ArrayList<>();
+    private ArrayList<HexModel> watchedContents = new ArrayList<>();
+
+    Entry(Circuit circuit, AddTool tool) {
+      this.circuit = circuit;
+      this.tool = tool;
+      circuit.addCircuitWeakListener(XmlCircuitCache.this, this);
+      circuit.getStaticAttributes().addAttributeWeakListener(XmlCircuitCache.this, this);
+      if (tool != null)
+        tool.getAttributeSet().addAttributeWeakListener(XmlCircuitCache.this, this);
+      circuit.getAppearance().addCanvasModelWeakListener(XmlCircuitCache.this, this);
+    }
+
+    // Returns {head, tail} if a valid fragment is cached, otherwise null.
+    synchronized String[] getFragment() {
+      if (head == null || defaultAppearance != circuit.getAppearance().isDefaultAppearance())
+        return null;
+      return new String[] { head, tail };
+    }
+
+    // Must be called before the model is read to build a new fragment, so that
+    // any change made while building is noticed by setFragment().
+    synchronized void beginFragment() {
+      unwatchComponents();
+      for (Component comp : circuit.getNonWires()) {
+        AttributeSet attrs = comp.getAttributeSet();
+        attrs.addAttributeWeakListener(XmlCircuitCache.this, this);
+        watchedAttrs.add(attrs);
+        for (Attribute<?> attr : attrs.getAttributes()) {
+          Object val = attrs.getValue(attr);
+          if (val instanceof HexModel) {
+            ((HexModel)val).addHexModelWeakListener(XmlCircuitCache.this, this);
+            watchedContents.add((HexModel)val);
+          }
+        }
+      }
+      head = tail = null;
+      defaultAppearance = circuit.getAppearance().isDefaultAppearance();
+      pending = true;
+    }
+
+    synchronized void setFragment(String head, String tail) {
+      if (!pending)
+        return;
+      this.head = head;
+      this.tail = tail;
+      pending = false;
+    }
+
+    synchronized void invalidate() {
+      head = tail = null;
+      pending = false;
+    }
+
+    private void unwatchComponents() {
+      for (AttributeSet attrs : watchedAttrs)
+        attrs.removeAttributeWeakListener(XmlCircuitCache.this, this);
+      for (HexModel contents : watchedContents)
+        contents.removeHexModelWeakListener(XmlCircuitCache.this, this);
+      watchedAttrs.clear();
+      watchedContents.clear();
+    }
+
+    synchronized void dispose() {
+      invalidate();
+      unwatchComponents();
+      circuit.removeCircuitWeakListener(XmlCircuitCache.this, this);
+      circuit.getStaticAttributes().removeAttributeWeakListener(XmlCircuitCache.this, this);
+      if (tool != null)
+        tool.getAttributeSet().removeAttributeWeakListener(XmlCircuitCache.this, this);
+      circuit.getAppearance().removeCanvasModelWeakListener(XmlCircuitCache.this, this);
+    }
+
+    public void circuitChanged(CircuitEvent event) {
+      if (event.getAction() != CircuitEvent.ACTION_DISPLAY_CHANGE)
+        invalidate();
+    }
+
+    public void attributeListChanged(AttributeEvent e) { invalidate(); }
+    public void attributeValueChanged(AttributeEvent e) { invalidate(); }
+    public void modelChanged(CanvasModelEvent event) { invalidate(); }
+    public void bytesChanged(HexModel source, long start, long numBytes, int[] oldValues) { invalidate(); }
+    public void metainfoChanged(HexModel source) { invalidate(); }
+  }
+
+  private HashMap<Circuit, Entry> entries = new HashMap<>();
+  private String stamp;
+
+  // Returns the entry for circuit, creating it if needed. All fragments are
+  // dropped if the stamp differs from the one used for the previous save.
+  synchronized Entry get(Circuit circuit, AddTool tool, String stamp) {
+    if (!stamp.equals(this.stamp)) {
+      for (Entry e : entries.values())
+        e.invalidate();
+      this.stamp = stamp;
+    }
+    Entry e = entries.get(circuit);
+    if (e != null && e.tool != tool) {
+      e.dispose();
+      e = null;
+    }
+    if (e == null) {
+      e = new Entry(circuit, tool);
+      entries.put(circuit, e);
+    }
+    return e;
+  }
+
+  // Forgets circuits that are no longer part of the file.
+  synchronized void retainAll(Collection<Circuit> circuits) {
+    for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+      Entry e = it.next();
+      if (!circuits.contains(e.circuit)) {
+        e.dispose();
+        it.remove();
+      }
+    }
+  }
+}
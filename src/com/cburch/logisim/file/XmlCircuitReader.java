@@ -44,6 +44,7 @@ import com.cburch.logisim.Main;
 import com.cburch.logisim.circuit.Circuit;
 import com.cburch.logisim.circuit.CircuitMutator;
 import com.cburch.logisim.circuit.CircuitTransaction;
+import com.cburch.logisim.circuit.SubcircuitFactory;
 import com.cburch.logisim.circuit.appear.AppearanceSvgReader;
 import com.cburch.logisim.circuit.Wire;
 import com.cburch.logisim.comp.Component;
@@ -51,6 +52,7 @@ import com.cburch.logisim.comp.ComponentFactory;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.data.Location;
+import com.cburch.logisim.std.hdl.VhdlEntity;
 import com.cburch.logisim.tools.AddTool;
 import com.cburch.logisim.tools.Library;
 import com.cburch.logisim.tools.Tool;
@@ -73,7 +75,66 @@ public class XmlCircuitReader extends CircuitTransaction {
    */
   static Component getComponent(Element elt, XmlReader.ReadContext reader)
       throws XmlReaderException {
+    ComponentData d = readComponent(elt, reader);
+    if (d == null)
+      return null;
+    d.build(reader);
+    if (d.error != null)
+      throw d.error;
+    return d.comp;
+  }
+
+  /**
+   * A component as described in the XML file, split into the part that must
+   * be read from the DOM on the loading thread (factory lookup and raw
+   * attribute values) and the part that can be built anywhere.
+   */
+  static class ComponentData {
+    final Element elt;
+    final ComponentFactory source;
+    final String name;
+    final String libName;
+    final String loc;
+    final HashMap<String, Object> attrValues;
+    final List<String> attrMessages;
+    Component comp;
+    XmlReaderException error;
+
+    ComponentData(Element elt, ComponentFactory source, String name, String libName) {
+      this.elt = elt;
+      this.source = source;
+      this.name = name;
+      this.libName = libName;
+      this.loc = elt.getAttribute("loc");
+      this.attrMessages = new ArrayList<>();
+      this.attrValues = XmlReader.ReadContext.readAttributeValues(elt, attrMessages);
+    }
+
+    // Subcircuits and vhdl entities refer to other parts of the file being
+    // loaded, so they are not built until those parts exist.
+    boolean isLinked() {
+      return source instanceof SubcircuitFactory || source instanceof VhdlEntity;
+    }
 
+    void build(XmlReader.ReadContext reader) {
+      try {
+        // Determine attributes
+        AttributeSet attrs = source.createAttributeSet();
+        reader.initAttributeSet(attrValues, attrMessages, attrs, source);
+
+        // Create component if location known
+        Location pt = parseComponentLoc(loc, source.getName()); // name
+        comp = source.createComponent(pt, attrs);
+        if (comp == null)
+          throw new XmlReaderException(String.format("Error instantiating component `%s' from library `%s'.", name, libName));
+      } catch (XmlReaderException e) {
+        error = e;
+      }
+    }
+  }
+
+  static ComponentData readComponent(Element elt, XmlReader.ReadContext reader)
+      throws XmlReaderException {
     // Someone (REDS-HEIG?) apparently has files containing this secret
     // value and only shows these components in special "tracker" versions
     // of logisim. 
@@ -113,17 +174,7 @@ public class XmlCircuitReader extends CircuitTransaction {
       }
     }
     ComponentFactory source = ((AddTool) tool).getFactory();
-
-    // Determine attributes
-    AttributeSet attrs = source.createAttributeSet();
-    reader.initAttributeSet(elt, attrs, source);
-
-    // Create component if location known
-    Location loc = parseComponentLoc(elt, source.getName()); // name
-    Component comp = source.createComponent(loc, attrs);
-    if (comp == null)
-      throw new XmlReaderException(String.format("Error instantiating component `%s' from library `%s'.", name, libName));
-    return comp;
+    return new ComponentData(elt, source, name, libName);
   }
 
   private XmlReader.ReadContext reader;
@@ -138,7 +189,11 @@ public class XmlCircuitReader extends CircuitTransaction {
 
   public static Location parseComponentLoc(Element elt, String name)
       throws XmlReaderException {
-    String str = elt.getAttribute("loc");
+    return parseComponentLoc(elt.getAttribute("loc"), name);
+  }
+
+  static Location parseComponentLoc(String str, String name)
+      throws XmlReaderException {
     if (str == null || str.equals(""))
       throw new XmlReaderException(S.fmt("compLocMissingError", name));
     try {
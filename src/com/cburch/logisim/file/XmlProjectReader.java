@@ -191,16 +191,25 @@ public class XmlProjectReader extends XmlReader {
           }
           break;
         case "circuit":
-          CircuitData circData = parseCircuit(subElt);
-          if (circData != null) {
-            file.addCircuit(circData.circuit);
-            circuitsData.add(circData);
+          Circuit circ = newCircuit(subElt);
+          if (circ != null) {
+            file.addCircuit(circ);
+            circuitsData.add(new CircuitData(subElt, circ));
           }
         default:
           // do nothing
         }
       }
 
+      // Component descriptions are read from the DOM on this thread, then the
+      // components of separate circuits are constructed in parallel. Those
+      // that refer to other circuits or vhdl entities are linked afterwards.
+      for (CircuitData cd : circuitsData)
+        cd.readComponents(this);
+      circuitsData.parallelStream().forEach(cd -> cd.buildComponents(this));
+      for (CircuitData cd : circuitsData)
+        cd.finishLoading(this);
+
       // third, process the other child elements
       for (Element sub_elt : XmlIterator.forChildElements(elt)) {
         String name = sub_elt.getTagName();
@@ -306,7 +315,11 @@ public class XmlProjectReader extends XmlReader {
 
   LogisimFile.FileWithSimulations parseProjectWithSimulations(InputStream is)
       throws IOException, SAXException, LoadCanceledByUser {
-    Document doc = loadXmlFrom(is);
+    return parseProjectWithSimulations(loadXmlFrom(is));
+  }
+
+  LogisimFile.FileWithSimulations parseProjectWithSimulations(Document doc)
+      throws IOException, SAXException, LoadCanceledByUser {
     Element elt = doc.getDocumentElement();
 
     considerRepairs(doc, elt);
@@ -439,8 +452,10 @@ public class XmlProjectReader extends XmlReader {
       }
     }
 
-    // As of version 4.0.0-HC, the #TCL library is gone.
-    repairByEradicatingLibrary(doc, root, "TCL", "#TCL");
+    if (version.compareTo(LogisimVersion.get(4, 0, 0)) < 0) {
+      // As of version 4.0.0-HC, the #TCL library is gone.
+      repairByEradicatingLibrary(doc, root, "TCL", "#TCL");
+    }
 
     // Before version 4.0.0-HC, Pin components had attributes:
     //   output=true|false
@@ -450,7 +465,7 @@ public class XmlProjectReader extends XmlReader {
     //   type=input|output
     //   behavior=simple|tristate|pullup|pulldown
     String wiringLibName = findLibNameByDesc(root, "#Wiring");
-    if (wiringLibName != null) {
+    if (wiringLibName != null && version.compareTo(LogisimVersion.get(4, 0, 0)) < 0) {
       for (Element compElt : XmlIterator.forDescendantElements(root, "comp"))
         convertObsoletePinAttributes(doc, compElt, wiringLibName);
       for (Element toolElt : XmlIterator.forDescendantElements(root, "tool"))
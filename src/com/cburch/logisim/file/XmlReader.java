@@ -44,6 +44,8 @@ import javax.xml.parsers.ParserConfigurationException;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.Text;
 import org.xml.sax.SAXException;
 
 import com.bfh.logisim.fpga.PinBindings;
@@ -59,6 +61,7 @@ import com.cburch.logisim.data.Location;
 import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.instance.StdAttr;
 import com.cburch.logisim.std.hdl.VhdlContent;
+import com.cburch.logisim.std.memory.MemContents;
 import com.cburch.logisim.std.wiring.Pin;
 import com.cburch.logisim.tools.Library;
 import com.cburch.logisim.tools.Tool;
@@ -73,26 +76,66 @@ public class XmlReader {
     List<AbstractCanvasObject> appearance = new ArrayList<>();
     List<HashMap<String, Element>> simulations = new ArrayList<>();
 
-    public CircuitData(ReadContext ctx, Element elt, Circuit circ) {
+    List<XmlCircuitReader.ComponentData> pendingComponents;
+
+    CircuitData(Element elt, Circuit circ) {
       circuitElement = elt;
       circuit = circ;
-      // load known components
-      for (Element e : XmlIterator.forChildElements(elt, "comp")) try {
-          Component comp = XmlCircuitReader.getComponent(e, ctx);
-          if (comp != null)
-            knownComponents.put(e, comp);
-      } catch (XmlReaderException ex) {
-        ctx.addErrors(ex, "parsing component from xml");
+    }
+
+    public CircuitData(ReadContext ctx, Element elt, Circuit circ) {
+      this(elt, circ);
+      readComponents(ctx);
+      buildComponents(ctx);
+      finishLoading(ctx);
+    }
+
+    // Gathers factories and attribute values for the known components. This
+    // walks the DOM and looks up libraries, so it must run on the loading
+    // thread.
+    void readComponents(ReadContext ctx) {
+      pendingComponents = new ArrayList<>();
+      for (Element e : XmlIterator.forChildElements(circuitElement, "comp")) {
+        try {
+          XmlCircuitReader.ComponentData d = XmlCircuitReader.readComponent(e, ctx);
+          if (d != null)
+            pendingComponents.add(d);
+        } catch (XmlReaderException ex) {
+          ctx.addErrors(ex, "parsing component from xml");
+        }
       }
+    }
+
+    // Constructs the gathered components, except those that refer to other
+    // circuits or vhdl entities in the file. Touches nothing shared with
+    // other circuits, so separate circuits may be built in parallel.
+    void buildComponents(ReadContext ctx) {
+      for (XmlCircuitReader.ComponentData d : pendingComponents)
+        if (!d.isLinked())
+          d.build(ctx);
+    }
+
+    // Links the remaining components, then loads everything that depends on
+    // the known components. Must run on the loading thread.
+    void finishLoading(ReadContext ctx) {
+      for (XmlCircuitReader.ComponentData d : pendingComponents) {
+        if (d.isLinked())
+          d.build(ctx);
+        if (d.error != null)
+          ctx.addErrors(d.error, "parsing component from xml");
+        else
+          knownComponents.put(d.elt, d.comp);
+      }
+      pendingComponents = null;
       // load appearance
-      for (Element e : XmlIterator.forChildElements(elt, "appear"))
-        loadAppearance(ctx, e, circ.getName() + ".appear");
+      for (Element e : XmlIterator.forChildElements(circuitElement, "appear"))
+        loadAppearance(ctx, e, circuit.getName() + ".appear");
       // load fpga configs
-      for (Element e : XmlIterator.forChildElements(elt, "fpgaconfig"))
-        loadFPGAConfig(ctx, e, circ.getName() + ".fpgaconfig");
+      for (Element e : XmlIterator.forChildElements(circuitElement, "fpgaconfig"))
+        loadFPGAConfig(ctx, e, circuit.getName() + ".fpgaconfig");
       // load non-volatile simulation state
-      for (Element e : XmlIterator.forChildElements(elt, "simulation"))
-        loadSimulation(ctx, e, circ.getName() + ".simulation");
+      for (Element e : XmlIterator.forChildElements(circuitElement, "simulation"))
+        loadSimulation(ctx, e, circuit.getName() + ".simulation");
     }
 
     private void loadAppearance(ReadContext ctx, Element elt, String context) {
@@ -179,13 +222,19 @@ public class XmlReader {
     abstract Library findLibrary(String libName) throws XmlReaderException;
 
     CircuitData parseCircuit(Element elt) {
+      Circuit circ = newCircuit(elt);
+      if (circ == null)
+        return null;
+      return new CircuitData(this, elt, circ);
+    }
+
+    Circuit newCircuit(Element elt) {
       String name = elt.getAttribute("name");
       if (name == null || name.equals("")) {
         addError(S.get("circNameMissingError"), "C??");
         return null;
       }
-      Circuit circ = new Circuit(name, file);
-      return new CircuitData(this, elt, circ);
+      return new Circuit(name, file);
     }
 
     VhdlContent parseVhdl(Element elt) {
@@ -234,28 +283,43 @@ public class XmlReader {
 
     void initAttributeSet(Element parentElt, AttributeSet attrs,
         AttributeDefaultProvider defaults) throws XmlReaderException {
-      ArrayList<String> messages = null;
+      ArrayList<String> messages = new ArrayList<>();
+      HashMap<String, Object> attrsDefined = readAttributeValues(parentElt, messages);
+      initAttributeSet(attrsDefined, messages, attrs, defaults);
+    }
 
-      HashMap<String, String> attrsDefined = new HashMap<>();
+    // Values are strings, except memory images that came pre-parsed from a
+    // binary project file, which are MemContents.
+    static HashMap<String, Object> readAttributeValues(Element parentElt,
+        List<String> messages) {
+      HashMap<String, Object> attrsDefined = new HashMap<>();
       for (Element attrElt : XmlIterator.forChildElements(parentElt, "a")) {
         if (!attrElt.hasAttribute("name")) {
-          if (messages == null)
-            messages = new ArrayList<String>();
           messages.add(S.get("attrNameMissingError"));
         } else {
           String attrName = attrElt.getAttribute("name");
-          String attrVal;
+          Object attrVal;
           if (attrElt.hasAttribute("val"))
             attrVal = attrElt.getAttribute("val");
-          else
+          else if ((attrVal = attrElt.getUserData(BinaryProjectFormat.MEMORY_KEY)) == null)
             attrVal = attrElt.getTextContent();
           attrsDefined.put(attrName, attrVal);
         }
       }
+      return attrsDefined;
+    }
 
+    // Does not touch the DOM or the context's error list, so it is safe to
+    // call from several threads at once for distinct attribute sets.
+    void initAttributeSet(Map<String, Object> attrsDefined, List<String> readMessages,
+        AttributeSet attrs, AttributeDefaultProvider defaults) throws XmlReaderException {
       if (attrs == null)
         return;
 
+      ArrayList<String> messages = null;
+      if (!readMessages.isEmpty())
+        messages = new ArrayList<String>(readMessages);
+
       boolean setDefaults = defaults != null
           && !defaults.isAllDefaultValues(attrs, sourceVersion);
       // We need to process this in order, and we have to refetch the
@@ -270,7 +334,14 @@ public class XmlReader {
         if (!attrs.isToSave(attr))
           continue; // ignore attributes that should never have been saved (like circuit name)
         String attrName = attr.getName();
-        String attrVal = attrsDefined.get(attrName);
+        Object attrVal = attrsDefined.get(attrName);
+        if (attrVal instanceof MemContents) {
+          if (attrs.getValue(attr) instanceof MemContents) {
+            attrs.setAttr(attr, attrVal);
+            continue;
+          }
+          attrVal = BinaryProjectFormat.memoryText((MemContents)attrVal);
+        }
         if (attrVal == null) {
           if (setDefaults) {
             Object val = defaults.getDefaultAttributeValue(attr, sourceVersion);
@@ -279,7 +350,7 @@ public class XmlReader {
           }
         } else {
           try {
-            Object val = attr.parseFromFilesystem(new File(srcDirPath), attrVal);
+            Object val = attr.parseFromFilesystem(new File(srcDirPath), (String)attrVal);
             attrs.setAttr(attr, val);
           } catch (NumberFormatException e) {
             if (messages == null)
@@ -295,14 +366,72 @@ public class XmlReader {
 
   }
 
+  // The .circ format is element-structured: apart from leaf text such as
+  // memory contents, vhdl source, and labels, the only character data is
+  // indentation. Once parsed, the tree is pruned down to the elements and the
+  // text that carries content, so that later child walks see fewer nodes.
+  // (Streaming the file through StAX into the same tree measured no faster
+  // than this, since the elements are built either way.)
   static Document loadXmlFrom(InputStream is) throws SAXException, IOException {
     DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
     factory.setNamespaceAware(true);
+    factory.setIgnoringComments(true);
+    factory.setCoalescing(true);
+    Document doc;
     try {
-      return factory.newDocumentBuilder().parse(is);
+      factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+      factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+      factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+      doc = factory.newDocumentBuilder().parse(is);
     } catch (ParserConfigurationException e) {
       throw new IOException("XML parse configuration error: " + e.getMessage(), e);
     }
+    prune(doc);
+    return doc;
+  }
+
+  // Removes processing instructions and merges the text around them (and
+  // around the comments the parser skipped). Blank text is then kept only
+  // where it is the entire content of a leaf.
+  private static void prune(Node parent) {
+    Text run = null;
+    Node next;
+    for (Node n = parent.getFirstChild(); n != null; n = next) {
+      next = n.getNextSibling();
+      switch (n.getNodeType()) {
+      case Node.ELEMENT_NODE:
+        dropIfBlank(parent, run);
+        run = null;
+        prune(n);
+        break;
+      case Node.TEXT_NODE:
+        if (run == null) {
+          run = (Text)n;
+        } else {
+          run.appendData(n.getNodeValue());
+          parent.removeChild(n);
+        }
+        break;
+      case Node.PROCESSING_INSTRUCTION_NODE:
+        parent.removeChild(n);
+        break;
+      default:
+      }
+    }
+    if (run != null && (run.getPreviousSibling() != null || run.getNextSibling() != null))
+      dropIfBlank(parent, run);
+  }
+
+  private static void dropIfBlank(Node parent, Text text) {
+    if (text != null && isBlank(text.getData()))
+      parent.removeChild(text);
+  }
+
+  private static boolean isBlank(CharSequence s) {
+    for (int i = 0, n = s.length(); i < n; i++)
+      if (!Character.isWhitespace(s.charAt(i)))
+        return false;
+    return true;
   }
 
 }
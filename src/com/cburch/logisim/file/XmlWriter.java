@@ -31,9 +31,15 @@
 package com.cburch.logisim.file;
 import static com.cburch.logisim.file.Strings.S;
 
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
 import java.io.OutputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -50,8 +56,6 @@ import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Result;
 import javax.xml.transform.Source;
 import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerConfigurationException;
-import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
@@ -62,6 +66,7 @@ import org.w3c.dom.NodeList;
 import org.w3c.dom.Node;
 import org.w3c.dom.Attr;
 import org.w3c.dom.NamedNodeMap;
+import org.xml.sax.SAXException;
 
 import com.bfh.logisim.fpga.PinBindings;
 import com.cburch.draw.model.AbstractCanvasObject;
@@ -190,16 +195,131 @@ public class XmlWriter {
     } catch (Exception e) { } // non-fatal
   }
 
+  /* For saving projects, the document is streamed out one top-level element at
+   * a time rather than built whole and passed through a Transformer. The
+   * layout below reproduces what the indenting Transformer produced: two
+   * spaces per level, one element per line, text-only elements kept inline,
+   * and text mixed with elements placed on its own line.
+   */
+
+  static final String XML_DECL = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>";
+
+  static void writeElement(StringBuilder out, Element elt, int depth) {
+    indent(out, depth);
+    String tag = elt.getTagName();
+    out.append('<').append(tag);
+    NamedNodeMap attrs = elt.getAttributes();
+    for (int i = 0, n = attrs.getLength(); i < n; i++) {
+      Attr a = (Attr)attrs.item(i);
+      out.append(' ').append(a.getName()).append("=\"");
+      escape(out, a.getValue(), true);
+      out.append('"');
+    }
+    Node first = elt.getFirstChild();
+    if (first == null) {
+      out.append("/>");
+      return;
+    }
+    boolean mixed = false;
+    for (Node c = first; c != null; c = c.getNextSibling())
+      mixed |= c.getNodeType() == Node.ELEMENT_NODE;
+    out.append('>');
+    if (!mixed) {
+      for (Node c = first; c != null; c = c.getNextSibling())
+        escape(out, c.getNodeValue(), false);
+    } else {
+      for (Node c = first; c != null; c = c.getNextSibling()) {
+        if (c.getNodeType() == Node.ELEMENT_NODE) {
+          out.append('\n');
+          writeElement(out, (Element)c, depth + 1);
+        } else if (c.getNodeType() == Node.TEXT_NODE) {
+          String text = c.getNodeValue();
+          int start = 0;
+          while (start < text.length() && Character.isWhitespace(text.charAt(start)))
+            start++;
+          if (start == text.length())
+            continue;
+          out.append('\n');
+          indent(out, depth + 1);
+          escape(out, text.substring(start), false);
+        }
+      }
+      out.append('\n');
+      indent(out, depth);
+    }
+    out.append("</").append(tag).append('>');
+  }
+
+  private static void indent(StringBuilder out, int depth) {
+    for (int i = 0; i < depth; i++)
+      out.append("  ");
+  }
+
+  private static void escape(StringBuilder out, String s, boolean inAttr) {
+    for (int i = 0, n = s.length(); i < n; i++) {
+      char c = s.charAt(i);
+      switch (c) {
+      case '&': out.append("&amp;"); break;
+      case '<': out.append("&lt;"); break;
+      case '>': out.append("&gt;"); break;
+      case '\r': out.append("&#13;"); break;
+      case '"':
+        if (inAttr) out.append("&quot;");
+        else out.append(c);
+        break;
+      case '\n':
+        if (inAttr) out.append("&#10;");
+        else out.append(c);
+        break;
+      case '\t':
+        if (inAttr) out.append("&#9;");
+        else out.append(c);
+        break;
+      default:
+        out.append(c);
+      }
+    }
+  }
+
+  // Sorts and serializes a top-level element, then writes it out.
+  private void emit(Writer out, Element elt) throws IOException {
+    if (elt == null)
+      return;
+    elt.normalize();
+    sort(elt);
+    StringBuilder buf = new StringBuilder();
+    buf.append('\n');
+    writeElement(buf, elt, 1);
+    out.append(buf);
+  }
+
   static void write(LogisimFile file, Project proj, OutputStream out, File destFile)
-      throws ParserConfigurationException, TransformerConfigurationException, TransformerException {
+      throws ParserConfigurationException, IOException {
 
     DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
     DocumentBuilder docBuilder = docFactory.newDocumentBuilder();
     Document doc = docBuilder.newDocument();
 
     XmlWriter context = new XmlWriter(file, proj, doc, destFile);
-    context.fromLogisimFile();
-    xform(doc, out);
+    if (destFile != null
+        && destFile.getName().endsWith(LogisimFile.LOGISIM_EXTENSION_BINARY)) {
+      // The binary form is encoded from the tree that reading the XML gives,
+      // so that the two load identically.
+      ByteArrayOutputStream xml = new ByteArrayOutputStream();
+      Writer w = new BufferedWriter(new OutputStreamWriter(xml, StandardCharsets.UTF_8));
+      context.writeLogisimFile(w);
+      w.flush();
+      try {
+        BinaryProjectFormat.encode(
+            XmlReader.loadXmlFrom(new ByteArrayInputStream(xml.toByteArray())), out);
+      } catch (SAXException e) {
+        throw new IOException(e.getMessage(), e);
+      }
+      return;
+    }
+    Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    context.writeLogisimFile(w);
+    w.flush();
   }
 
   public static String encodeSelection(LogisimFile file, Project proj, Object sel) {
@@ -228,6 +348,8 @@ public class XmlWriter {
   private File destFile; // file being written, used to relativize library paths
   private String destDir; // dir path of circ file begin written, used to relativize paths of components
   private HashMap<Library, String> libIDs = new HashMap<>();
+  private XmlCircuitCache cache; // null except when saving a project
+  private String stamp; // summary of everything else cached fragments depend on
 
   private XmlWriter(LogisimFile file, Project proj, Document doc, File destFile) {
     this.file = file;
@@ -298,11 +420,45 @@ public class XmlWriter {
   }
 
   Element fromCircuit(Circuit circuit, AddTool tool) {
+    Element ret = fromCircuitContents(circuit, tool);
+    addCircuitState(ret, circuit);
+    return ret;
+  }
+
+  // The parts of a circuit element that XmlCircuitCache knows how to track:
+  // attributes, appearance, wires, and components.
+  Element fromCircuitContents(Circuit circuit, AddTool tool) {
     Element ret = doc.createElement("circuit");
     ret.setAttribute("name", circuit.getName());
     addAttributeSetContent(ret, circuit.getStaticAttributes(), circuit);
     if (tool != null)
       addAttributeSetContent(ret, tool.getAttributeSet(), tool);
+    if (!circuit.getAppearance().isDefaultAppearance()) {
+      Element appear = doc.createElement("appear");
+      for (Object o : circuit.getAppearance().getObjectsFromBottom()) {
+        if (o instanceof AbstractCanvasObject) {
+          AbstractCanvasObject shape = (AbstractCanvasObject)o;
+          Element elt = shape.toDynamicSvgElement(doc);
+          if (elt != null)
+            appear.appendChild(elt);
+        }
+      }
+      ret.appendChild(appear);
+    }
+    for (Wire w : circuit.getWires()) {
+      ret.appendChild(fromWire(w));
+    }
+    for (Component comp : circuit.getNonWires()) {
+      Element elt = fromComponent(comp);
+      if (elt != null)
+        ret.appendChild(elt);
+    }
+    return ret;
+  }
+
+  // The parts of a circuit element that are never cached: FPGA configurations
+  // and non-volatile simulation state.
+  void addCircuitState(Element ret, Circuit circuit) {
     for (PinBindings.Config fpgaconfig : circuit.getFPGAConfigs()) {
       ret.appendChild(fpgaconfig.toXml(doc));
     }
@@ -324,27 +480,50 @@ public class XmlWriter {
       });
       ret.appendChild(sim);
     }
-    if (!circuit.getAppearance().isDefaultAppearance()) {
-      Element appear = doc.createElement("appear");
-      for (Object o : circuit.getAppearance().getObjectsFromBottom()) {
-        if (o instanceof AbstractCanvasObject) {
-          AbstractCanvasObject shape = (AbstractCanvasObject)o;
-          Element elt = shape.toDynamicSvgElement(doc);
-          if (elt != null)
-            appear.appendChild(elt);
-        }
-      }
-      ret.appendChild(appear);
+  }
+
+  // Children of a sorted circuit element, serialized and split into those
+  // that sort before the uncached FPGA configurations and simulation state,
+  // and the wires that sort after them.
+  private static String[] serializeCircuitChildren(Element circ) {
+    StringBuilder head = new StringBuilder();
+    StringBuilder tail = new StringBuilder();
+    for (Element sub : XmlIterator.forChildElements(circ)) {
+      StringBuilder buf = sub.getTagName().equals("wire") ? tail : head;
+      buf.append('\n');
+      writeElement(buf, sub, 2);
     }
-    for (Wire w : circuit.getWires()) {
-      ret.appendChild(fromWire(w));
+    return new String[] { head.toString(), tail.toString() };
+  }
+
+  private void writeCircuit(Writer out, Circuit circuit, AddTool tool) throws IOException {
+    XmlCircuitCache.Entry cached = cache == null ? null : cache.get(circuit, tool, stamp);
+    String[] parts = cached == null ? null : cached.getFragment();
+    if (parts == null) {
+      if (cached != null)
+        cached.beginFragment();
+      Element elt = fromCircuitContents(circuit, tool);
+      sort(elt);
+      parts = serializeCircuitChildren(elt);
+      if (cached != null)
+        cached.setFragment(parts[0], parts[1]);
     }
-    for (Component comp : circuit.getNonWires()) {
-      Element elt = fromComponent(comp);
-      if (elt != null)
-        ret.appendChild(elt);
+    Element state = doc.createElement("circuit");
+    addCircuitState(state, circuit);
+    sort(state);
+    String mid = serializeCircuitChildren(state)[0];
+
+    StringBuilder buf = new StringBuilder();
+    buf.append("\n  <circuit name=\"");
+    escape(buf, circuit.getName(), true);
+    buf.append('"');
+    if (parts[0].isEmpty() && mid.isEmpty() && parts[1].isEmpty()) {
+      buf.append("/>");
+    } else {
+      buf.append('>').append(parts[0]).append(mid).append(parts[1]);
+      buf.append("\n  </circuit>");
     }
-    return ret;
+    out.append(buf);
   }
 
   Element fromVhdl(VhdlContent vhdl) {
@@ -405,6 +584,8 @@ public class XmlWriter {
     libIDs.put(lib, lib_id);
     ret.setAttribute("name", lib_id);
     ret.setAttribute("desc", desc);
+    if (lib instanceof LoadedLibrary && !((LoadedLibrary)lib).isLoaded())
+      return ret; // tools are all still at their defaults
     for (Tool t : lib.getTools()) {
       AttributeSet attrs = t.getAttributeSet();
       if (attrs != null) {
@@ -446,38 +627,47 @@ public class XmlWriter {
   //   - comp*
   //   - wire*
   // - vhdl*
-  Element fromLogisimFile() {
-    Element ret = doc.createElement("project");
-    doc.appendChild(ret);
-    ret.appendChild(doc
-        .createTextNode("\nThis file is intended to be "
-          + "loaded by Logisim-evolution (https://github.com/kevinawalsh/logisim-evolution).\n"));
-    ret.setAttribute("version", "1.0");
-    ret.setAttribute("source", Main.VERSION_NAME);
-
-    for (Library lib : file.getLibraries()) {
-      Element elt = fromLibrary(lib);
-      if (elt != null)
-        ret.appendChild(elt);
-    }
+  void writeLogisimFile(Writer out) throws IOException {
+    out.write(XML_DECL);
+    StringBuilder buf = new StringBuilder();
+    buf.append("\n<project source=\"");
+    escape(buf, Main.VERSION_NAME, true);
+    buf.append("\" version=\"1.0\">");
+    buf.append("\n  This file is intended to be "
+          + "loaded by Logisim-evolution (https://github.com/kevinawalsh/logisim-evolution).\n");
+    out.append(buf);
+
+    for (Library lib : file.getLibraries())
+      emit(out, fromLibrary(lib));
 
     if (file.getMainCircuit() != null) {
       Element mainElt = doc.createElement("main");
       mainElt.setAttribute("name", file.getMainCircuit().getName());
-      ret.appendChild(mainElt);
+      emit(out, mainElt);
     }
 
-    ret.appendChild(fromOptions());
-    ret.appendChild(fromMouseMappings());
-    ret.appendChild(fromToolbarData());
+    emit(out, fromOptions());
+    emit(out, fromMouseMappings());
+    emit(out, fromToolbarData());
+
+    cache = file.xmlCache;
+    StringBuilder st = new StringBuilder(String.valueOf(destDir));
+    for (Library lib : file.getLibraries())
+      st.append('\n').append(System.identityHashCode(lib)).append('=').append(libIDs.get(lib));
+    for (Circuit circ : file.getCircuits())
+      st.append('\n').append(circ.getName());
+    for (VhdlContent vhdl : file.getVhdlContents())
+      st.append('\n').append(vhdl.getName());
+    stamp = st.toString();
 
     for (Circuit circ : file.getCircuits()) {
-      ret.appendChild(fromCircuit(circ, file.findToolFor(circ)));
+      writeCircuit(out, circ, file.findToolFor(circ));
     }
+    cache.retainAll(file.getCircuits());
     for (VhdlContent vhdl : file.getVhdlContents()) {
-      ret.appendChild(fromVhdl(vhdl));
+      emit(out, fromVhdl(vhdl));
     }
-    return ret;
+    out.write("\n</project>\n");
   }
 
   private void scanSelection(Collection<Component> sel,
@@ -643,10 +833,6 @@ public class XmlWriter {
   }
 
   boolean libraryContains(Library lib, Tool query) {
-    for (Tool tool : lib.getTools()) {
-      if (tool.sharesSource(query))
-        return true;
-    }
-    return false;
+    return lib.containsFromSource(query);
   }
 }
@@ -86,7 +86,9 @@ public class DynamicConditionDialog extends JDialog implements JInputDialog<Dyna
 
   DynamicCondition result;
 
-  public static DynamicConditionDialog makeDialog(Window parent, Circuit circuit, DynamicCondition dyn) {
+  // Returns the supertype, so that loading the attribute in headless runs
+  // doesn't load the dialog classes.
+  public static java.awt.Component makeDialog(Window parent, Circuit circuit, DynamicCondition dyn) {
     DefaultMutableTreeNode root = enumerate(circuit, null);
     if (root != null)
       return new DynamicConditionDialog(parent, circuit, root, dyn);
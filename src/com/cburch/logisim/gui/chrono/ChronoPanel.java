@@ -39,7 +39,9 @@ import java.awt.Graphics2D;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
+import java.awt.Toolkit;
 import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseWheelEvent;
@@ -52,10 +54,12 @@ import javax.swing.ActionMap;
 import javax.swing.Box;
 import javax.swing.InputMap;
 import javax.swing.JButton;
+import javax.swing.JComboBox;
 import javax.swing.JPanel;
 import javax.swing.JScrollBar;
 import javax.swing.JScrollPane;
 import javax.swing.JSplitPane;
+import javax.swing.JTextField;
 import javax.swing.JViewport;
 import javax.swing.KeyStroke;
 import javax.swing.ScrollPaneConstants;
@@ -65,11 +69,14 @@ import javax.swing.event.ListSelectionListener;
 
 import com.cburch.draw.toolbar.Toolbar;
 import com.cburch.logisim.circuit.Simulator;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Value;
 import com.cburch.logisim.gui.log.LogFrame;
 import com.cburch.logisim.gui.log.LogPanel;
 import com.cburch.logisim.gui.log.Model;
 import com.cburch.logisim.gui.log.Signal;
 import com.cburch.logisim.gui.log.SignalInfo;
+import com.cburch.logisim.gui.log.SignalSearch;
 import com.cburch.logisim.gui.main.SimulationToolbarModel;
 import com.cburch.logisim.gui.menu.EditHandler;
 import com.cburch.logisim.gui.menu.LogisimMenuBar;
@@ -93,6 +100,10 @@ public class ChronoPanel extends LogPanel implements Model.Listener {
   private JScrollPane leftScroll, rightScroll;
   private JSplitPane splitPane;
 
+  // search
+  private JComboBox<String> searchKind;
+  private JTextField searchValue;
+
   public ChronoPanel(LogFrame logFrame) {
     super(logFrame);
 
@@ -143,6 +154,13 @@ public class ChronoPanel extends LogPanel implements Model.Listener {
     gc.gridx = 2;
     gb.setConstraints(filler, gc);
     toolpanel.add(filler);
+
+    JPanel searchPanel = makeSearchPanel();
+    gc.fill = GridBagConstraints.NONE;
+    gc.weightx = 0.0;
+    gc.gridx = 3;
+    gb.setConstraints(searchPanel, gc);
+    toolpanel.add(searchPanel);
     add(toolpanel, BorderLayout.NORTH);
 
     // panels
@@ -163,6 +181,79 @@ public class ChronoPanel extends LogPanel implements Model.Listener {
 
   }
 
+  private JPanel makeSearchPanel() {
+    searchKind = new JComboBox<>(new String[] {
+      S.get("SearchValue"), S.get("SearchRising"),
+      S.get("SearchFalling"), S.get("SearchChange") });
+    searchKind.setFont(searchKind.getFont().deriveFont(10.0f));
+    searchValue = new JTextField(8);
+    searchValue.setToolTipText(S.get("SearchValueTip"));
+    searchKind.addActionListener(new ActionListener() {
+      public void actionPerformed(ActionEvent e) {
+        searchValue.setEnabled(searchKind.getSelectedIndex() == SignalSearch.VALUE);
+      }
+    });
+    searchValue.addActionListener(new ActionListener() {
+      public void actionPerformed(ActionEvent e) {
+        search(true);
+      }
+    });
+    JButton prev = new JButton("<");
+    prev.setToolTipText(S.get("SearchPrevious"));
+    prev.addActionListener(new ActionListener() {
+      public void actionPerformed(ActionEvent e) {
+        search(false);
+      }
+    });
+    JButton next = new JButton(">");
+    next.setToolTipText(S.get("SearchNext"));
+    next.addActionListener(new ActionListener() {
+      public void actionPerformed(ActionEvent e) {
+        search(true);
+      }
+    });
+    JPanel panel = new JPanel();
+    panel.add(searchKind);
+    panel.add(searchValue);
+    panel.add(prev);
+    panel.add(next);
+    return panel;
+  }
+
+  // Search the first selected signal (or the spotlight signal, if none are
+  // selected) for the next or previous match, and move the cursor there.
+  private void search(boolean forward) {
+    Signal.List sel = leftPanel.getSelectedValuesList();
+    Signal s = sel.size() > 0 ? sel.get(0) : model.getSpotlight();
+    if (s == null) {
+      Toolkit.getDefaultToolkit().beep();
+      return;
+    }
+    int kind = searchKind.getSelectedIndex();
+    Value target = null;
+    if (kind == SignalSearch.VALUE) {
+      try {
+        target = Value.fromLogString(BitWidth.create(s.getWidth()),
+            searchValue.getText().trim());
+      } catch (Exception e) {
+        Toolkit.getDefaultToolkit().beep();
+        return;
+      }
+      if (!target.isFullyDefined()) {
+        Toolkit.getDefaultToolkit().beep();
+        return;
+      }
+    }
+    SignalSearch search = new SignalSearch(kind, target);
+    long t = rightPanel.getCurrentTime();
+    long found = forward ? search.findNext(s, t) : search.findPrevious(s, t);
+    if (found < 0) {
+      Toolkit.getDefaultToolkit().beep();
+      return;
+    }
+    setSignalCursorTime(found);
+  }
+
   private void resplit() {
     // todo: why replace panels here?
     leftPanel = new LeftPanel(this);
@@ -282,6 +373,11 @@ public class ChronoPanel extends LogPanel implements Model.Listener {
     leftPanel.updateSignalValues();
   }
 
+  public void setSignalCursorTime(long t) {
+		rightPanel.setSignalCursorTime(t);
+    leftPanel.updateSignalValues();
+  }
+
 	@Override
 	public void modeChanged(Model.Event event) {
     // nothing to do, signals will be reset anyway
@@ -391,7 +487,7 @@ public class ChronoPanel extends LogPanel implements Model.Listener {
       setEnabled(LogisimMenuBar.DELETE, sel);
       setEnabled(LogisimMenuBar.DUPLICATE, false);
       setEnabled(LogisimMenuBar.SELECT_ALL, !empty);
-      setEnabled(LogisimMenuBar.SEARCH, false);
+      setEnabled(LogisimMenuBar.SEARCH, !empty);
       setEnabled(LogisimMenuBar.RAISE, sel);
       setEnabled(LogisimMenuBar.LOWER, sel);
       setEnabled(LogisimMenuBar.RAISE_TOP, sel);
@@ -403,6 +499,10 @@ public class ChronoPanel extends LogPanel implements Model.Listener {
     @Override
     public void actionPerformed(ActionEvent e) {
       Object action = e.getSource();
+      if (action == LogisimMenuBar.SEARCH) {
+        searchValue.requestFocusInWindow();
+        return;
+      }
       leftPanel.getActionMap().get(action).actionPerformed(e);
     }
 
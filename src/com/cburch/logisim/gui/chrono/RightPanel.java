@@ -268,6 +268,23 @@ public class RightPanel extends JPanel {
     repaint(); // todo: optimize: partial repaint
 	}
 
+  public void setSignalCursorTime(long t) {
+    long t0 = model.getStartTime();
+    if (t >= model.getEndTime()) {
+      setSignalCursorX(Integer.MAX_VALUE);
+      return;
+    }
+    curT = Math.max(t0, t);
+    curX = (int)Math.ceil((curT - t0) * tickWidth / model.getTimeScale());
+    header.repaint();
+    repaint();
+    Rectangle r = getVisibleRect();
+    if (curX < r.x + CURSOR_GAP || curX > r.x + r.width - CURSOR_GAP) {
+      r.x = Math.max(0, curX - r.width / 2);
+      scrollRectToVisible(r);
+    }
+  }
+
   public int getSignalCursorX() {
     long timeScale = model.getTimeScale();
     return curX == Integer.MAX_VALUE
@@ -497,10 +514,30 @@ public class RightPanel extends JPanel {
       double z = tickWidth / model.getTimeScale();
       boolean prevHi = false, prevLo = false;
       Color prevFill = null;
+      Signal.Range dense = new Signal.Range();
       while (cur.value != null) {
-        String v = cur.getFormattedValue();
         int x0 = (int)(z * (cur.time - t0));
         int x1 = (int)(z * (cur.time + cur.duration - t0));
+
+        if (x1 - x0 < 2) {
+          // Too narrow to draw individually, so summarize every value that
+          // falls within this pixel column and draw them as a single bar.
+          long t = Math.max(cur.time + 1, t0 + (long)Math.ceil((x0 + 1) / z));
+          dense.clear();
+          boolean more = cur.skipTo(t, dense);
+          Color lineColor = dense.error ? colors[4]
+              : dense.unknown ? colors[6] : colors[2];
+          g.setColor(lineColor);
+          g.drawLine(x0, HIGH, x0, LOW);
+          prevHi = prevLo = true;
+          prevFill = dense.error ? colors[3]
+              : dense.unknown ? colors[5] : colors[1];
+          if (!more)
+            break;
+          continue;
+        }
+
+        String v = cur.getFormattedValue();
     
         boolean hi = true, lo = true;
         Color lineColor, fillColor;
@@ -165,11 +165,10 @@ import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.HashMap;
-import java.util.zip.Deflater;
-import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
 
@@ -192,7 +191,6 @@ import java.awt.Component;
 import java.awt.Dialog;
 import java.awt.Dimension;
 import java.awt.Font;
-import java.awt.Frame;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.event.ActionEvent;
@@ -205,6 +203,7 @@ import javax.swing.BoxLayout;
 import javax.swing.ButtonGroup;
 import javax.swing.JCheckBox;
 import javax.swing.JFileChooser;
+import javax.swing.JComponent;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
@@ -1372,7 +1371,7 @@ public class HexFile {
   }
 
   public static void open(MemContents dst,
-      Frame parent, // for window positioning
+      Component parent, // for window positioning
       Project proj, Instance instance) { // for recent file access
     LocaleManager S = com.cburch.logisim.std.Strings.S;
     Mem mem = instance == null ? null : (Mem)instance.getFactory();
@@ -1400,6 +1399,8 @@ public class HexFile {
   }
 
   private static boolean open(MemContents dst, File src, String desc) throws IOException {
+    if (desc == null && ImageLoader.load(dst, src, false) != null)
+      return true;
     BufferedLineReader in = BufferedLineReader.forFile(src);
     try {
       HexReader r = new HexReader(in, dst.getLogLength(), dst.getValueWidth());
@@ -1412,6 +1413,14 @@ public class HexFile {
       }
       if (loaded == null)
         return false;
+      // Once the user has chosen the byte order of a binary file, it loads
+      // like the other images, through ImageLoader, which writes a mapped
+      // memory only where the image is. The two pack bytes into words the
+      // same way only when each word is a whole number of bytes.
+      if (r.tagged("radix", "binary") && dst.getValueWidth() % 8 == 0) {
+        ImageLoader.loadRaw(dst, src, !r.bigEndian());
+        return true;
+      }
       dst.copyFrom(0, loaded, 0, (int)(loaded.getLastOffset()+1));
       return true;
     } finally {
@@ -1437,6 +1446,8 @@ public class HexFile {
 
   public static MemContents parseFromCircFile(String src, int addrSize, int wordSize)
       throws IOException {
+    if (src.startsWith(SPARSE_HEADER))
+      return parseSparse(src.substring(SPARSE_HEADER.length()), addrSize, wordSize);
     if (src.startsWith("compressed\n")) {
       byte[] bytes = src.getBytes("UTF-8");
       ByteArrayInputStream input = new ByteArrayInputStream(bytes, 11, bytes.length-11);
@@ -1482,31 +1493,128 @@ public class HexFile {
     new HexWriter(out, src, desc).save();
   }
 
-  // This uses v2.0 raw format, optionally with zip+base64+linebreaks if the
-  // content is large.
+  // This uses v2.0 raw format if the content is small, so it stays readable
+  // in the .circ file, and otherwise the sparse format below.
   public static String saveToStringForCircFile(MemContents src) {
-    String ret = saveToString(src, null, -1);
-    if (ret.length() <= 5000)
-      return ret;
+    long end = src.findNonZero(0);
+    for (long a = end; a >= 0 && end < SPARSE_THRESHOLD; a = src.findNonZero(a + 1))
+      end = a;
+    if (end < SPARSE_THRESHOLD)
+      return saveToString(src, null, -1);
+    return saveSparse(src);
+  }
+
+  // Older versions wrote large content as v2.0 raw with zip+base64+linebreaks,
+  // under a "compressed" header line, which parseFromCircFile still accepts.
+  //
+  // Sparse format: after the header line, base64 (with line breaks) of a
+  // sequence of chunks, each consisting of:
+  //   varint skip   - number of zero words preceding the chunk
+  //   varint hdr    - (len << 1) | 1 for a run, (len << 1) for literals
+  //   varint values - a single value for a run, len values otherwise
+  // Varints are unsigned LEB128. Words not covered by any chunk are zero, and
+  // on load their pages are never allocated, so large, mostly-empty ROMs
+  // cost little space in the file and little time to open.
+  private static final String SPARSE_HEADER = "sparse\n";
+  private static final int SPARSE_THRESHOLD = 1024; // words
+  private static final int SPARSE_MIN_RUN = 4;
+  private static final int SPARSE_MIN_GAP = 8;
+
+  private static String saveSparse(MemContents src) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    long last = src.getLastOffset();
+    long pos = 0;
+    for (long a = src.findNonZero(0); a >= 0; a = src.findNonZero(pos)) {
+      int v = src.get(a);
+      long e = a + 1;
+      while (e <= last && src.get(e) == v)
+        e++;
+      writeVarint(out, a - pos);
+      if (e - a >= SPARSE_MIN_RUN) {
+        writeVarint(out, ((e - a) << 1) | 1);
+        writeVarint(out, v & 0xffffffffL);
+        pos = e;
+        continue;
+      }
+      // literals end at the start of a run or of a long enough zero gap
+      for (e = a + 1; e <= last; e++) {
+        int x = src.get(e);
+        if (x == 0) {
+          long nz = src.findNonZero(e);
+          if (nz < 0 || nz - e >= SPARSE_MIN_GAP)
+            break;
+        } else if (e + SPARSE_MIN_RUN - 1 <= last && isRun(src, e, x)) {
+          break;
+        }
+      }
+      writeVarint(out, (e - a) << 1);
+      for (long i = a; i < e; i++)
+        writeVarint(out, src.get(i) & 0xffffffffL);
+      pos = e;
+    }
+    byte[] LF = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+    return SPARSE_HEADER + new String(Base64.getMimeEncoder(76, LF)
+        .encode(out.toByteArray()), StandardCharsets.UTF_8);
+  }
+
+  private static boolean isRun(MemContents src, long start, int value) {
+    for (int i = 1; i < SPARSE_MIN_RUN; i++) {
+      if (src.get(start + i) != value)
+        return false;
+    }
+    return true;
+  }
+
+  private static MemContents parseSparse(String src, int addrSize, int wordSize)
+      throws IOException {
+    byte[] data;
     try {
-      ByteArrayOutputStream result = new ByteArrayOutputStream();
-      result.write("compressed\n".getBytes("UTF-8"));
-      byte[] LF = System.lineSeparator().getBytes("UTF-8"); // "\n" or "\r\n"
-      OutputStream encoded = Base64.getMimeEncoder(76, LF).wrap(result);
-      DeflaterOutputStream compress = new DeflaterOutputStream(encoded, new Deflater());
-      compress.write(ret.getBytes("UTF-8"));
-      compress.finish();
-      try { compress.flush(); } catch (IOException e) { e.printStackTrace(); }
-      try { encoded.flush(); } catch (IOException e) { e.printStackTrace(); }
-      try { result.flush(); } catch (IOException e) { e.printStackTrace(); }
-      try { compress.close(); } catch (IOException e) { e.printStackTrace(); }
-      try { encoded.close(); } catch (IOException e) { e.printStackTrace(); }
-      try { result.close(); } catch (IOException e) { e.printStackTrace(); }
-      return new String(result.toByteArray(), "UTF-8");
-    } catch (Exception e) {
-      e.printStackTrace();
-      return ret;
+      data = Base64.getMimeDecoder().decode(src);
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Invalid sparse memory image data: " + e.getMessage());
+    }
+    MemContents dst = MemContents.create(addrSize, wordSize);
+    long last = dst.getLastOffset();
+    int[] p = { 0 };
+    long pos = 0;
+    while (p[0] < data.length) {
+      pos += readVarint(data, p);
+      long hdr = readVarint(data, p);
+      long len = hdr >>> 1;
+      if (pos + len - 1 > last)
+        throw new IOException("Sparse memory image data exceeds memory size.");
+      if ((hdr & 1) != 0) {
+        dst.fill(pos, len, (int) readVarint(data, p));
+      } else {
+        int[] vals = new int[(int) len];
+        for (int i = 0; i < vals.length; i++)
+          vals[i] = (int) readVarint(data, p);
+        dst.set(pos, vals);
+      }
+      pos += len;
     }
+    return dst;
+  }
+
+  private static void writeVarint(ByteArrayOutputStream out, long v) {
+    while ((v & ~0x7fL) != 0) {
+      out.write((int) ((v & 0x7f) | 0x80));
+      v >>>= 7;
+    }
+    out.write((int) v);
+  }
+
+  private static long readVarint(byte[] data, int[] p) throws IOException {
+    long v = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      if (p[0] >= data.length)
+        throw new IOException("Sparse memory image data is truncated.");
+      int b = data[p[0]++];
+      v |= (long) (b & 0x7f) << shift;
+      if ((b & 0x80) == 0)
+        return v;
+    }
+    throw new IOException("Invalid sparse memory image data.");
   }
 
   // No header is output. As a special case, if desc is null, v2.0 raw will be
@@ -1812,7 +1920,7 @@ public class HexFile {
   }
 
   public static void save(MemContents src,
-      Frame parent, // for window positioning
+      Component parent, // for window positioning
       Project proj, Instance instance) { // for recent file access
     LocaleManager S = com.cburch.logisim.std.Strings.S;
     Mem mem = instance == null ? null : (Mem)instance.getFactory();
@@ -1846,7 +1954,7 @@ public class HexFile {
 
   private static JFileChooser createFileSaveChooser(File lastFile, MemContents preview) {
     JFileChooser chooser = createFileChooser(lastFile, false);
-    chooser.setAccessory(new Preview(chooser, preview));
+    chooser.setAccessory(Preview.create(chooser, preview));
     return chooser;
   }
 
@@ -1871,6 +1979,12 @@ public class HexFile {
     JTextArea preview;
     MemContents m;
 
+    // Returns the supertype, so that loading HexFile just to parse images
+    // doesn't also load the panel classes.
+    static JComponent create(JFileChooser chooser, MemContents m) {
+      return new Preview(chooser, m);
+    }
+
     Preview(JFileChooser chooser, MemContents m) {
       this.chooser = chooser;
       this.m = m;
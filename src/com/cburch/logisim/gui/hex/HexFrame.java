@@ -32,28 +32,36 @@ package com.cburch.logisim.gui.hex;
 import static com.cburch.logisim.gui.hex.Strings.S;
 
 import java.awt.BorderLayout;
+import java.awt.Color;
 import java.awt.Container;
 import java.awt.Dimension;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.WindowEvent;
+import java.util.List;
 
 import javax.swing.JButton;
 import javax.swing.JFrame;
+import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.JToggleButton;
+import javax.swing.SwingConstants;
+import javax.swing.Timer;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
 import com.cburch.hex.HexEditor;
 import com.cburch.hex.HexModel;
 import com.cburch.logisim.std.memory.MemContents;
+import com.cburch.logisim.std.memory.MemTrace;
 import com.cburch.logisim.gui.generic.LFrame;
 import com.cburch.logisim.gui.menu.LogisimMenuBar;
 import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.proj.Project;
 import com.cburch.logisim.util.LocaleListener;
 import com.cburch.logisim.util.LocaleManager;
+import com.cburch.logisim.util.StringUtil;
 import com.cburch.logisim.util.WindowMenuItemManager;
 
 public class HexFrame extends LFrame.SubWindow {
@@ -113,6 +121,10 @@ public class HexFrame extends LFrame.SubWindow {
         HexFile.open((MemContents)model, HexFrame.this, project, instance);
       } else if (src == save) {
         HexFile.save((MemContents)model, HexFrame.this, project, instance);
+      } else if (src == heatmap) {
+        setHeatmap(heatmap.isSelected());
+      } else if (src == heatTimer) {
+        updateHeatmap();
       } else if (src == close) {
         WindowEvent e = new WindowEvent(HexFrame.this, WindowEvent.WINDOW_CLOSING);
         HexFrame.this.processWindowEvent(e);
@@ -124,6 +136,7 @@ public class HexFrame extends LFrame.SubWindow {
       open.setText(S.get("openButton"));
       save.setText(S.get("saveButton"));
       close.setText(S.get("closeButton"));
+      heatmap.setText(S.get("heatmapButton"));
     }
   }
 
@@ -160,6 +173,11 @@ public class HexFrame extends LFrame.SubWindow {
   private JButton open = new JButton();
   private JButton save = new JButton();
   private JButton close = new JButton();
+  private JToggleButton heatmap = new JToggleButton();
+  private JLabel heatStatus = new JLabel();
+  private Timer heatTimer = new Timer(250, myListener);
+  private MemTrace trace;
+  private long heatMax;
   private Instance instance;
 
   public HexFrame(Project project, Instance instance, HexModel model) {
@@ -172,10 +190,15 @@ public class HexFrame extends LFrame.SubWindow {
     JPanel buttonPanel = new JPanel();
     buttonPanel.add(open);
     buttonPanel.add(save);
+    if (model instanceof MemContents)
+      buttonPanel.add(heatmap);
     buttonPanel.add(close);
     open.addActionListener(myListener);
     save.addActionListener(myListener);
+    heatmap.addActionListener(myListener);
     close.addActionListener(myListener);
+    heatStatus.setHorizontalAlignment(SwingConstants.CENTER);
+    heatStatus.setVisible(false);
 
     Dimension pref = editor.getPreferredSize();
     JScrollPane scroll = new JScrollPane(editor,
@@ -188,7 +211,10 @@ public class HexFrame extends LFrame.SubWindow {
 
     Container contents = getContentPane();
     contents.add(scroll, BorderLayout.CENTER);
-    contents.add(buttonPanel, BorderLayout.SOUTH);
+    JPanel south = new JPanel(new BorderLayout());
+    south.add(heatStatus, BorderLayout.NORTH);
+    south.add(buttonPanel, BorderLayout.SOUTH);
+    contents.add(south, BorderLayout.SOUTH);
 
     LocaleManager.addLocaleListener(myListener);
     myListener.localeChanged();
@@ -213,7 +239,66 @@ public class HexFrame extends LFrame.SubWindow {
   public void setVisible(boolean value) {
     if (value && !isVisible()) {
       windowManager.frameOpened(this);
+    } else if (!value) {
+      heatmap.setSelected(false);
+      setHeatmap(false);
     }
     super.setVisible(value);
   }
+
+  // While the heatmap is shown, accesses by the simulation are traced and
+  // each cell is shaded by how often it was used: blue for mostly reads, red
+  // for mostly writes. Tracing stops when the heatmap is turned off.
+  private void setHeatmap(boolean enable) {
+    MemContents mem = (MemContents)model;
+    if (enable && trace == null) {
+      trace = new MemTrace(mem.getLogLength());
+      mem.setTrace(trace);
+      heatMax = 0;
+      editor.setCellBackground(this::heatColor);
+      heatStatus.setVisible(true);
+      heatTimer.start();
+      updateHeatmap();
+    } else if (!enable && trace != null) {
+      heatTimer.stop();
+      if (mem.getTrace() == trace)
+        mem.setTrace(null);
+      trace = null;
+      editor.setCellBackground(null);
+      heatStatus.setVisible(false);
+    }
+  }
+
+  private void updateHeatmap() {
+    if (trace == null)
+      return;
+    heatMax = trace.getMaxCount();
+    long reads = trace.getTotalReads();
+    long writes = trace.getTotalWrites();
+    List<MemTrace.Loop> loops = trace.findHotLoops(1);
+    int addrBits = ((MemContents)model).getLogLength();
+    if (loops.isEmpty()) {
+      heatStatus.setText(S.fmt("heatmapStatus", reads, writes));
+    } else {
+      MemTrace.Loop loop = loops.get(0);
+      heatStatus.setText(S.fmt("heatmapLoopStatus", reads, writes,
+            StringUtil.toHexString(addrBits, (int)loop.start),
+            StringUtil.toHexString(addrBits, (int)loop.end),
+            loop.iterations));
+    }
+    editor.repaint();
+  }
+
+  private Color heatColor(long addr) {
+    MemTrace t = trace;
+    if (t == null || heatMax == 0)
+      return null;
+    long r = t.getReadCount(addr);
+    long w = t.getWriteCount(addr);
+    if (r + w == 0)
+      return null;
+    int alpha = (int)(40 + 180 * Math.log1p(r + w) / Math.log1p(heatMax));
+    alpha = Math.min(alpha, 220);
+    return w > r ? new Color(255, 64, 0, alpha) : new Color(0, 96, 255, alpha);
+  }
 }
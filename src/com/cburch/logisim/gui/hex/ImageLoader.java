@@ -0,0 +1,366 @@
+/**
+ * This file is part of Logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with Logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + Haute École Spécialisée Bernoise
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ *   + REDS Institute - HEIG-VD, Yverdon-les-Bains, Switzerland
+ *     http://reds.heig-vd.ch
+ * This version of the project is currently maintained by:
+ *   + Kevin Walsh (kwalsh@holycross.edu, http://mathcs.holycross.edu/~kwalsh)
+ */
+
+package com.cburch.logisim.gui.hex;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import com.cburch.logisim.std.memory.MemContents;
+
+// ImageLoader reads program and data images straight into a MemContents,
+// bypassing the line-oriented HexReader. The file is mapped with NIO and
+// decoded into page-sized blocks of words, each stored with a single bulk
+// MemContents.set(), so multi-megabyte images load in a fraction of a second.
+// The format is recognized from the file contents:
+//
+//   ELF        PT_LOAD segments are placed at their physical addresses, in
+//              the byte order given by the ELF header.
+//   Intel HEX  data records, with segment and linear address extensions.
+//   raw        any other file containing binary (non-text) bytes, loaded
+//              from address 0, big-endian unless the caller says otherwise.
+//
+// Addresses in all three count bytes. For memories wider than 8 bits, each
+// group of ceil(width/8) bytes forms one word. Files in the Logisim text
+// formats are not recognized here, and are left to HexReader. Nothing in a
+// raw file says how its bytes form words, so interactive callers leave raw
+// files to HexFile, which asks, and then call loadRaw() with the answer.
+public class ImageLoader {
+
+  public static final String FORMAT_ELF = "ELF";
+  public static final String FORMAT_IHEX = "Intel HEX";
+  public static final String FORMAT_RAW = "raw binary";
+
+  public static final class Result {
+    public final String format;
+    public final long bytes; // bytes stored in memory
+    public final long dropped; // bytes beyond the end of memory
+    public final long nanos;
+
+    Result(String format, long bytes, long dropped, long nanos) {
+      this.format = format;
+      this.bytes = bytes;
+      this.dropped = dropped;
+      this.nanos = nanos;
+    }
+
+    public double getMegabytesPerSecond() {
+      return nanos == 0 ? 0 : bytes * 1e3 / nanos;
+    }
+  }
+
+  // Returns null, leaving dst untouched, if the file is not in one of the
+  // formats above.
+  public static Result load(MemContents dst, File src) throws IOException {
+    return load(dst, src, null, true, false);
+  }
+
+  // As above, but raw files also return null unless raw is set.
+  public static Result load(MemContents dst, File src, boolean raw) throws IOException {
+    return load(dst, src, null, raw, false);
+  }
+
+  // Loads the whole file as raw binary, whatever it contains.
+  public static Result loadRaw(MemContents dst, File src, boolean littleEndian)
+      throws IOException {
+    return load(dst, src, FORMAT_RAW, true, littleEndian);
+  }
+
+  private static Result load(MemContents dst, File src, String format,
+      boolean raw, boolean littleEndian) throws IOException {
+    long start = System.nanoTime();
+    try (FileChannel ch = FileChannel.open(src.toPath(), StandardOpenOption.READ)) {
+      long size = ch.size();
+      if (format == null) {
+        ByteBuffer head = ByteBuffer.allocate((int) Math.min(size, 4096));
+        while (head.hasRemaining() && ch.read(head, head.position()) > 0)
+          ;
+        head.flip();
+        format = detect(head);
+        if (format == null || (format == FORMAT_RAW && !raw))
+          return null;
+      }
+      if (size > Integer.MAX_VALUE)
+        throw new IOException(format + ": file is too large to load.");
+      ByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+      // As with HexReader, the image replaces the entire contents. A mapped
+      // memory is persistent, though, so only the image itself is written.
+      boolean cleared = !dst.isMapped();
+      if (cleared)
+        dst.clear();
+      Sink sink = new Sink(dst, cleared);
+      sink.littleEndian = littleEndian;
+      if (format == FORMAT_ELF)
+        loadElf(buf, sink);
+      else if (format == FORMAT_IHEX)
+        loadIntelHex(buf, sink);
+      else
+        sink.put(0, buf, 0, (int) size);
+      sink.flush();
+      return new Result(format, sink.bytes, sink.dropped, System.nanoTime() - start);
+    }
+  }
+
+  static String detect(ByteBuffer head) {
+    int n = head.limit();
+    if (n >= 4 && head.get(0) == 0x7f && head.get(1) == 'E'
+        && head.get(2) == 'L' && head.get(3) == 'F')
+      return FORMAT_ELF;
+    int i = 0;
+    while (i < n && Character.isWhitespace(head.get(i)))
+      i++;
+    if (i < n && head.get(i) == ':') {
+      int digits = 0;
+      for (i++; i < n && hexDigit(head.get(i)) >= 0; i++)
+        digits++;
+      if (digits >= 10 && (i == n || head.get(i) == '\r' || head.get(i) == '\n'))
+        return FORMAT_IHEX;
+      return null;
+    }
+    for (i = 0; i < n; i++) {
+      int b = head.get(i) & 0xff;
+      if (b < 0x20 && b != '\t' && b != '\n' && b != '\r' && b != '\f')
+        return FORMAT_RAW;
+    }
+    return null;
+  }
+
+  private static void loadElf(ByteBuffer buf, Sink sink) throws IOException {
+    int n = buf.limit();
+    if (n < 52)
+      throw new IOException("ELF: file header is truncated.");
+    int cls = buf.get(4);
+    int data = buf.get(5);
+    if ((cls != 1 && cls != 2) || (data != 1 && data != 2))
+      throw new IOException("ELF: unsupported class or data encoding.");
+    boolean is64 = cls == 2;
+    buf.order(data == 1 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+    sink.littleEndian = data == 1;
+    if (is64 && n < 64)
+      throw new IOException("ELF: file header is truncated.");
+
+    long phoff = is64 ? buf.getLong(32) : u32(buf, 28);
+    int phentsize = buf.getShort(is64 ? 54 : 42) & 0xffff;
+    int phnum = buf.getShort(is64 ? 56 : 44) & 0xffff;
+    for (int i = 0; i < phnum; i++) {
+      long ph = phoff + (long) i * phentsize;
+      if (ph < 0 || ph + (is64 ? 56 : 32) > n)
+        throw new IOException("ELF: program header " + i + " is truncated.");
+      int p = (int) ph;
+      if (buf.getInt(p) != 1) // PT_LOAD
+        continue;
+      long offset, paddr, filesz;
+      if (is64) {
+        offset = buf.getLong(p + 8);
+        paddr = buf.getLong(p + 24);
+        filesz = buf.getLong(p + 32);
+      } else {
+        offset = u32(buf, p + 4);
+        paddr = u32(buf, p + 12);
+        filesz = u32(buf, p + 16);
+      }
+      if (offset < 0 || filesz < 0 || offset + filesz > n)
+        throw new IOException("ELF: segment " + i + " extends past end of file.");
+      // Any remaining p_memsz - p_filesz bytes are zero, as memory already is.
+      sink.put(paddr, buf, (int) offset, (int) filesz);
+    }
+  }
+
+  private static long u32(ByteBuffer buf, int pos) {
+    return buf.getInt(pos) & 0xffffffffL;
+  }
+
+  private static void loadIntelHex(ByteBuffer buf, Sink sink) throws IOException {
+    byte[] rec = new byte[5 + 255]; // count, address (2), type, data, checksum
+    ByteBuffer recBuf = ByteBuffer.wrap(rec);
+    long base = 0;
+    int lineNo = 1;
+    int pos = 0;
+    int end = buf.limit();
+    while (pos < end) {
+      int c = buf.get(pos);
+      if (c == '\n') {
+        lineNo++;
+        pos++;
+        continue;
+      } else if (c == '\r' || c == ' ' || c == '\t') {
+        pos++;
+        continue;
+      } else if (c != ':') {
+        throw ihexError(lineNo, "expected ':' at start of record.");
+      }
+      pos++;
+      int count = hexByte(buf, pos, end, lineNo);
+      int len = count + 5;
+      int sum = 0;
+      for (int i = 0; i < len; i++) {
+        rec[i] = (byte) hexByte(buf, pos + 2 * i, end, lineNo);
+        sum += rec[i];
+      }
+      pos += 2 * len;
+      if ((sum & 0xff) != 0)
+        throw ihexError(lineNo, "checksum mismatch.");
+      int addr = ((rec[1] & 0xff) << 8) | (rec[2] & 0xff);
+      int ext = count >= 2 ? ((rec[4] & 0xff) << 8) | (rec[5] & 0xff) : 0;
+      switch (rec[3]) {
+      case 0: // data
+        sink.put(base + addr, recBuf, 4, count);
+        break;
+      case 1: // end of file
+        return;
+      case 2: // extended segment address
+        base = (long) ext << 4;
+        break;
+      case 4: // extended linear address
+        base = (long) ext << 16;
+        break;
+      case 3: // start segment address
+      case 5: // start linear address
+        break;
+      default:
+        throw ihexError(lineNo, "unknown record type " + rec[3] + ".");
+      }
+    }
+  }
+
+  private static int hexByte(ByteBuffer buf, int pos, int end, int lineNo)
+      throws IOException {
+    if (pos + 1 >= end)
+      throw ihexError(lineNo, "record is truncated.");
+    int hi = hexDigit(buf.get(pos));
+    int lo = hexDigit(buf.get(pos + 1));
+    if (hi < 0 || lo < 0)
+      throw ihexError(lineNo, "invalid hex digit.");
+    return (hi << 4) | lo;
+  }
+
+  private static int hexDigit(int c) {
+    if (c >= '0' && c <= '9')
+      return c - '0';
+    else if (c >= 'a' && c <= 'f')
+      return 0xa + (c - 'a');
+    else if (c >= 'A' && c <= 'F')
+      return 0xA + (c - 'A');
+    else
+      return -1;
+  }
+
+  private static IOException ihexError(int lineNo, String msg) {
+    return new IOException("Intel HEX, line " + lineNo + ": " + msg);
+  }
+
+  // Sink assembles bytes into words, one block of words at a time. Blocks
+  // are the size of a MemContents page, so storing one touches one page.
+  private static class Sink {
+    static final int BLOCK = 4096;
+
+    final MemContents dst;
+    final int bytesPerWord;
+    final long lastWord;
+    final boolean cleared;
+    final HashSet<Long> stored = new HashSet<>();
+    boolean littleEndian = false;
+    final int[] block = new int[BLOCK];
+    long blockBase = -1;
+    boolean modified;
+    long bytes, dropped;
+
+    Sink(MemContents dst, boolean cleared) {
+      this.dst = dst;
+      this.bytesPerWord = (dst.getValueWidth() + 7) / 8;
+      this.lastWord = dst.getLastOffset();
+      this.cleared = cleared;
+    }
+
+    void put(long byteAddr, ByteBuffer data, int pos, int len) {
+      int i = 0;
+      while (i < len) {
+        long word = byteAddr / bytesPerWord;
+        if (byteAddr < 0 || word > lastWord) {
+          dropped += len - i; // addresses only increase from here
+          return;
+        }
+        long base = word & ~(BLOCK - 1L);
+        if (base != blockBase)
+          select(base);
+        // fill the rest of this block without further address arithmetic
+        int idx = (int) (word - base);
+        int k = (int) (byteAddr % bytesPerWord);
+        int n = blockLength();
+        int start = i;
+        while (i < len && idx < n) {
+          int shift = 8 * (littleEndian ? k : bytesPerWord - 1 - k);
+          block[idx] = (block[idx] & ~(0xff << shift)) | ((data.get(pos + i) & 0xff) << shift);
+          i++;
+          if (++k == bytesPerWord) {
+            k = 0;
+            idx++;
+          }
+        }
+        modified = true;
+        bytes += i - start;
+        byteAddr += i - start;
+      }
+    }
+
+    // Words not covered by the image keep their current values, which are
+    // known to be zero unless memory is mapped or the block was stored before.
+    private void select(long base) {
+      flush();
+      blockBase = base;
+      if (cleared && !stored.contains(base)) {
+        Arrays.fill(block, 0);
+      } else {
+        for (int i = 0, n = blockLength(); i < n; i++)
+          block[i] = dst.get(base + i);
+      }
+    }
+
+    private int blockLength() {
+      return (int) Math.min(BLOCK, lastWord - blockBase + 1);
+    }
+
+    void flush() {
+      if (!modified)
+        return;
+      int n = blockLength();
+      dst.set(blockBase, n == BLOCK ? block : Arrays.copyOf(block, n));
+      stored.add(blockBase);
+      modified = false;
+    }
+  }
+}
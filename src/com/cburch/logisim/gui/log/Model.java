@@ -34,17 +34,18 @@ import static com.cburch.logisim.gui.log.Strings.S;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 
 import com.cburch.logisim.circuit.Circuit;
 import com.cburch.logisim.circuit.CircuitEvent;
 import com.cburch.logisim.circuit.CircuitListener;
 import com.cburch.logisim.circuit.CircuitState;
-import com.cburch.logisim.circuit.CircuitState;
 import com.cburch.logisim.circuit.RadixOption;
 import com.cburch.logisim.circuit.ReplacementMap;
 import com.cburch.logisim.circuit.SubcircuitFactory;
 import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.EndData;
 import com.cburch.logisim.data.Location;
 import com.cburch.logisim.data.Value;
 import com.cburch.logisim.std.wiring.Pin;
@@ -75,10 +76,59 @@ public class Model implements CircuitListener, SignalInfo.Listener {
     public void historyLimitChanged(Event event);
   }
 
+  // SignalWatch tracks whether a signal might have changed since it was last
+  // sampled, by watching its component, and the locations of that component's
+  // ends, within the substate where the component resides. Components with
+  // log options (e.g. Ram contents) can change without being propagated, so
+  // those signals are not watched, and instead get sampled every time.
+  private class SignalWatch implements CircuitState.Watcher {
+    final SignalInfo item;
+    CircuitState state;
+    Component comp;
+    Location[] locs;
+    boolean changed = true;
+
+    SignalWatch(SignalInfo item) {
+      this.item = item;
+    }
+
+    void attach() {
+      changed = true;
+      if (item.getOption() != null)
+        return;
+      state = item.fetchState(circuitState);
+      comp = item.getComponent();
+      List<EndData> ends = comp.getEnds();
+      locs = new Location[ends.size()];
+      for (int i = 0; i < locs.length; i++)
+        locs[i] = ends.get(i).getLocation();
+      state.addWatcher(comp, this);
+      for (Location loc : locs)
+        state.addWatcher(loc, this);
+    }
+
+    void detach() {
+      if (state == null)
+        return;
+      state.removeWatcher(comp, this);
+      for (Location loc : locs)
+        state.removeWatcher(loc, this);
+      state = null;
+      comp = null;
+      locs = null;
+    }
+
+    @Override
+    public void watchedValueChanged(CircuitState s, Object key) {
+      changed = true;
+    }
+  }
+
   CircuitState circuitState;
 
   private ArrayList<SignalInfo> info = new ArrayList<>();
   private ArrayList<Signal> signals = new ArrayList<>();
+  private HashMap<Signal, SignalWatch> watches = new HashMap<>();
   private long tEnd = -1; // signals go from 0 <= t < tEnd
   private Signal spotlight;
   private SignalInfo clockSource;
@@ -151,8 +201,10 @@ public class Model implements CircuitListener, SignalInfo.Listener {
     long duration = captureContinuous() ? gateDelay : timeScale;
     for (int i = 0; i < info.size(); i++) {
       SignalInfo item = info.get(i);
-      signals.add(new Signal(i, item, item.fetchValue(circuitState),
-            duration, 0, historyLimit));
+      Signal s = new Signal(i, item, item.fetchValue(circuitState),
+          duration, 0, historyLimit);
+      signals.add(s);
+      watch(s);
     }
     tEnd = duration;
 
@@ -167,15 +219,30 @@ public class Model implements CircuitListener, SignalInfo.Listener {
       signals.get(i).idx = i;
   }
 
+  private void watch(Signal s) {
+    SignalWatch w = new SignalWatch(s.info);
+    SignalWatch old = watches.put(s, w);
+    if (old != null)
+      old.detach();
+    w.attach();
+  }
+
+  private void unwatch(Signal s) {
+    SignalWatch w = watches.remove(s);
+    if (w != null)
+      w.detach();
+  }
+
   public void addOrMove(List<SignalInfo> items, int idx) {
     int changed = items.size();
     for (SignalInfo item : items) {
       int i = info.indexOf(item);
       if (i < 0) {
         info.add(idx, item); // put new item at idx
-        signals.add(idx,
-            new Signal(idx, item, item.fetchValue(circuitState),
-              1, tEnd - 1, historyLimit));
+        Signal s = new Signal(idx, item, item.fetchValue(circuitState),
+            1, tEnd - 1, historyLimit);
+        signals.add(idx, s);
+        watch(s);
         idx++;
         item.setListener(this);
       } else if (i > idx) {
@@ -217,6 +284,7 @@ public class Model implements CircuitListener, SignalInfo.Listener {
           newEnd = d;
         }
         signals.add(idx, item);
+        watch(item);
         idx++;
         item.info.setListener(this);
       } else if (i > idx) {
@@ -240,6 +308,10 @@ public class Model implements CircuitListener, SignalInfo.Listener {
 
   @Override
   public void signalInfoNameChanged(SignalInfo s) {
+    // The component may have been replaced, e.g. moved, so watch it anew.
+    int idx = info.indexOf(s);
+    if (idx >= 0)
+      watch(signals.get(idx));
     fireSelectionChanged(null);
   }
 
@@ -261,7 +333,7 @@ public class Model implements CircuitListener, SignalInfo.Listener {
       if (idx < 0)
         continue;
       info.remove(idx);
-      signals.remove(idx);
+      unwatch(signals.remove(idx));
       count++;
       item.setListener(null);
     }
@@ -306,7 +378,7 @@ public class Model implements CircuitListener, SignalInfo.Listener {
     if (spotlight != null && signals.get(idx) == spotlight)
       spotlight = null;
     info.remove(idx).setListener(null);
-    signals.remove(idx);
+    unwatch(signals.remove(idx));
     renumberSignals();
     fireSelectionChanged(null);
   }
@@ -402,9 +474,10 @@ public class Model implements CircuitListener, SignalInfo.Listener {
       // Add the clock as a courtesy, even though this is not required.
       if (!info.contains(clockSource)) {
         info.add(0, clockSource); // put it at the top of the list
-        signals.add(0,
-            new Signal(0, clockSource, clockSource.fetchValue(circuitState),
-              1, tEnd - 1, historyLimit));
+        Signal s = new Signal(0, clockSource, clockSource.fetchValue(circuitState),
+            1, tEnd - 1, historyLimit);
+        signals.add(0, s);
+        watch(s);
         clockSource.setListener(this);
         fireSelectionChanged(null);
       }
@@ -468,6 +541,7 @@ public class Model implements CircuitListener, SignalInfo.Listener {
     Signal s = new Signal(idx, item, item.fetchValue(circuitState),
         1, tEnd - 1, historyLimit);
     signals.add(idx, s);
+    watch(s);
     item.setListener(this);
     if (fireUpdate)
       fireSelectionChanged(null);
@@ -580,19 +654,32 @@ public class Model implements CircuitListener, SignalInfo.Listener {
   }
 
   private void extendWithOldValues(long duration) {
-    for (Signal s : signals) {
-      Value v = s.info.fetchValue(circuitState);
+    for (Signal s : signals)
       s.extend(duration);
-    }
     elapsedSinceTrigger += duration;
     tEnd += duration;
     fireSignalsExtended(null);
   }
 
+  // Returns the signal's current value, or null if the signal's component has
+  // not changed since the signal was last sampled.
+  private Value sampleIfChanged(Signal s) {
+    SignalWatch w = watches.get(s);
+    if (w != null && w.state != null) {
+      if (!w.changed)
+        return null;
+      w.changed = false;
+    }
+    return s.info.fetchValue(circuitState);
+  }
+
   private void extendWithNewValues(long duration) {
     for (Signal s : signals) {
-      Value v = s.info.fetchValue(circuitState);
-      s.extend(v, duration);
+      Value v = sampleIfChanged(s);
+      if (v == null)
+        s.extend(duration);
+      else
+        s.extend(v, duration);
     }
     elapsedSinceTrigger += duration;
     tEnd += duration;
@@ -601,8 +688,9 @@ public class Model implements CircuitListener, SignalInfo.Listener {
 
   private void replaceWithNewValues(long duration) {
     for (Signal s : signals) {
-      Value v = s.info.fetchValue(circuitState);
-      s.replaceRecent(v, duration);
+      Value v = sampleIfChanged(s);
+      if (v != null)
+        s.replaceRecent(v, duration);
     }
     fireSignalsExtended(null); // changed, not extended, but works fine for now
   }
@@ -738,6 +826,9 @@ public class Model implements CircuitListener, SignalInfo.Listener {
       lastRealtimeUpdate = System.nanoTime();
     elapsedSinceTrigger = 0;
     for (Signal s: signals) {
+      SignalWatch w = watches.get(s);
+      if (w != null)
+        w.changed = false;
       Value v = s.info.fetchValue(circuitState);
       s.reset(v, duration);
     }
@@ -54,7 +54,27 @@ public class Signal {
   private long[][] dur; // duration of each value
   private int curSize;
   private int maxSize; // limit, or zero for unlimited
-  private short firstIndex; // for wrapping, only when limited
+  private int firstIndex; // for wrapping, only when limited
+  private SignalSummary summary = new SignalSummary(this);
+
+  // Range summarizes a run of consecutive values, e.g. those skipped over by
+  // Iterator.skipTo() while drawing a dense region of the chronogram.
+  public static class Range {
+    public int count; // number of values
+    public long min, max; // among fully-defined values, as unsigned integers
+    public boolean unknown, error; // whether any values were unknown or errors
+
+    public Range() {
+      clear();
+    }
+
+    public void clear() {
+      count = 0;
+      min = Long.MAX_VALUE;
+      max = -1;
+      unknown = error = false;
+    }
+  }
 
   public Signal(int idx, SignalInfo info, Value initialValue, long duration, long tStart, int maxSize) {
     this.idx = idx;
@@ -87,6 +107,7 @@ public class Signal {
     } else {
       int i = (firstIndex + curSize - 1) % curSize;
       dur[i/CHUNK][i%CHUNK] += duration;
+      summary.markDirty(i);
     }
   }
 
@@ -100,6 +121,7 @@ public class Signal {
       // firstIndex != 0 iff maxSize>0 && curSize == maxSize
       int i = (firstIndex + curSize - 1) % curSize;
       dur[i/CHUNK][i%CHUNK] += duration;
+      summary.markDirty(i);
       return;
     }
     last = v;
@@ -109,6 +131,7 @@ public class Signal {
       // fits in an existing chunk
       val[curSize/CHUNK][curSize%CHUNK] = v;
       dur[curSize/CHUNK][curSize%CHUNK] = duration;
+      summary.markDirty(curSize);
       curSize++;
     } else if (curSize < maxSize || maxSize <= 0) {
       // allocate another chunk
@@ -116,18 +139,20 @@ public class Signal {
       long[][] dur2 = new long[c+1][];
       System.arraycopy(val, 0, val2, 0, c);
       System.arraycopy(dur, 0, dur2, 0, c);
-      val2[c+1] = new Value[maxSize == 0 || (maxSize-cap) > CHUNK ? CHUNK : (maxSize-cap)];
-      dur2[c+1] = new long[maxSize == 0 || (maxSize-cap) > CHUNK ? CHUNK : (maxSize-cap)];
+      val2[c] = new Value[maxSize == 0 || (maxSize-cap) > CHUNK ? CHUNK : (maxSize-cap)];
+      dur2[c] = new long[maxSize == 0 || (maxSize-cap) > CHUNK ? CHUNK : (maxSize-cap)];
       val = val2;
       dur = dur2;
       val[curSize/CHUNK][curSize%CHUNK] = v;
       dur[curSize/CHUNK][curSize%CHUNK] = duration;
+      summary.markDirty(curSize);
       curSize++;
     } else { // if (maxSize > 0)
       // limited size is filled, wrap around, and adjust start offset
       tStart += dur[firstIndex/CHUNK][firstIndex%CHUNK];
       val[firstIndex/CHUNK][firstIndex%CHUNK] = v;
       dur[firstIndex/CHUNK][firstIndex%CHUNK] = duration;
+      summary.markDirty(firstIndex);
       firstIndex++;
       if (firstIndex >= maxSize)
         firstIndex = 0;
@@ -139,12 +164,14 @@ public class Signal {
       throw new IllegalStateException("signal should have at least "+duration+" ns of data");
     int i = (firstIndex + curSize - 1) % curSize;
     boolean checkMerge = true;
+    summary.markDirty(i);
     if (dur[i/CHUNK][i%CHUNK] == duration) {
       val[i/CHUNK][i%CHUNK] = v;
       last = v;
       int j = (i + curSize - 1) % curSize;
       if (curSize > 1 && val[j/CHUNK][j%CHUNK].equals(v)) {
         dur[j/CHUNK][j%CHUNK] += duration;
+        summary.markDirty(j);
         curSize--;
         // special case: last chunk is now entirely empty, must be removed
         if (i%CHUNK == 0) {
@@ -191,6 +218,7 @@ public class Signal {
     dur = d;
     firstIndex = 0;
     curSize = amt;
+    summary.invalidate();
   }
 
   public void resize(int newMaxSize) {
@@ -258,9 +286,37 @@ public class Signal {
     last = null;
     curSize = 0;
     firstIndex = 0;
+    summary.invalidate();
     extend(v, duration);
   }
 
+  // Accessors for SignalSummary and SignalSearch, by storage slot rather than
+  // logical position.
+  int slotCount() {
+    return curSize;
+  }
+
+  int slotOf(int position) {
+    return (firstIndex + position) % curSize;
+  }
+
+  int firstSlot() {
+    return firstIndex;
+  }
+
+  SignalSummary getSummary() {
+    summary.update();
+    return summary;
+  }
+
+  Value slotValue(int i) {
+    return val[i/CHUNK][i%CHUNK];
+  }
+
+  long slotDuration(int i) {
+    return dur[i/CHUNK][i%CHUNK];
+  }
+
   public class Iterator {
 
     public int position;
@@ -280,7 +336,7 @@ public class Signal {
     public Iterator(long t) {
       this();
       if (t > time)
-        advance(t-time);
+        skipTo(t, new Range());
     }
 
     public String getFormattedValue() {
@@ -319,6 +375,68 @@ public class Signal {
       return true;
     }
 
+    // Advances to time t, like advance(t - time), and accumulates into r a
+    // summary of every value that overlaps the interval from the current time
+    // up to t. Using the summary pyramid, long runs of short values are
+    // skipped in logarithmic rather than linear time.
+    public boolean skipTo(long t, Range r) {
+      if (value == null)
+        return false;
+      SignalSummary.accumulate(value, r);
+      if (t < time + duration) {
+        if (t > time) {
+          duration -= (t - time);
+          time = t;
+        }
+        return true;
+      }
+      summary.update();
+      int levels = summary.getLevels();
+      int width = info.getWidth();
+      time += duration;
+      position++;
+      while (position < curSize) {
+        int i = (firstIndex + position) % curSize;
+        int segEnd = i >= firstIndex ? curSize : firstIndex;
+        // skip the largest aligned block at i that lies within this segment
+        // of the circular storage and ends no later than t
+        int skipped = 0;
+        for (int k = levels; k >= 1 && skipped == 0; k--) {
+          int span = 1 << (SignalSummary.BITS * k);
+          int end = Math.min(i + span, curSize);
+          if ((i & (span - 1)) != 0 || end > segEnd)
+            continue;
+          int node = i >> (SignalSummary.BITS * k);
+          long d = summary.getDuration(k, node);
+          if (time + d > t)
+            continue;
+          summary.accumulate(k, node, r);
+          time += d;
+          skipped = end - i;
+        }
+        if (skipped > 0) {
+          position += skipped;
+          continue;
+        }
+        Value v = val[i/CHUNK][i%CHUNK];
+        long d = dur[i/CHUNK][i%CHUNK];
+        if (time < t)
+          SignalSummary.accumulate(v, r);
+        if (time + d > t) {
+          value = v.extendWidth(width, Value.FALSE);
+          duration = d - (t - time);
+          time = t;
+          return true;
+        }
+        time += d;
+        position++;
+      }
+      position = curSize - 1;
+      value = null;
+      duration = 0;
+      return false;
+    }
+
   }
 
   // todo: easily optimized
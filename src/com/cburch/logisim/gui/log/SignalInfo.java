@@ -244,7 +244,7 @@ public class SignalInfo implements AttributeListener, CircuitListener, Location.
         : o == null ? s : (s + "." + o);
   }
 
-  private static String logName(Component c, Object option) {
+  static String logName(Component c, Object option) {
     String s = null;
     Loggable log = (Loggable)c.getFeature(Loggable.class);
     if (log != null)
@@ -307,12 +307,16 @@ public class SignalInfo implements AttributeListener, CircuitListener, Location.
     Loggable log = (Loggable)path[n-1].getFeature(Loggable.class);
     if (log == null)
       return Value.NIL;
+    return log.getLogValue(fetchState(root), option);
+  }
 
+  // Returns the (possibly nested) state in which the final component of the
+  // path resides.
+  public CircuitState fetchState(CircuitState root) {
     CircuitState cur = root;
     for (int i = 0; i < n-1; i++)
       cur = circ[i].getSubcircuitFactory().getSubstate(cur, path[i]);
-
-    return log.getLogValue(cur, option);
+    return cur;
   }
 
   public Component getComponent() {
@@ -0,0 +1,212 @@
+/**
+ * This file is part of Logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with Logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + Haute École Spécialisée Bernoise
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ *   + REDS Institute - HEIG-VD, Yverdon-les-Bains, Switzerland
+ *     http://reds.heig-vd.ch
+ * This version of the project is currently maintained by:
+ *   + Kevin Walsh (kwalsh@holycross.edu, http://mathcs.holycross.edu/~kwalsh)
+ */
+
+package com.cburch.logisim.gui.log;
+
+import com.cburch.logisim.data.Value;
+
+// SignalSearch finds the next (or previous) point in a Signal's history where
+// the signal takes on a given value, has a rising or falling edge, or changes
+// at all. Rather than visiting every recorded value, the search consults the
+// Signal's SignalSummary and skips entire blocks whose min/max and bitwise
+// OR/AND show they cannot contain a match, so even multi-million-step traces
+// can be searched quickly.
+//
+// Edges are defined for signals of any width: a rising edge is a change from
+// zero to some non-zero value, and a falling edge is the reverse. Only
+// fully-defined values are considered when matching values and edges.
+public class SignalSearch {
+
+  public static final int VALUE = 0;
+  public static final int RISING = 1;
+  public static final int FALLING = 2;
+  public static final int CHANGE = 3;
+
+  private final int kind;
+  private final long target; // for VALUE, as unsigned
+
+  public SignalSearch(int kind, Value target) {
+    this.kind = kind;
+    if (kind == VALUE && (target == null || !target.isFullyDefined()))
+      throw new IllegalArgumentException("search value must be fully defined");
+    this.target = kind == VALUE ? SignalSummary.unsignedValue(target) : 0;
+  }
+
+  private static boolean isZero(Value v) {
+    return v != null && v.isFullyDefined() && v.toIntValue() == 0;
+  }
+
+  private static boolean isNonZero(Value v) {
+    return v != null && v.isFullyDefined() && v.toIntValue() != 0;
+  }
+
+  // Whether a value v, preceded by value prev (or null if there is none), is a
+  // match.
+  boolean matches(Value prev, Value v) {
+    switch (kind) {
+    case VALUE:
+      return v.isFullyDefined() && SignalSummary.unsignedValue(v) == target;
+    case RISING:
+      return isZero(prev) && isNonZero(v);
+    case FALLING:
+      return isNonZero(prev) && isZero(v);
+    default:
+      return prev != null;
+    }
+  }
+
+  // Whether a block of values, preceded by value prev (or null if there is
+  // none), could possibly contain a match.
+  private boolean mayMatch(SignalSummary sum, int k, int node, Value prev) {
+    long lo = sum.getMin(k, node);
+    long hi = sum.getMax(k, node);
+    switch (kind) {
+    case VALUE:
+      int x = (int)target;
+      return lo <= target && target <= hi
+          && (x & ~sum.getOr(k, node)) == 0
+          && (sum.getAnd(k, node) & ~x) == 0;
+    case RISING:
+      return hi > 0 && (lo == 0 || isZero(prev));
+    case FALLING:
+      return lo == 0 && (hi > 0 || isNonZero(prev));
+    default:
+      return true;
+    }
+  }
+
+  // Returns the start time of the first matching value that begins strictly
+  // after time t, or -1 if there is none.
+  public long findNext(Signal s, long t) {
+    int n = s.slotCount();
+    if (n == 0)
+      return -1;
+    Signal.Iterator it = s.new Iterator(t);
+    if (it.value == null)
+      return -1;
+    int p = it.position;
+    long time = it.time + it.duration - s.slotDuration(s.slotOf(p)); // start of p
+    if (time <= t) {
+      time += s.slotDuration(s.slotOf(p));
+      p++;
+    }
+    SignalSummary sum = s.getSummary();
+    int levels = sum.getLevels();
+    int first = s.firstSlot();
+    Value prev = p > 0 ? s.slotValue(s.slotOf(p-1)) : null;
+    while (p < n) {
+      int i = s.slotOf(p);
+      int segEnd = i >= first ? n : first;
+      // skip the largest aligned block at i that lies within this segment of
+      // the circular storage and cannot contain a match
+      int skipped = 0;
+      for (int k = levels; k >= 1 && skipped == 0; k--) {
+        int span = 1 << (SignalSummary.BITS * k);
+        int end = Math.min(i + span, n);
+        if ((i & (span - 1)) != 0 || end > segEnd)
+          continue;
+        int node = i >> (SignalSummary.BITS * k);
+        if (mayMatch(sum, k, node, prev))
+          continue;
+        time += sum.getDuration(k, node);
+        prev = s.slotValue(end - 1);
+        skipped = end - i;
+      }
+      if (skipped > 0) {
+        p += skipped;
+        continue;
+      }
+      Value v = s.slotValue(i);
+      if (matches(prev, v))
+        return time;
+      time += s.slotDuration(i);
+      prev = v;
+      p++;
+    }
+    return -1;
+  }
+
+  // Returns the start time of the last matching value that begins strictly
+  // before time t, or -1 if there is none.
+  public long findPrevious(Signal s, long t) {
+    int n = s.slotCount();
+    if (n == 0)
+      return -1;
+    Signal.Iterator it = s.new Iterator(t);
+    int p;
+    long end; // end time of value at position p
+    if (it.value == null) {
+      p = n - 1;
+      end = s.getEndTime();
+    } else {
+      p = it.position;
+      end = it.time + it.duration;
+      if (end - s.slotDuration(s.slotOf(p)) >= t) {
+        end -= s.slotDuration(s.slotOf(p));
+        p--;
+      }
+    }
+    SignalSummary sum = s.getSummary();
+    int levels = sum.getLevels();
+    int first = s.firstSlot();
+    while (p >= 0) {
+      int i = s.slotOf(p);
+      int segStart = i >= first ? first : 0;
+      // skip the largest aligned block ending at i that lies within this
+      // segment of the circular storage and cannot contain a match
+      int skipped = 0;
+      for (int k = levels; k >= 1 && skipped == 0; k--) {
+        int span = 1 << (SignalSummary.BITS * k);
+        int node = i >> (SignalSummary.BITS * k);
+        int start = node << (SignalSummary.BITS * k);
+        if (Math.min(start + span, n) != i + 1 || start < segStart)
+          continue;
+        int count = i + 1 - start;
+        Value prev = p - count >= 0 ? s.slotValue(s.slotOf(p - count)) : null;
+        if (mayMatch(sum, k, node, prev))
+          continue;
+        end -= sum.getDuration(k, node);
+        skipped = count;
+      }
+      if (skipped > 0) {
+        p -= skipped;
+        continue;
+      }
+      Value v = s.slotValue(i);
+      Value prev = p > 0 ? s.slotValue(s.slotOf(p - 1)) : null;
+      long d = s.slotDuration(i);
+      if (matches(prev, v))
+        return end - d;
+      end -= d;
+      p--;
+    }
+    return -1;
+  }
+}
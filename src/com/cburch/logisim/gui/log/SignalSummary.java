@@ -0,0 +1,237 @@
+/**
+ * This file is part of Logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with Logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + Haute École Spécialisée Bernoise
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ *   + REDS Institute - HEIG-VD, Yverdon-les-Bains, Switzerland
+ *     http://reds.heig-vd.ch
+ * This version of the project is currently maintained by:
+ *   + Kevin Walsh (kwalsh@holycross.edu, http://mathcs.holycross.edu/~kwalsh)
+ */
+
+package com.cburch.logisim.gui.log;
+
+import java.util.Arrays;
+
+import com.cburch.logisim.data.Value;
+
+// SignalSummary is a multi-resolution (min/max) pyramid over the values of a
+// Signal, used so that long traces can be drawn, searched, and scrolled
+// without visiting every recorded value. Level k (for k >= 1) has one node for
+// each aligned block of FANOUT^k slots of the Signal's circular storage, and
+// each node records the total duration of the values in that block, the
+// minimum and maximum fully-defined value, the bitwise OR and AND of all
+// fully-defined values, and whether any value in the block is unknown or an
+// error. Level 0 is just the Signal's storage itself. The chronogram uses the
+// min/max to draw dense regions, and SignalSearch uses all of it to rule out
+// entire blocks that cannot contain a match.
+//
+// The pyramid is maintained incrementally: as the Signal is extended, it marks
+// the affected slots as dirty, and only nodes covering dirty slots get
+// recomputed, lazily, the next time the summary is used.
+class SignalSummary {
+
+  static final int BITS = 4;
+  static final int FANOUT = 1 << BITS;
+
+  static final byte UNKNOWN = 1;
+  static final byte ERROR = 2;
+
+  private final Signal signal;
+  private int levels; // number of levels above level 0
+  private long[][] sum = new long[0][]; // total duration, per level and node
+  private long[][] min = new long[0][]; // min known value, or Long.MAX_VALUE
+  private long[][] max = new long[0][]; // max known value, or -1
+  private int[][] or = new int[0][]; // bitwise OR of known values, or 0
+  private int[][] and = new int[0][]; // bitwise AND of known values, or -1
+  private byte[][] flags = new byte[0][]; // UNKNOWN and/or ERROR
+  private int dirtyLo = 0, dirtyHi = 0; // dirty slots, lo inclusive, hi exclusive
+
+  SignalSummary(Signal s) {
+    signal = s;
+  }
+
+  void markDirty(int slot) {
+    if (dirtyLo >= dirtyHi) {
+      dirtyLo = slot;
+      dirtyHi = slot + 1;
+    } else {
+      dirtyLo = Math.min(dirtyLo, slot);
+      dirtyHi = Math.max(dirtyHi, slot + 1);
+    }
+  }
+
+  void invalidate() {
+    levels = 0;
+    dirtyLo = 0;
+    dirtyHi = signal.slotCount();
+  }
+
+  static long unsignedValue(Value v) {
+    return v.toIntValue() & 0xffffffffL;
+  }
+
+  private static byte flagsFor(Value v) {
+    if (v.isFullyDefined())
+      return 0;
+    return v.isErrorValue() ? ERROR : UNKNOWN;
+  }
+
+  // Bring all nodes covering dirty slots up to date.
+  void update() {
+    int n = signal.slotCount();
+    int need = 0;
+    for (int span = FANOUT; span < n; span <<= BITS)
+      need++;
+    if (n > 1)
+      need++; // top level has a single node covering everything
+    if (need > levels || sum.length < need) {
+      // more levels needed, so recompute everything
+      ensureLevels(need);
+      levels = need;
+      dirtyLo = 0;
+      dirtyHi = n;
+    }
+    if (dirtyLo >= dirtyHi)
+      return;
+    int lo = dirtyLo, hi = Math.min(dirtyHi, Math.max(n, 1));
+    dirtyLo = dirtyHi = 0;
+    for (int k = 1; k <= levels; k++) {
+      int nodeLo = lo >> (BITS * k);
+      int nodeHi = ((hi - 1) >> (BITS * k)) + 1;
+      int nodes = ((n - 1) >> (BITS * k)) + 1;
+      ensureCapacity(k, nodes);
+      for (int j = nodeLo; j < nodeHi && j < nodes; j++)
+        recompute(k, j, n);
+    }
+  }
+
+  private void ensureLevels(int need) {
+    if (sum.length >= need)
+      return;
+    sum = Arrays.copyOf(sum, need + 1);
+    min = Arrays.copyOf(min, need + 1);
+    max = Arrays.copyOf(max, need + 1);
+    or = Arrays.copyOf(or, need + 1);
+    and = Arrays.copyOf(and, need + 1);
+    flags = Arrays.copyOf(flags, need + 1);
+  }
+
+  private void ensureCapacity(int k, int nodes) {
+    if (sum[k-1] != null && sum[k-1].length >= nodes)
+      return;
+    int cap = Math.max(nodes, sum[k-1] == null ? 16 : 2 * sum[k-1].length);
+    sum[k-1] = sum[k-1] == null ? new long[cap] : Arrays.copyOf(sum[k-1], cap);
+    min[k-1] = min[k-1] == null ? new long[cap] : Arrays.copyOf(min[k-1], cap);
+    max[k-1] = max[k-1] == null ? new long[cap] : Arrays.copyOf(max[k-1], cap);
+    or[k-1] = or[k-1] == null ? new int[cap] : Arrays.copyOf(or[k-1], cap);
+    and[k-1] = and[k-1] == null ? new int[cap] : Arrays.copyOf(and[k-1], cap);
+    flags[k-1] = flags[k-1] == null ? new byte[cap] : Arrays.copyOf(flags[k-1], cap);
+  }
+
+  private void recompute(int k, int j, int n) {
+    long s = 0, lo = Long.MAX_VALUE, hi = -1;
+    int bitsOr = 0, bitsAnd = -1;
+    byte f = 0;
+    int first = j << BITS; // first child index at level k-1
+    if (k == 1) {
+      int last = Math.min(first + FANOUT, n);
+      for (int i = first; i < last; i++) {
+        Value v = signal.slotValue(i);
+        s += signal.slotDuration(i);
+        byte g = flagsFor(v);
+        f |= g;
+        if (g == 0) {
+          long x = unsignedValue(v);
+          lo = Math.min(lo, x);
+          hi = Math.max(hi, x);
+          bitsOr |= (int)x;
+          bitsAnd &= (int)x;
+        }
+      }
+    } else {
+      int children = ((n - 1) >> (BITS * (k-1))) + 1;
+      int last = Math.min(first + FANOUT, children);
+      for (int i = first; i < last; i++) {
+        s += sum[k-2][i];
+        f |= flags[k-2][i];
+        lo = Math.min(lo, min[k-2][i]);
+        hi = Math.max(hi, max[k-2][i]);
+        bitsOr |= or[k-2][i];
+        bitsAnd &= and[k-2][i];
+      }
+    }
+    sum[k-1][j] = s;
+    min[k-1][j] = lo;
+    max[k-1][j] = hi;
+    or[k-1][j] = bitsOr;
+    and[k-1][j] = bitsAnd;
+    flags[k-1][j] = f;
+  }
+
+  int getLevels() {
+    return levels;
+  }
+
+  // The following accessors require k >= 1, and update() to have been called.
+  long getDuration(int k, int node) {
+    return sum[k-1][node];
+  }
+
+  long getMin(int k, int node) {
+    return min[k-1][node];
+  }
+
+  long getMax(int k, int node) {
+    return max[k-1][node];
+  }
+
+  int getOr(int k, int node) {
+    return or[k-1][node];
+  }
+
+  int getAnd(int k, int node) {
+    return and[k-1][node];
+  }
+
+  void accumulate(int k, int node, Signal.Range r) {
+    r.count += Math.min(FANOUT << (BITS * (k-1)),
+        signal.slotCount() - (node << (BITS * k)));
+    r.min = Math.min(r.min, min[k-1][node]);
+    r.max = Math.max(r.max, max[k-1][node]);
+    byte f = flags[k-1][node];
+    r.unknown |= (f & UNKNOWN) != 0;
+    r.error |= (f & ERROR) != 0;
+  }
+
+  static void accumulate(Value v, Signal.Range r) {
+    r.count++;
+    byte f = flagsFor(v);
+    if (f == 0) {
+      long x = unsignedValue(v);
+      r.min = Math.min(r.min, x);
+      r.max = Math.max(r.max, x);
+    }
+    r.unknown |= (f & UNKNOWN) != 0;
+    r.error |= (f & ERROR) != 0;
+  }
+}
@@ -0,0 +1,241 @@
+/**
+ * This file is part of Logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with Logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + Haute École Spécialisée Bernoise
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ *   + REDS Institute - HEIG-VD, Yverdon-les-Bains, Switzerland
+ *     http://reds.heig-vd.ch
+ * This version of the project is currently maintained by:
+ *   + Kevin Walsh (kwalsh@holycross.edu, http://mathcs.holycross.edu/~kwalsh)
+ */
+
+package com.cburch.logisim.gui.log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.circuit.SubcircuitFactory;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Value;
+
+// TraceRecorder is a headless, logic-analyzer style recorder for long-running
+// command-line simulations. It samples a fixed set of signals once per tick
+// into bounded, primitive ring buffers (value, unknown, and error bit masks,
+// so no objects are allocated per sample), and watches a trigger signal for a
+// condition, e.g. a given value or a rising edge. Once the trigger fires, a
+// further post-trigger window is recorded, after which the ring holds the
+// ticks surrounding the trigger and recording is complete. Without a trigger,
+// the ring simply holds the most recent ticks, like a flight recorder; callers
+// with no other way to end the run (e.g. no halt pin) can stop once isFull().
+public class TraceRecorder {
+
+  private static class Channel {
+    final SignalInfo info;
+    final Loggable log;
+    final CircuitState state;
+    final int width;
+    final int[] val, unk, err;
+
+    Channel(SignalInfo info, CircuitState root, int capacity) {
+      this.info = info;
+      this.log = (Loggable)info.getComponent().getFeature(Loggable.class);
+      this.state = info.fetchState(root);
+      this.width = info.getWidth();
+      val = new int[capacity];
+      unk = new int[capacity];
+      err = new int[capacity];
+    }
+
+    Value fetch() {
+      return log == null ? Value.NIL : log.getLogValue(state, info.getOption());
+    }
+  }
+
+  private final Channel[] channels;
+  private final long[] ticks;
+  private final int capacity, post;
+  private int first, count; // ring occupancy
+
+  private final Channel trigger; // may be null
+  private final SignalSearch condition;
+  private Value triggerPrev;
+  private long triggerTick = -1;
+  private int remaining = -1; // samples still to record after the trigger
+
+  // Records the given signals, keeping at most pre ticks before the trigger
+  // (or before the end, without a trigger) and post ticks after it.
+  public TraceRecorder(CircuitState root, List<SignalInfo> signals,
+      SignalInfo triggerSignal, SignalSearch condition, int pre, int post) {
+    this.capacity = Math.max(1, pre + 1 + post);
+    this.post = post;
+    this.condition = condition;
+    ArrayList<Channel> chans = new ArrayList<>();
+    Channel t = null;
+    for (SignalInfo info : signals) {
+      Channel c = new Channel(info, root, capacity);
+      chans.add(c);
+      if (info == triggerSignal)
+        t = c;
+    }
+    if (triggerSignal != null && t == null) {
+      t = new Channel(triggerSignal, root, capacity);
+      chans.add(t);
+    }
+    channels = chans.toArray(new Channel[chans.size()]);
+    trigger = t;
+    ticks = new long[capacity];
+  }
+
+  // Resolves a slash-separated path, as shown in the log and chronogram
+  // windows (e.g. "cpu/alu/result" or "cpu/alu/result[7..0]"), to a signal
+  // within root. Returns null if there is no such signal.
+  public static SignalInfo find(Circuit root, String name) {
+    name = name.trim().replaceFirst("\\[[0-9]+\\.\\.0\\]$", "");
+    String[] parts = name.split("/");
+    Component[] path = new Component[parts.length];
+    Object option = null;
+    Circuit circ = root;
+    for (int i = 0; i < parts.length; i++) {
+      boolean last = i == parts.length - 1;
+      Component found = null;
+      for (Component c : circ.getNonWires()) {
+        if (!last) {
+          if (c.getFactory() instanceof SubcircuitFactory
+              && parts[i].equals(SignalInfo.logName(c, null))) {
+            found = c;
+            break;
+          }
+          continue;
+        }
+        Loggable log = (Loggable)c.getFeature(Loggable.class);
+        if (log == null || c.getFactory() instanceof SubcircuitFactory)
+          continue;
+        if (parts[i].equals(SignalInfo.logName(c, null))) {
+          found = c;
+          break;
+        }
+        Object[] opts = log.getLogOptions();
+        if (opts == null)
+          continue;
+        for (Object opt : opts) {
+          if (parts[i].equals(SignalInfo.logName(c, opt))) {
+            found = c;
+            option = opt;
+            break;
+          }
+        }
+        if (found != null)
+          break;
+      }
+      if (found == null)
+        return null;
+      path[i] = found;
+      if (!last)
+        circ = ((SubcircuitFactory)found.getFactory()).getSubcircuit();
+    }
+    return new SignalInfo(root, path, option);
+  }
+
+  // Parses a trigger value for the given signal, e.g. "0x1f" or "-3".
+  public static Value parseValue(SignalInfo info, String s) throws Exception {
+    return Value.fromLogString(BitWidth.create(info.getWidth()), s.trim());
+  }
+
+  // Samples all signals for the given tick. Returns true once recording is
+  // complete, i.e. the trigger fired and the post-trigger window is full.
+  public boolean sample(long tick) {
+    if (remaining == 0)
+      return true;
+    int slot = (first + count) % capacity;
+    if (count == capacity)
+      first = (first + 1) % capacity;
+    else
+      count++;
+    ticks[slot] = tick;
+    for (Channel c : channels) {
+      Value v = c.fetch();
+      c.val[slot] = v.getValueMask();
+      c.unk[slot] = v.getUnknownMask();
+      c.err[slot] = v.getErrorMask();
+    }
+    if (remaining > 0) {
+      remaining--;
+    } else if (trigger != null) {
+      Value v = valueAt(trigger, slot);
+      // Signals record only changes, and matching is defined that way, so only
+      // consult the condition when the trigger signal changes.
+      if (!v.equals(triggerPrev) && condition.matches(triggerPrev, v)) {
+        triggerTick = tick;
+        remaining = post;
+      }
+      triggerPrev = v;
+    }
+    return remaining == 0;
+  }
+
+  private static Value valueAt(Channel c, int slot) {
+    return Value.create_unsafe(c.width, c.err[slot], c.unk[slot], c.val[slot]);
+  }
+
+  public boolean hasTriggered() {
+    return triggerTick >= 0;
+  }
+
+  public long getTriggerTick() {
+    return triggerTick;
+  }
+
+  public SignalInfo getTriggerSignal() {
+    return trigger == null ? null : trigger.info;
+  }
+
+  public int getSignalCount() {
+    return channels.length;
+  }
+
+  public SignalInfo getSignal(int s) {
+    return channels[s].info;
+  }
+
+  // Number of recorded ticks, at most pre + 1 + post.
+  public int size() {
+    return count;
+  }
+
+  // True once a full window of pre + 1 + post ticks has been recorded.
+  public boolean isFull() {
+    return count == capacity;
+  }
+
+  // Tick of the i-th recorded sample, oldest first.
+  public long getTick(int i) {
+    return ticks[(first + i) % capacity];
+  }
+
+  // Value of signal s in the i-th recorded sample, oldest first.
+  public Value getValue(int s, int i) {
+    return valueAt(channels[s], (first + i) % capacity);
+  }
+}
@@ -50,6 +50,7 @@ import java.beans.PropertyChangeListener;
 import java.util.List;
 import java.util.Set;
 
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JPopupMenu;
 import javax.swing.JScrollBar;
@@ -1065,6 +1066,17 @@ public class Canvas extends JPanel
     painter.setHighlightedWires(value);
   }
 
+  // Dialogs on behalf of tools, so that the tool classes, which headless runs
+  // also load, need not refer to windows themselves.
+  public int showConfirmDialog(String message, String title,
+      int optionType, int messageType) {
+    return JOptionPane.showConfirmDialog(this, message, title, optionType, messageType);
+  }
+
+  public void showMessageDialog(String message) {
+    JOptionPane.showMessageDialog(proj.getFrame(), message);
+  }
+
   public void showPopupMenu(JPopupMenu menu, int x, int y) {
     double zoom = getZoomFactor();
     if (zoom != 1.0) {
@@ -274,16 +274,10 @@ public class ExportImage {
     }
   }
 
-  public static final FileFilter PNG_FILTER =
-      Loader.makeFileFilter(S.getter("exportPngFilter"), ".png");
-  public static final FileFilter JPG_FILTER =
-      Loader.makeFileFilter(S.getter("exportJpgFilter"),
-          ".jpg", ".jpeg", ".jpe", ".jfi", ".jfif", ".jfi");
-
   public static FileFilter getFilter(String fmt) {
     switch (fmt) {
-    case FORMAT_PNG: return PNG_FILTER;
-    case FORMAT_JPG: return JPG_FILTER;
+    case FORMAT_PNG: return Loader.PNG_FILTER;
+    case FORMAT_JPG: return Loader.JPG_FILTER;
     default:
       System.err.println("Unexpected image format; aborted!");
       return null;
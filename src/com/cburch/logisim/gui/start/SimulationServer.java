@@ -0,0 +1,399 @@
+/**
+ * This file is part of Logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with Logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + Haute École Spécialisée Bernoise
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ *   + REDS Institute - HEIG-VD, Yverdon-les-Bains, Switzerland
+ *     http://reds.heig-vd.ch
+ * This version of the project is currently maintained by:
+ *   + Kevin Walsh (kwalsh@holycross.edu, http://mathcs.holycross.edu/~kwalsh)
+ */
+
+package com.cburch.logisim.gui.start;
+import static com.cburch.logisim.gui.start.Strings.S;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+
+import com.cburch.logisim.circuit.Analyze;
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.circuit.Propagator;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.TestException;
+import com.cburch.logisim.data.TestVector;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.LoadCanceledByUser;
+import com.cburch.logisim.file.LoadFailedException;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.gui.test.TestThread;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.util.StartupTiming;
+import com.cburch.logisim.util.UniquelyNamedThread;
+
+// SimulationServer is the -server mode: a long-lived process that carries out
+// simulation commands sent over a loopback socket, so that scripted clients
+// (autograders, test harnesses) pay for JVM startup and library loading once
+// instead of once per run. Each connection has its own project and simulation
+// state. A project file is parsed once and shared by all connections until it
+// changes on disk. Commands from all connections are carried out one at a
+// time, and run stops with an error after MAX_RUN_MILLIS so that one client
+// can't hold up the others indefinitely.
+//
+// The socket is reachable by every local user, and commands read and write
+// arbitrary files, so each connection must first send the random token that
+// the server prints at startup; a connection that doesn't is closed.
+//
+// Commands are one per line, and each gets a one-line reply: "ok", possibly
+// followed by results, or "error" followed by a message.
+//   auth TOKEN         authenticate, required before any other command
+//   load FILE          open a project and simulate its main circuit
+//   circuit NAME       simulate another circuit of the project
+//   pins               list the pins, e.g. "ok in:a:1 in:b:1 out:sum:2"
+//   set PIN VALUE ...  drive input pins, with values as in test vectors
+//   run [N]            propagate, then toggle the clocks N times (default 0)
+//   get [PIN ...]      read pins (default all), in binary
+//   reset              reset the simulation
+//   test FILE          run a test vector; the reply "ok PASSED FAILED" is
+//                      followed by one "fail ROW: MESSAGE" line per failure
+//   snapshot FILE      save the project, with the simulation state, to FILE
+//   quit               close the connection
+//   shutdown           stop the server
+class SimulationServer {
+
+  private static class CachedFile {
+    final long modified, length;
+    final LogisimFile.FileWithSimulations file;
+
+    CachedFile(File f, LogisimFile.FileWithSimulations file) {
+      this.modified = f.lastModified();
+      this.length = f.length();
+      this.file = file;
+    }
+  }
+
+  private static class CommandException extends Exception {
+    private static final long serialVersionUID = 1L;
+    CommandException(String msg) { super(msg); }
+  }
+
+  private static final long MAX_RUN_MILLIS = 10000;
+
+  static void run(Startup args) {
+    Loader.setExitIfLibraryMissing(false);
+    SimulationServer server;
+    try {
+      server = new SimulationServer(args);
+    } catch (IOException e) {
+      System.out.println(S.fmt("serverStartError", e.getMessage()));
+      System.exit(1);
+      return;
+    }
+    for (File f : args.getFilesToOpen()) {
+      try {
+        server.open(f);
+      } catch (CommandException e) {
+        System.out.println(e.getMessage());
+        System.exit(1);
+      }
+    }
+    System.out.println(S.fmt("serverListening", "" + server.socket.getLocalPort(),
+          server.token));
+    System.out.flush();
+    StartupTiming.mark("server started");
+    server.serve();
+  }
+
+  private Startup args;
+  private ServerSocket socket;
+  private String token;
+  private HashMap<File, CachedFile> files = new HashMap<>();
+
+  private SimulationServer(Startup args) throws IOException {
+    this.args = args;
+    byte[] b = new byte[16];
+    new SecureRandom().nextBytes(b);
+    StringBuilder t = new StringBuilder();
+    for (byte x : b)
+      t.append(String.format("%02x", x & 0xff));
+    this.token = t.toString();
+    this.socket = new ServerSocket(args.getServerPort(), 50,
+        InetAddress.getLoopbackAddress());
+  }
+
+  private void serve() {
+    while (true) {
+      try {
+        new Connection(socket.accept()).start();
+      } catch (IOException e) {
+        System.out.println(S.fmt("serverStartError", e.getMessage()));
+        System.exit(1);
+      }
+    }
+  }
+
+  // Returns the project in f, parsing it again only if the file has changed
+  // since it was last opened.
+  private LogisimFile.FileWithSimulations open(File f) throws CommandException {
+    f = f.getAbsoluteFile();
+    if (!f.canRead())
+      throw new CommandException(S.fmt("ttyLoadError", f.getName()));
+    CachedFile cached = files.get(f);
+    if (cached != null && cached.modified == f.lastModified()
+        && cached.length == f.length())
+      return cached.file;
+    try {
+      LogisimFile.FileWithSimulations file =
+          new Loader(null).openLogisimFile(f, args.getSubstitutions());
+      files.put(f, new CachedFile(f, file));
+      return file;
+    } catch (LoadCanceledByUser e) {
+      throw new CommandException(S.fmt("ttyLoadCancel", f.getName()));
+    } catch (LoadFailedException e) {
+      throw new CommandException(S.fmt("ttyLoadError", f.getName())
+          + ": " + e.getMessage());
+    }
+  }
+
+  private class Connection extends UniquelyNamedThread {
+    private Socket client;
+    private PrintWriter out;
+    private Project proj;
+    private CircuitState state;
+    private SortedMap<Instance, String> pins;
+
+    Connection(Socket client) {
+      super("SimulationServer-Connection");
+      this.client = client;
+    }
+
+    @Override
+    public void run() {
+      try (Socket s = client) {
+        BufferedReader in = new BufferedReader(new InputStreamReader(
+              s.getInputStream(), StandardCharsets.UTF_8));
+        out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(
+              s.getOutputStream(), StandardCharsets.UTF_8)));
+        String line = in.readLine();
+        if (line == null)
+          return;
+        line = line.trim();
+        if (!line.startsWith("auth ") || !MessageDigest.isEqual(
+              line.substring(5).trim().getBytes(StandardCharsets.UTF_8),
+              token.getBytes(StandardCharsets.UTF_8))) {
+          out.println("error not authenticated");
+          out.flush();
+          return;
+        }
+        out.println("ok");
+        out.flush();
+        while ((line = in.readLine()) != null) {
+          line = line.trim();
+          if (line.isEmpty())
+            continue;
+          int sp = line.indexOf(' ');
+          String cmd = sp < 0 ? line : line.substring(0, sp);
+          String rest = sp < 0 ? "" : line.substring(sp + 1).trim();
+          if (cmd.equals("quit")) {
+            out.println("ok");
+            break;
+          }
+          synchronized (SimulationServer.this) {
+            try {
+              doCommand(cmd, rest);
+            } catch (CommandException e) {
+              reply("error " + e.getMessage());
+            } catch (Exception e) {
+              reply("error " + e);
+            }
+          }
+          out.flush();
+        }
+        out.flush();
+      } catch (IOException e) {
+        // the client has gone away
+      } finally {
+        if (proj != null)
+          proj.getSimulator().shutDown();
+      }
+    }
+
+    private void reply(String msg) {
+      out.println(msg.replace('\n', ' ').replace('\r', ' '));
+    }
+
+    private void doCommand(String cmd, String rest) throws Exception {
+      String[] words = rest.isEmpty() ? new String[0] : rest.split("\\s+");
+      if (cmd.equals("load")) {
+        LogisimFile.FileWithSimulations file = open(new File(rest));
+        if (proj != null)
+          proj.getSimulator().shutDown();
+        proj = new Project(file);
+        // This thread does all the propagating, not the simulator's own.
+        proj.getSimulator().setAutoPropagation(false);
+        select(file.file.getMainCircuit());
+        reply("ok");
+      } else if (cmd.equals("shutdown")) {
+        reply("ok");
+        out.flush();
+        System.exit(0);
+      } else if (proj == null) {
+        throw new CommandException("no project loaded");
+      } else if (cmd.equals("circuit")) {
+        select(proj.getLogisimFile().getCircuit(rest));
+        reply("ok");
+      } else if (cmd.equals("pins")) {
+        StringBuilder ret = new StringBuilder("ok");
+        for (Map.Entry<Instance, String> e : pins.entrySet()) {
+          Instance pin = e.getKey();
+          ret.append(Pin.FACTORY.isInputPin(pin) ? " in:" : " out:");
+          ret.append(e.getValue()).append(':');
+          ret.append(pin.getAttributeValue(StdAttr.WIDTH).getWidth());
+        }
+        reply(ret.toString());
+      } else if (cmd.equals("set")) {
+        if (words.length == 0 || words.length % 2 != 0)
+          throw new CommandException("usage: set PIN VALUE ...");
+        Instance[] toSet = new Instance[words.length / 2];
+        Value[] vals = new Value[words.length / 2];
+        for (int i = 0; i < toSet.length; i++) {
+          toSet[i] = findPin(words[2*i]);
+          if (!Pin.FACTORY.isInputPin(toSet[i]))
+            throw new CommandException("not an input pin: " + words[2*i]);
+          BitWidth width = toSet[i].getAttributeValue(StdAttr.WIDTH);
+          try {
+            vals[i] = Value.fromLogString(width, words[2*i+1]);
+          } catch (Exception e) {
+            throw new CommandException("bad value for " + words[2*i] + ": " + e.getMessage());
+          }
+        }
+        for (int i = 0; i < toSet.length; i++) {
+          InstanceState pinState = state.getInstanceState(toSet[i]);
+          Pin.FACTORY.driveInputPin(pinState, vals[i]);
+          Pin.FACTORY.propagate(pinState);
+        }
+        reply("ok");
+      } else if (cmd.equals("run")) {
+        int n = 0;
+        if (words.length > 0) {
+          try {
+            n = Integer.parseInt(words[0]);
+          } catch (NumberFormatException e) {
+            n = -1;
+          }
+          if (n < 0 || words.length > 1)
+            throw new CommandException("usage: run [N]");
+        }
+        Propagator prop = state.getPropagator();
+        propagate();
+        long deadline = System.currentTimeMillis() + MAX_RUN_MILLIS;
+        for (int i = 0; i < n; i++) {
+          if (System.currentTimeMillis() > deadline)
+            throw new CommandException("time limit reached after " + i + " ticks");
+          prop.toggleClocks();
+          propagate();
+        }
+        reply("ok");
+      } else if (cmd.equals("get")) {
+        StringBuilder ret = new StringBuilder("ok");
+        if (words.length == 0) {
+          for (Instance pin : pins.keySet())
+            ret.append(' ').append(Pin.FACTORY.getValue(state.getInstanceState(pin)).toBinaryString());
+        }
+        for (String name : words) {
+          Instance pin = findPin(name);
+          ret.append(' ').append(Pin.FACTORY.getValue(state.getInstanceState(pin)).toBinaryString());
+        }
+        reply(ret.toString());
+      } else if (cmd.equals("reset")) {
+        state.reset();
+        propagate();
+        reply("ok");
+      } else if (cmd.equals("test")) {
+        TestVector vec;
+        try {
+          vec = new TestVector(new File(rest));
+        } catch (IOException e) {
+          throw new CommandException(e.getMessage());
+        }
+        ArrayList<String> failures = new ArrayList<>();
+        int passed;
+        try {
+          passed = TestThread.runTestVector(proj, state.getCircuit(), vec, failures);
+        } catch (TestException e) {
+          throw new CommandException(e.getMessage());
+        }
+        reply("ok " + passed + " " + failures.size());
+        for (String f : failures)
+          reply("fail " + f);
+      } else if (cmd.equals("snapshot")) {
+        proj.getLogisimFile().saveCopy(new File(rest), proj);
+        reply("ok");
+      } else {
+        throw new CommandException("unknown command: " + cmd);
+      }
+    }
+
+    private void select(Circuit circuit) throws CommandException {
+      if (circuit == null)
+        throw new CommandException("no such circuit");
+      proj.setCurrentCircuit(circuit);
+      state = proj.getCircuitState();
+      pins = Analyze.getPinLabels(circuit);
+      state.getPropagator().propagate();
+    }
+
+    private Instance findPin(String name) throws CommandException {
+      for (Map.Entry<Instance, String> e : pins.entrySet())
+        if (e.getValue().equals(name))
+          return e.getKey();
+      throw new CommandException("no such pin: " + name);
+    }
+
+    private void propagate() throws CommandException {
+      Propagator prop = state.getPropagator();
+      prop.propagate();
+      if (prop.isOscillating())
+        throw new CommandException("oscillation");
+    }
+  }
+}
@@ -62,6 +62,7 @@ import com.cburch.logisim.proj.ProjectActions;
 import com.cburch.logisim.util.Debug;
 import com.cburch.logisim.util.Errors;
 import com.cburch.logisim.util.LocaleManager;
+import com.cburch.logisim.util.StartupTiming;
 
 public class Startup {
 
@@ -95,6 +96,11 @@ public class Startup {
     options.put("-tty", HEADLESS | ONEPARAM | NEEDFILE);
     options.put("-circuit", HEADLESS | ONEPARAM);
     options.put("-load", HEADLESS | ONEPARAM);
+    options.put("-save", HEADLESS | ONEPARAM | NEEDFILE);
+    options.put("-trace", HEADLESS | ONEPARAM | NEEDFILE);
+    options.put("-trigger", HEADLESS | ONEPARAM | NEEDFILE);
+    options.put("-window", HEADLESS | ONEPARAM);
+    options.put("-server", HEADLESS | ONEPARAM);
 
     options.put("-verbose", 0);
     options.put("-v", 0);
@@ -108,6 +114,7 @@ public class Startup {
     options.put("-noupdate", 0); // obsolte like auto-updates
     options.put("-analyze", 0); // obsolete option to enable analysis menu
     options.put("-debug", 0); // undocumented, enables debug console
+    options.put("-timing", 0);
   }
 
   public static Startup parseArgs(String[] args) {
@@ -150,8 +157,13 @@ public class Startup {
         Debug.verbose += 5;
     }
 
-    if (GraphicsEnvironment.isHeadless() && !Main.headless)
+    if (Main.headless) {
+      // Nothing needs a display, not even -png, which renders to an image.
+      // Saying so up front keeps any AWT use from probing for one.
+      System.setProperty("java.awt.headless", "true");
+    } else if (GraphicsEnvironment.isHeadless()) {
       fail(S.get("argHeadlessError"));
+    }
 
     if (!Main.headless) {
       // we're using the GUI: Set up the Look&Feel to match the platform
@@ -235,6 +247,12 @@ public class Startup {
             ret.ttyFormat |= TtyInterface.FORMAT_TABLE_CSV;
           else if (fmt.equals("tabs"))
             ret.ttyFormat |= TtyInterface.FORMAT_TABLE_TABBED;
+          else if (fmt.equals("raw"))
+            ret.ttyFormat |= TtyInterface.FORMAT_RAW;
+          else if (fmt.equals("changes"))
+            ret.ttyFormat |= TtyInterface.FORMAT_CHANGES;
+          else if (fmt.equals("memtrace"))
+            ret.ttyFormat |= TtyInterface.FORMAT_MEMTRACE;
           else if (fmt.startsWith("choose:")) {
             ret.ttyFormat |= TtyInterface.FORMAT_RANDOMIZE;
             String[] p = fmt.split(":");
@@ -259,6 +277,37 @@ public class Startup {
             fail("unrecognized tty args: " + fmt);
           }
         }
+      } else if (arg.equals("-trace")) {
+        ret.headlessTty = true;
+        // split on commas, except those within unlabeled names like "Pin(10,20)"
+        ret.traceSignals = param0.split(",(?![^(]*\\))");
+      } else if (arg.equals("-trigger")) {
+        ret.headlessTty = true;
+        ret.traceTrigger = param0;
+      } else if (arg.equals("-window")) {
+        String[] p = param0.split(":");
+        try {
+          if (p.length == 1) {
+            ret.tracePre = ret.tracePost = Integer.parseInt(p[0]);
+          } else if (p.length == 2) {
+            ret.tracePre = Integer.parseInt(p[0]);
+            ret.tracePost = Integer.parseInt(p[1]);
+          } else {
+            fail(S.get("argWindowError"));
+          }
+        } catch (NumberFormatException e) {
+          fail(S.get("argWindowError"));
+        }
+        if (ret.tracePre < 0 || ret.tracePost < 0)
+          fail(S.get("argWindowError"));
+      } else if (arg.equals("-server")) {
+        try {
+          ret.serverPort = Integer.parseInt(param0);
+        } catch (NumberFormatException e) {
+          fail(S.get("argServerError"));
+        }
+        if (ret.serverPort < 0 || ret.serverPort > 65535)
+          fail(S.get("argServerError"));
       } else if (arg.equals("-png")) {
         ret.headlessPng = true;
         String[] circuits = param0.split(",");
@@ -269,6 +318,8 @@ public class Startup {
         ret.headlessList = true;
       } else if (arg.equals("-pretty")) {
         ret.headlessPretty = true;
+      } else if (arg.equals("-timing")) {
+        StartupTiming.enable();
       } else if (arg.equals("-sub")) {
         if (ret.substitutions.containsKey(param0))
           fail(S.get("argDuplicateSubstitutionError"));
@@ -277,6 +328,10 @@ public class Startup {
         if (ret.loadFile != null)
           fail(S.get("loadMultipleError"));
         ret.loadFile = new File(param0);
+      } else if (arg.equals("-save")) {
+        if (ret.saveFile != null)
+          fail(S.get("saveMultipleError"));
+        ret.saveFile = new File(param0);
       } else if (arg.equals("-empty")) {
         if (ret.templFile != null || ret.templEmpty || ret.templPlain)
           fail(S.get("argOneTemplateError"));
@@ -393,6 +448,7 @@ public class Startup {
     System.err.println("   " + S.get("argQuestaOption")); // OK
     System.err.println("   " + S.get("argSubOption")); // OK
     System.err.println("   " + S.get("argTestOption")); // OK
+    System.err.println("   " + S.get("argTimingOption")); // OK
     System.err.println(); // OK
     System.err.println(S.get("argTTYOptionHeader")); // OK
     System.err.println("   " + S.get("argVersionOption")); // OK
@@ -403,6 +459,11 @@ public class Startup {
     System.err.println("   " + S.get("argTtyOption")); // OK
     System.err.println("   " + S.get("argCircuitOption")); // OK
     System.err.println("   " + S.get("argLoadOption")); // OK
+    System.err.println("   " + S.get("argSaveOption")); // OK
+    System.err.println("   " + S.get("argTraceOption")); // OK
+    System.err.println("   " + S.get("argTriggerOption")); // OK
+    System.err.println("   " + S.get("argWindowOption")); // OK
+    System.err.println("   " + S.get("argServerOption")); // OK
     System.exit(0);
   }
 
@@ -506,9 +567,14 @@ public class Startup {
   private boolean exitAfterStartup = false;
   private boolean showSplash;
   private File loadFile;
+  private File saveFile;
+  private int serverPort = -1;
   private HashMap<String, String> substitutions = new HashMap<>();
   private int ttyFormat = 0;
   private int ttyRandomHead, ttyRandomBody, ttyRandomTail;
+  private String[] traceSignals;
+  private String traceTrigger;
+  private int tracePre = 1000, tracePost = 1000;
   // from other sources
   private boolean initialized = false;
   private SplashScreen monitor = null;
@@ -545,6 +611,14 @@ public class Startup {
     return loadFile;
   }
 
+  File getSaveFile() {
+    return saveFile;
+  }
+
+  int getServerPort() {
+    return serverPort;
+  }
+
   String getCircuitToTest() {
     return circuitToTest;
   }
@@ -557,6 +631,10 @@ public class Startup {
   int getTtyRandomHead() { return ttyRandomHead; }
   int getTtyRandomBody() { return ttyRandomBody; }
   int getTtyRandomTail() { return ttyRandomTail; }
+  String[] getTraceSignals() { return traceSignals; }
+  String getTraceTrigger() { return traceTrigger; }
+  int getTracePre() { return tracePre; }
+  int getTracePost() { return tracePost; }
 
   private void loadTemplate() {
     if (templFile != null) {
@@ -570,134 +648,155 @@ public class Startup {
   }
 
   public void run() {
-    if (Main.headless) {
+    if (Main.headless && serverPort >= 0) {
       try {
-        TtyInterface.run(this);
+        SimulationServer.run(this);
       } catch (Exception t) {
         t.printStackTrace();
         System.exit(1);
       }
     }
-
-    // kick off the progress monitor
-    // (The values used for progress values are based on a single run where
-    // I loaded a large file.)
-    if (showSplash) {
+    if (Main.headless) {
       try {
-        monitor = new SplashScreen();
-        monitor.setVisible(true);
+        TtyInterface.run(this);
       } catch (Exception t) {
-        monitor = null;
-        showSplash = false;
+        t.printStackTrace();
+        System.exit(1);
       }
     }
 
-    // pre-load the two basic component libraries, just so that the time
-    // taken is shown separately in the progress bar.
-    if (showSplash) {
-      monitor.setProgress(SplashScreen.LIBRARIES);
-    }
-    Loader preLoader = new Loader(monitor);
-    int count;
-    count = preLoader.getBuiltin().getLibrary("Base").getTools().size();
-    count += preLoader.getBuiltin().getLibrary("Gates").getTools().size();
-    if (count < 0) {
-      // this will never happen, but the optimizer doesn't know that...
-      System.out.println("FATAL ERROR - no components"); // OK
-      System.exit(1);
-    }
+    // The rest sets up the GUI. It is in a class of its own so that headless
+    // runs, which never get this far, don't load window classes to verify it.
+    new Gui().run();
+  }
 
-    // load in template
-    if (showSplash)
-      monitor.setProgress(SplashScreen.TEMPLATE_OPEN);
-    loadTemplate();
-
-    // now that the splash screen is almost gone, we do some last-minute
-    // interface initialization
-    if (showSplash)
-      monitor.setProgress(SplashScreen.GUI_INIT);
-    WindowManagers.initialize();
-    if (desktop != null
-        && desktop.isSupported(Desktop.Action.APP_MENU_BAR)) {
-      LogisimMenuBar menubar = new LogisimMenuBar(null, null, null, null);
-      try {
-        desktop.setDefaultMenuBar(menubar);
-        Main.HasWindowlessMenubar = true;
-      } catch (Exception e) {
-        e.printStackTrace();
+  private class Gui {
+    void run() {
+      // kick off the progress monitor
+      // (The values used for progress values are based on a single run where
+      // I loaded a large file.)
+      if (showSplash) {
+        try {
+          monitor = new SplashScreen();
+          monitor.setVisible(true);
+        } catch (Exception t) {
+          monitor = null;
+          showSplash = false;
+        }
       }
-    } else {
-      Debug.println(1, "Note [7]: no desktop menubar support");
-      new LogisimMenuBar(null, null, null, null);
-      // most of the time occupied here will be in loading menus, which
-      // will occur eventually anyway; we might as well do it when the
-      // monitor says we are
-    }
 
-    // Make ENTER and SPACE have the same effect for focused buttons.
-    UIManager.getDefaults().put("Button.focusInputMap",
-        new UIDefaults.LazyInputMap(new Object[] {
-          "ENTER", "pressed",
-          "released ENTER", "released",
-          "SPACE","pressed",
-          "released SPACE","released"
-        }));
-
-    // if user has double-clicked a file to open, we'll
-    // use that as the file to open now.
-    initialized = true;
-
-    // load file
-    if (filesToOpen.isEmpty()) {
-      Project proj = ProjectActions.doNew(monitor);
-      proj.setStartupScreen(true);
+      // pre-load the two basic component libraries, just so that the time
+      // taken is shown separately in the progress bar.
+      if (showSplash) {
+        monitor.setProgress(SplashScreen.LIBRARIES);
+      }
+      Loader preLoader = new Loader(monitor);
+      int count;
+      count = preLoader.getBuiltin().getLibrary("Base").getTools().size();
+      count += preLoader.getBuiltin().getLibrary("Gates").getTools().size();
+      if (count < 0) {
+        // this will never happen, but the optimizer doesn't know that...
+        System.out.println("FATAL ERROR - no components"); // OK
+        System.exit(1);
+      }
+      StartupTiming.mark("builtin libraries");
+
+      // load in template
       if (showSplash)
-        monitor.close();
-    } else {
-      int numOpened = 0;
-      boolean first = true;
-      for (File fileToOpen : filesToOpen) {
+        monitor.setProgress(SplashScreen.TEMPLATE_OPEN);
+      loadTemplate();
+      StartupTiming.mark("template loaded");
+
+      // now that the splash screen is almost gone, we do some last-minute
+      // interface initialization
+      if (showSplash)
+        monitor.setProgress(SplashScreen.GUI_INIT);
+      WindowManagers.initialize();
+      if (desktop != null
+          && desktop.isSupported(Desktop.Action.APP_MENU_BAR)) {
+        LogisimMenuBar menubar = new LogisimMenuBar(null, null, null, null);
         try {
-          if (testVector != null) {
-            Project proj = ProjectActions.doOpenNoWindow(monitor,
-                fileToOpen, substitutions);
-            proj.doTestVector(testVector, circuitToTest);
-          } else {
-            ProjectActions.doOpen(monitor, fileToOpen, substitutions);
+          desktop.setDefaultMenuBar(menubar);
+          Main.HasWindowlessMenubar = true;
+        } catch (Exception e) {
+          e.printStackTrace();
+        }
+      } else {
+        Debug.println(1, "Note [7]: no desktop menubar support");
+        new LogisimMenuBar(null, null, null, null);
+        // most of the time occupied here will be in loading menus, which
+        // will occur eventually anyway; we might as well do it when the
+        // monitor says we are
+      }
+
+      // Make ENTER and SPACE have the same effect for focused buttons.
+      UIManager.getDefaults().put("Button.focusInputMap",
+          new UIDefaults.LazyInputMap(new Object[] {
+            "ENTER", "pressed",
+            "released ENTER", "released",
+            "SPACE","pressed",
+            "released SPACE","released"
+          }));
+      StartupTiming.mark("interface initialized");
+
+      // if user has double-clicked a file to open, we'll
+      // use that as the file to open now.
+      initialized = true;
+
+      // load file
+      if (filesToOpen.isEmpty()) {
+        Project proj = ProjectActions.doNew(monitor);
+        proj.setStartupScreen(true);
+        if (showSplash)
+          monitor.close();
+      } else {
+        int numOpened = 0;
+        boolean first = true;
+        for (File fileToOpen : filesToOpen) {
+          try {
+            if (testVector != null) {
+              Project proj = ProjectActions.doOpenNoWindow(monitor,
+                  fileToOpen, substitutions);
+              proj.doTestVector(testVector, circuitToTest);
+            } else {
+              ProjectActions.doOpen(monitor, fileToOpen, substitutions);
+            }
+            numOpened++;
+          } catch (LoadCanceledByUser ex) {
+            // eat exception
+          } catch (LoadFailedException ex) {
+            Errors.title(S.get("startupFailTitle")).show(
+                S.fmt("startupCantOpenError", fileToOpen.getName()), ex);
+          }
+          if (first) {
+            first = false;
+            if (showSplash)
+              monitor.close();
+            monitor = null;
           }
-          numOpened++;
-        } catch (LoadCanceledByUser ex) {
-          // eat exception
-        } catch (LoadFailedException ex) {
-          Errors.title(S.get("startupFailTitle")).show(
-              S.fmt("startupCantOpenError", fileToOpen.getName()), ex);
         }
-        if (first) {
-          first = false;
-          if (showSplash)
-            monitor.close();
-          monitor = null;
+        if (numOpened == 0 && filesToPrint.isEmpty()) {
+          if (exitAfterStartup)
+            System.exit(1);
+          else
+            ProjectActions.doNew((SplashScreen)null);
         }
       }
-      if (numOpened == 0 && filesToPrint.isEmpty()) {
-        if (exitAfterStartup)
-          System.exit(1);
-        else
-          ProjectActions.doNew((SplashScreen)null);
-      }
-    }
 
-    for (File fileToPrint : filesToPrint)
-      doPrintFile(fileToPrint);
+      StartupTiming.mark("projects opened");
 
-    if (exitAfterStartup)
-      System.exit(0);
+      for (File fileToPrint : filesToPrint)
+        doPrintFile(fileToPrint);
 
-    // check for stray auto-backup files
-    try {
-      Loader.checkForAutoBackups();
-    } catch (Exception e) {
-      e.printStackTrace();
+      if (exitAfterStartup)
+        System.exit(0);
+
+      // check for stray auto-backup files
+      try {
+        Loader.checkForAutoBackups();
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
     }
   }
 
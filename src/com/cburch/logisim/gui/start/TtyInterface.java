@@ -31,12 +31,22 @@
 package com.cburch.logisim.gui.start;
 import static com.cburch.logisim.gui.start.Strings.S;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Random;
@@ -56,7 +66,11 @@ import com.cburch.logisim.file.LoadFailedException;
 import com.cburch.logisim.file.Loader;
 import com.cburch.logisim.file.LogisimFile;
 import com.cburch.logisim.gui.hex.HexFile;
+import com.cburch.logisim.gui.hex.ImageLoader;
 import com.cburch.logisim.gui.log.Loggable;
+import com.cburch.logisim.gui.log.SignalInfo;
+import com.cburch.logisim.gui.log.SignalSearch;
+import com.cburch.logisim.gui.log.TraceRecorder;
 import com.cburch.logisim.gui.main.Canvas;
 import com.cburch.logisim.gui.main.ExportImage;
 import com.cburch.logisim.instance.Instance;
@@ -65,11 +79,14 @@ import com.cburch.logisim.instance.StdAttr;
 import com.cburch.logisim.proj.Project;
 import com.cburch.logisim.std.io.Keyboard;
 import com.cburch.logisim.std.io.Tty;
+import com.cburch.logisim.std.memory.Mem;
 import com.cburch.logisim.std.memory.MemContents;
+import com.cburch.logisim.std.memory.MemTrace;
 import com.cburch.logisim.std.memory.Ram;
 import com.cburch.logisim.std.memory.Register;
 import com.cburch.logisim.std.wiring.Pin;
 import com.cburch.logisim.tools.Library;
+import com.cburch.logisim.util.StartupTiming;
 import com.cburch.logisim.util.UniquelyNamedThread;
 
 public class TtyInterface {
@@ -123,6 +140,97 @@ public class TtyInterface {
     }
   }
 
+  // RawTable writes simulation outputs as fixed-width little-endian binary
+  // records, for long runs piped into analysis scripts, where formatting text
+  // for every pin on every tick would dominate. Output is buffered, and each
+  // record is encoded into a single reused buffer, so nothing is allocated per
+  // tick.
+  //
+  // The stream starts with a header:
+  //   4 bytes   magic "LTTY"
+  //   u16       version (1)
+  //   u16       flags (bit 0 set if only changed rows are written)
+  //   u32       number of pins, n
+  //   u32       record size in bytes
+  //   n times:  u8 bit width, u16 name length, name in UTF-8
+  // Then one record per tick (or per change):
+  //   u64       tick number
+  //   (n+7)/8   bytes, with bit i set if pin i has unknown or error bits
+  //   n times:  (width+7)/8 bytes of pin value, least significant first
+  private static class RawTable {
+    private final OutputStream out;
+    private final boolean changesOnly;
+    private final int[] widths;
+    private final ByteBuffer rec, prev;
+    private final int maskOffset, valueOffset;
+    private boolean first = true;
+
+    RawTable(ArrayList<String> names, int[] widths, boolean changesOnly) throws IOException {
+      this.out = new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16);
+      this.changesOnly = changesOnly;
+      this.widths = widths;
+      int n = widths.length;
+      maskOffset = 8;
+      valueOffset = maskOffset + (n + 7) / 8;
+      int size = valueOffset;
+      for (int w : widths)
+        size += (w + 7) / 8;
+      rec = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+      prev = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+
+      ByteBuffer hdr = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+      hdr.put("LTTY".getBytes(StandardCharsets.US_ASCII));
+      hdr.putShort((short)1);
+      hdr.putShort((short)(changesOnly ? 1 : 0));
+      hdr.putInt(n);
+      hdr.putInt(size);
+      out.write(hdr.array());
+      for (int i = 0; i < n; i++) {
+        byte[] name = names.get(i).getBytes(StandardCharsets.UTF_8);
+        ByteBuffer pin = ByteBuffer.allocate(3).order(ByteOrder.LITTLE_ENDIAN);
+        pin.put((byte)widths[i]);
+        pin.putShort((short)name.length);
+        out.write(pin.array());
+        out.write(name);
+      }
+      rec.position(valueOffset);
+    }
+
+    // Values must be set in pin order, once per tick, followed by write().
+    void set(int i, Value v) {
+      byte[] a = rec.array();
+      if (i == 0)
+        Arrays.fill(a, maskOffset, valueOffset, (byte)0);
+      int bits = v.getValueMask();
+      if (!v.isFullyDefined()) {
+        a[maskOffset + i / 8] |= 1 << (i % 8);
+        bits = 0;
+      }
+      for (int b = (widths[i] + 7) / 8; b > 0; b--) {
+        rec.put((byte)bits);
+        bits >>>= 8;
+      }
+    }
+
+    void write(long tick) throws IOException {
+      byte[] a = rec.array();
+      int n = a.length;
+      rec.position(valueOffset);
+      if (changesOnly && !first
+          && Arrays.equals(a, maskOffset, n, prev.array(), maskOffset, n))
+        return;
+      first = false;
+      rec.putLong(0, tick);
+      out.write(a, 0, n);
+      if (changesOnly)
+        System.arraycopy(a, 0, prev.array(), 0, n);
+    }
+
+    void flush() throws IOException {
+      out.flush();
+    }
+  }
+
   private static int countDigits(int num) {
     int digits = 1;
     int lessThan = 10;
@@ -148,7 +256,7 @@ public class TtyInterface {
       precision = 0.0000001;
     hertz = (int) (hertz / precision) * precision;
     String hertzStr = hertz == (int) hertz ? "" + (int) hertz : "" + hertz;
-    System.out.println(S.fmt("ttySpeedMsg", hertzStr, tickCount, elapse));
+    textOut.println(S.fmt("ttySpeedMsg", hertzStr, tickCount, elapse));
   }
 
   private static void displayStatistics(LogisimFile file) {
@@ -167,18 +275,18 @@ public class TtyInterface {
     for (FileStatistics.Count count : stats.getCounts()) {
       Library lib = count.getLibrary();
       String libName = lib == null ? "-" : lib.getDisplayName();
-      System.out.printf(fmtNormal, // OK
+      textOut.printf(fmtNormal, // OK
           Integer.valueOf(count.getUniqueCount()), Integer
           .valueOf(count.getRecursiveCount()), count
           .getFactory().getDisplayName(), libName);
     }
     FileStatistics.Count totalWithout = stats.getTotalWithoutSubcircuits();
-    System.out.printf(
+    textOut.printf(
         fmt + "%s\n", // OK
         Integer.valueOf(totalWithout.getUniqueCount()),
         Integer.valueOf(totalWithout.getRecursiveCount()),
         S.get("statsTotalWithout"));
-    System.out.printf(
+    textOut.printf(
         fmt + "%s\n", // OK
         Integer.valueOf(total.getUniqueCount()),
         Integer.valueOf(total.getRecursiveCount()),
@@ -232,18 +340,18 @@ public class TtyInterface {
             hdr += sep;
           hdr += String.format(formats.get(i), headers.get(i));
         }
-        System.out.println(hdr); // OK
+        textOut.println(hdr); // OK
         if ((format & FORMAT_PRETTY) != 0)
-          System.out.println("    " + ("~".repeat(hdr.length()-4)));
+          textOut.println("    " + ("~".repeat(hdr.length()-4)));
       }
       if ((format & FORMAT_PRETTY) != 0)
-          System.out.print("    ");
+          textOut.print("    ");
       for (int i = 0; i < curOutputs.size(); i++) {
         if (i != 0)
-          System.out.print(sep); // OK
-        System.out.printf(formats.get(i), valueFormat(curOutputs.get(i), format)); // OK
+          textOut.print(sep); // OK
+        textOut.printf(formats.get(i), valueFormat(curOutputs.get(i), format)); // OK
       }
-      System.out.println(); // OK
+      textOut.println(); // OK
     }
     return shouldPrint;
   }
@@ -275,12 +383,14 @@ public class TtyInterface {
   private static void ensureLineTerminated() {
     if (!lastIsNewline) {
       lastIsNewline = true;
-      System.out.print('\n'); // OK
+      textOut.print('\n'); // OK
     }
   }
 
-  private static boolean loadRam(CircuitState circState, File loadFile)
-      throws IOException {
+  // Images in a binary format (raw, ELF, or Intel HEX) go through the fast
+  // ImageLoader, whose throughput is reported to speedOut, if not null.
+  private static boolean loadRam(CircuitState circState, File loadFile,
+      PrintStream speedOut) throws IOException {
     if (loadFile == null)
       return false;
 
@@ -290,17 +400,73 @@ public class TtyInterface {
         Ram ramFactory = (Ram) comp.getFactory();
         InstanceState ramState = circState.getInstanceState(comp);
         MemContents m = ramFactory.getContents(ramState);
-        HexFile.open(m, loadFile);
+        ImageLoader.Result r = ImageLoader.load(m, loadFile);
+        if (r == null) {
+          HexFile.open(m, loadFile);
+        } else {
+          if (r.dropped > 0)
+            System.err.println(S.fmt("ttyLoadDroppedWarning", r.dropped, r.format));
+          if (speedOut != null)
+            speedOut.println(S.fmt("ttyLoadSpeedMsg", r.format, r.bytes,
+                  String.format("%.1f", r.nanos / 1e6),
+                  String.format("%.1f", r.getMegabytesPerSecond())));
+        }
         found = true;
       }
     }
 
     for (CircuitState sub : circState.getSubstates()) {
-      found |= loadRam(sub, loadFile);
+      found |= loadRam(sub, loadFile, speedOut);
     }
     return found;
   }
 
+  // Attaches a MemTrace to the contents of every RAM and ROM, keyed by a
+  // name giving the circuit path and the component's label or location.
+  private static void attachMemTraces(CircuitState circState, String prefix,
+      LinkedHashMap<String, MemTrace> traces, IdentityHashMap<MemContents, Boolean> seen) {
+    for (Component comp : circState.getCircuit().getNonWires()) {
+      if (comp.getFactory() instanceof Mem) {
+        Mem factory = (Mem) comp.getFactory();
+        MemContents m = factory.getContents(circState.getInstanceState(comp));
+        if (seen.put(m, Boolean.TRUE) != null)
+          continue; // a ROM's contents are shared by all its states
+        String label = comp.getAttributeSet().getValue(StdAttr.LABEL);
+        String name = prefix + (label != null && !label.equals("") ? label
+            : factory.getName() + comp.getLocation());
+        MemTrace trace = new MemTrace(m.getLogLength());
+        m.setTrace(trace);
+        traces.put(name, trace);
+      }
+    }
+    for (CircuitState sub : circState.getSubstates())
+      attachMemTraces(sub, prefix + sub.getCircuit().getName() + "/", traces, seen);
+  }
+
+  private static void displayMemTraces(Map<String, MemTrace> traces) {
+    for (Map.Entry<String, MemTrace> e : traces.entrySet()) {
+      MemTrace t = e.getValue();
+      textOut.println(S.fmt("ttyMemTraceHeader", e.getKey(),
+            t.getTotalReads(), t.getTotalWrites()));
+      long[] hot = t.getHottest(8);
+      if (hot.length > 0) {
+        StringBuilder s = new StringBuilder();
+        long span = (1L << t.getBucketShift()) - 1;
+        for (long a : hot) {
+          s.append(" 0x").append(Long.toHexString(a));
+          if (span > 0)
+            s.append("-0x").append(Long.toHexString(a + span));
+          s.append(" (").append(t.getReadCount(a) + t.getWriteCount(a)).append(")");
+        }
+        textOut.println("  " + S.fmt("ttyMemTraceHottest", s.toString()));
+      }
+      for (MemTrace.Loop loop : t.findHotLoops(4)) {
+        textOut.println("  " + S.fmt("ttyMemTraceLoop", "0x" + Long.toHexString(loop.start),
+              "0x" + Long.toHexString(loop.end), loop.iterations));
+      }
+    }
+  }
+
   private static boolean prepareForTty(CircuitState circState,
       ArrayList<InstanceState> keybStates) {
     boolean found = false;
@@ -324,17 +490,21 @@ public class TtyInterface {
   }
 
   public static void run(Startup args) {
+    if (args.headlessTty && (args.getTtyFormat() & FORMAT_RAW) != 0)
+      textOut = System.err;
     File fileToOpen = args.getFilesToOpen().get(0);
     Loader loader = new Loader(null);
+    StartupTiming.mark("builtin libraries");
     LogisimFile.FileWithSimulations file;
     try {
       file = loader.openLogisimFile(fileToOpen, args.getSubstitutions());
+      StartupTiming.mark("project loaded");
     } catch (LoadCanceledByUser e) {
-      System.out.println(S.fmt("ttyLoadCanceled", fileToOpen.getName()));
+      textOut.println(S.fmt("ttyLoadCanceled", fileToOpen.getName()));
       System.exit(-1);
       return;
     } catch (LoadFailedException e) {
-      System.out.println(S.fmt("ttyLoadError", fileToOpen.getName()));
+      textOut.println(S.fmt("ttyLoadError", fileToOpen.getName()));
       System.exit(-1);
       return;
     } catch (Throwable t) {
@@ -349,13 +519,17 @@ public class TtyInterface {
     }
     if (ret == 0 && args.headlessTty) {
       ret = doTty(args.getTtyFormat(), args.getLoadFile(), file, args.getCircuitToTest(),
-          args.getTtyRandomHead(), args.getTtyRandomBody(), args.getTtyRandomTail());
+          args.getTtyRandomHead(), args.getTtyRandomBody(), args.getTtyRandomTail(), args);
       if ((args.getTtyFormat() & FORMAT_INCLUDE_PNG) != 0)
         ret |= doPng(new String[] { args.getCircuitToTest() }, file, args.headlessPretty);
     }
     if (ret == 0 && args.headlessPng) {
       ret = doPng(args.headlessPngCircuits, file, args.headlessPretty);
     }
+    if (ret == 0 && args.getSaveFile() != null) {
+      ret = doSave(args.getSaveFile(), file);
+    }
+    StartupTiming.mark("commands finished");
     System.exit(ret);
   }
 
@@ -363,13 +537,23 @@ public class TtyInterface {
     if (args.headlessPretty) {
       int n = file.file.getCircuits().size();
       if (n == 0)
-        System.out.printf("*  Project '%s' contains 0 circuits.\n", fileName);
+        textOut.printf("*  Project '%s' contains 0 circuits.\n", fileName);
       else
-        System.out.printf("*  Project '%s' contains %d circuits.\n", fileName, n);
+        textOut.printf("*  Project '%s' contains %d circuits.\n", fileName, n);
     }
     File fileToOpen = args.getFilesToOpen().get(0);
     for (Circuit c : file.file.getCircuits()) {
-      System.out.println((args.headlessPretty ? "   - " : "") + c);
+      textOut.println((args.headlessPretty ? "   - " : "") + c);
+    }
+    return 0;
+  }
+
+  // Writes the loaded project back out, e.g. to convert between .circ and the
+  // binary .circb form ahead of batch runs.
+  static int doSave(File dest, LogisimFile.FileWithSimulations file) {
+    if (!file.file.save(dest, new Project(file))) {
+      textOut.println(S.fmt("ttySaveError", dest.getName()));
+      return 1;
     }
     return 0;
   }
@@ -393,13 +577,13 @@ public class TtyInterface {
           continue;
         File dest = new File(sanitize(c.toString(), ".png"));
         if (!headlessPretty)
-          System.out.println("Exporting " + c + " as " + dest);
+          textOut.println("Exporting " + c + " as " + dest);
         String msg = ExportImage.exportImage(canvas, c, scale, true, dest, format, null);
         if (msg != null) {
           System.err.println(msg);
           err = 1;
         } else if (headlessPretty) {
-          System.out.printf("\n[](%s)\n", dest);
+          textOut.printf("\n[](%s)\n", dest);
         }
       }
     }
@@ -407,18 +591,19 @@ public class TtyInterface {
   }
 
   static int doTty(int format, File loadfile, LogisimFile.FileWithSimulations file, String circuitToTest,
-      int head, int body, int tail) {
+      int head, int body, int tail, Startup args) {
     if ((format & FORMAT_STATISTICS) != 0) {
       format &= ~FORMAT_STATISTICS;
       displayStatistics(file.file);
     }
-    if (format == 0) { // no simulation remaining to perform, so just exit
+    boolean tracing = args.getTraceSignals() != null || args.getTraceTrigger() != null;
+    if (format == 0 && !tracing) { // no simulation remaining to perform, so just exit
       System.exit(0);
     }
 
     if ((format & FORMAT_PRETTY) != 0) {
-      System.out.printf("# %s\n\n", circuitToTest);
-      System.out.printf("*  Testing '%s' with various possible inputs\n\n", circuitToTest);
+      textOut.printf("# %s\n\n", circuitToTest);
+      textOut.printf("*  Testing '%s' with various possible inputs\n\n", circuitToTest);
     }
 
     Project proj = new Project(file);
@@ -430,9 +615,9 @@ public class TtyInterface {
     }
     if (circuit == null) {
         if ((format & FORMAT_PRETTY) != 0)
-          System.out.println("  (no circuit found)");
+          textOut.println("  (no circuit found)");
         else
-          System.out.println("Could not find circuit '" + circuitToTest+"'");
+          textOut.println("Could not find circuit '" + circuitToTest+"'");
         System.exit(1);
     }
     Map<Instance, String> pinNames = Analyze.getPinLabels(circuit);
@@ -451,7 +636,8 @@ public class TtyInterface {
         }
       }
     }
-    if (haltPin == null && (format & FORMAT_TABLE) != 0 && (format & FORMAT_TURING) == 0) {
+    if (haltPin == null && (format & (FORMAT_TABLE | FORMAT_RAW)) != 0
+        && (format & FORMAT_TURING) == 0 && !tracing) {
       doTableAnalysis(proj, circuit, pinNames, format, head, body, tail);
       return 0;
     }
@@ -465,26 +651,26 @@ public class TtyInterface {
         if (!(comp.getFactory() instanceof Register))
           continue;
         if (sreg != null) {
-          System.out.println("found too many registers");
+          textOut.println("found too many registers");
           System.exit(1);
         }
         sreg = comp;
       }
       if (sreg == null) {
-        System.out.println("Could not find state register for turing machine");
+        textOut.println("Could not find state register for turing machine");
         System.exit(1);
       }
       for (Component comp : circuit.getNonWires()) {
         if (!comp.getFactory().getName().equals("Paper Tape"))
           continue;
         if (tape != null) {
-          System.out.println("found too many paper tapes");
+          textOut.println("found too many paper tapes");
           System.exit(1);
         }
         tape = comp;
       }
       if (tape == null) {
-        System.out.println("Could not find paper tape for turing machine");
+        textOut.println("Could not find paper tape for turing machine");
         System.exit(1);
       }
     }
@@ -495,13 +681,14 @@ public class TtyInterface {
     circState.getPropagator().propagate();
     if (loadfile != null) {
       try {
-        boolean loaded = loadRam(circState, loadfile);
+        PrintStream speedOut = (format & FORMAT_SPEED) == 0 ? null : textOut;
+        boolean loaded = loadRam(circState, loadfile, speedOut);
         if (!loaded) {
-          System.out.println(S.get("loadNoRamError"));
+          textOut.println(S.get("loadNoRamError"));
           System.exit(-1);
         }
       } catch (IOException e) {
-        System.out.println(S.get("loadIoError") + ": " + e.toString());
+        textOut.println(S.get("loadIoError") + ": " + e.toString());
         System.exit(-1);
       }
     }
@@ -512,15 +699,113 @@ public class TtyInterface {
       tapeState.fireInvalidated();
       circState.getPropagator().propagate();
     }
-    int simCode = runSimulation(circState, outputPins, pinNames, haltPin, sreg, tape, format);
+    TraceRecorder recorder = null;
+    if (tracing)
+      recorder = makeTraceRecorder(circState, args);
+    LinkedHashMap<String, MemTrace> memTraces = null;
+    if ((format & FORMAT_MEMTRACE) != 0) {
+      memTraces = new LinkedHashMap<>();
+      attachMemTraces(circState, "", memTraces, new IdentityHashMap<>());
+    }
+    int simCode = runSimulation(circState, outputPins, pinNames, haltPin, sreg, tape, format,
+        recorder);
+    if (memTraces != null)
+      displayMemTraces(memTraces);
 
     return simCode;
   }
 
+  private static TraceRecorder makeTraceRecorder(CircuitState circState, Startup args) {
+    Circuit circuit = circState.getCircuit();
+    ArrayList<SignalInfo> signals = new ArrayList<>();
+    if (args.getTraceSignals() != null) {
+      for (String name : args.getTraceSignals()) {
+        SignalInfo info = TraceRecorder.find(circuit, name);
+        if (info == null) {
+          textOut.println(S.fmt("ttyTraceSignalError", name));
+          System.exit(-1);
+        }
+        signals.add(info);
+      }
+    }
+    SignalInfo trigger = null;
+    SignalSearch condition = null;
+    String cond = args.getTraceTrigger();
+    if (cond != null) {
+      String name;
+      int eq = cond.lastIndexOf('=');
+      int colon = cond.lastIndexOf(':');
+      String kind = colon > eq ? cond.substring(colon+1) : null;
+      if (eq > 0)
+        name = cond.substring(0, eq);
+      else if (colon > 0)
+        name = cond.substring(0, colon);
+      else
+        name = null;
+      if (name != null)
+        trigger = TraceRecorder.find(circuit, name);
+      if (trigger == null) {
+        textOut.println(S.fmt("ttyTraceSignalError", name != null ? name : cond));
+        System.exit(-1);
+      }
+      // reuse an identical traced signal, so the trigger is shown only once
+      for (SignalInfo info : signals) {
+        if (info.toString().equals(trigger.toString()))
+          trigger = info;
+      }
+      try {
+        if (eq > 0 && kind == null)
+          condition = new SignalSearch(SignalSearch.VALUE,
+              TraceRecorder.parseValue(trigger, cond.substring(eq+1)));
+        else if ("rising".equals(kind))
+          condition = new SignalSearch(SignalSearch.RISING, null);
+        else if ("falling".equals(kind))
+          condition = new SignalSearch(SignalSearch.FALLING, null);
+        else if ("change".equals(kind))
+          condition = new SignalSearch(SignalSearch.CHANGE, null);
+      } catch (Exception e) {
+        condition = null;
+      }
+      if (condition == null) {
+        textOut.println(S.fmt("ttyTraceTriggerError", cond));
+        System.exit(-1);
+      }
+    }
+    return new TraceRecorder(circState, signals, trigger, condition,
+        args.getTracePre(), args.getTracePost());
+  }
+
+  private static void displayTrace(TraceRecorder recorder, int format) {
+    int n = recorder.size();
+    if (n == 0)
+      return;
+    SignalInfo trigger = recorder.getTriggerSignal();
+    if (recorder.hasTriggered())
+      textOut.println(S.fmt("ttyTraceTriggered", trigger, recorder.getTriggerTick()));
+    else if (trigger != null)
+      textOut.println(S.fmt("ttyTraceNotTriggered", trigger));
+    ArrayList<String> headers = new ArrayList<>();
+    ArrayList<String> formats = new ArrayList<>();
+    headers.add("tick");
+    for (int s = 0; s < recorder.getSignalCount(); s++)
+      headers.add(recorder.getSignal(s).toString());
+    // pad ticks to the widest, so columns line up in the plain format
+    String tickFmt = "%" + Long.toString(recorder.getTick(n-1)).length() + "d";
+    for (int i = 0; i < n; i++) {
+      ArrayList<Object> row = new ArrayList<>();
+      row.add(String.format(tickFmt, recorder.getTick(i)));
+      for (int s = 0; s < recorder.getSignalCount(); s++)
+        row.add(recorder.getValue(s, i));
+      displayTableRow(i == 0, null, row, headers, formats, format, recorder.getSignalCount());
+    }
+  }
+
   private static int runSimulation(CircuitState circState,
       ArrayList<Instance> outputPins, Map<Instance, String> pinNames,
-      Instance haltPin, Component sreg, Component tape, int format) {
-    boolean showTable = (format & FORMAT_TABLE) != 0;
+      Instance haltPin, Component sreg, Component tape, int format,
+      TraceRecorder recorder) {
+    boolean showRaw = (format & FORMAT_RAW) != 0;
+    boolean showTable = (format & FORMAT_TABLE) != 0 && !showRaw;
     boolean showSpeed = (format & FORMAT_SPEED) != 0;
     boolean showTty = (format & FORMAT_TTY) != 0;
     boolean showTuring = (format & FORMAT_TURING) != 0;
@@ -532,7 +817,7 @@ public class TtyInterface {
       keyboardStates = new ArrayList<InstanceState>();
       boolean ttyFound = prepareForTty(circState, keyboardStates);
       if (!ttyFound) {
-        System.out.println(S.get("ttyNoTtyError"));
+        textOut.println(S.get("ttyNoTtyError"));
         System.exit(-1);
       }
       if (keyboardStates.isEmpty()) {
@@ -548,7 +833,7 @@ public class TtyInterface {
       turingStates = new ArrayList<InstanceState>();
       boolean turingFound = prepareForTuring(circState, turingStates);
       if (!turingFound) {
-        System.out.println("No paper tape found");
+        textOut.println("No paper tape found");
         System.exit(-1);
       }
       if (turingStates.isEmpty()) {
@@ -579,9 +864,27 @@ public class TtyInterface {
         headers.add(s);
     }
 
+    RawTable raw = null;
+    if (showRaw) {
+      int[] widths = new int[outputPins.size() - (haltPin != null ? 1 : 0)];
+      int k = 0;
+      for (Instance pin : outputPins) {
+        if (pin != haltPin)
+          widths[k++] = pin.getAttributeValue(StdAttr.WIDTH).getWidth();
+      }
+      try {
+        System.out.flush();
+        raw = new RawTable(headers, widths, (format & FORMAT_CHANGES) != 0);
+      } catch (IOException e) {
+        e.printStackTrace();
+        System.exit(-1);
+      }
+    }
+
     int nrows = 0, ndup = 0;
     while (true) {
-      ArrayList<Object> curOutputs = new ArrayList<>();
+      ArrayList<Object> curOutputs = showTable ? new ArrayList<>() : null;
+      int k = 0;
       for (Instance pin : outputPins) {
         InstanceState pinState = circState.getInstanceState(pin);
         Value val = Pin.FACTORY.getValue(pinState);
@@ -589,10 +892,20 @@ public class TtyInterface {
           halted |= val.equals(Value.TRUE);
         } else if (showTable) {
           curOutputs.add(val);
+        } else if (raw != null) {
+          raw.set(k++, val);
+        }
+      }
+      if (raw != null) {
+        try {
+          raw.write(tickCount);
+        } catch (IOException e) {
+          retCode = 0; // e.g. the reader has gone away
+          break;
         }
       }
       String curtape = null;
-      if (tape != null) {
+      if (tape != null && showTable) {
         Loggable log = (Loggable)sreg.getFeature(Loggable.class);
         Value val = log.getLogValue(circState, null);
         curOutputs.add(val);
@@ -610,13 +923,18 @@ public class TtyInterface {
           ndup++;
           if (tape != null && ndup > 4) {
             halted = true;
-            System.out.println("Turing machine appears to have halted after " + nrows + " steps.");
+            textOut.println("Turing machine appears to have halted after " + nrows + " steps.");
           }
         }
       }
 
+      // Without a halt pin, an untriggered trace ends after one full window.
+      boolean traced = recorder != null && (recorder.sample(tickCount)
+          || (haltPin == null && recorder.getTriggerSignal() == null
+              && recorder.isFull()));
+
       if (turingMaxSteps > 0 && nrows >= turingMaxSteps && !halted) {
-        System.out.println("Halting after executing for " + turingMaxSteps + " steps.");
+        textOut.println("Halting after executing for " + turingMaxSteps + " steps.");
         halted = true;
       }
 
@@ -624,6 +942,10 @@ public class TtyInterface {
         retCode = 0; // normal exit
         break;
       }
+      if (traced) {
+        retCode = 2; // trace complete
+        break;
+      }
       if (prop.isOscillating()) {
         retCode = 1; // abnormal exit
         break;
@@ -638,23 +960,36 @@ public class TtyInterface {
       }
       prevOutputs = curOutputs;
       tickCount++;
-      prop.toggleClocks();
+      if (!prop.toggleClocks() && recorder != null && haltPin == null) {
+        retCode = 2; // no clocks, so nothing further would be recorded
+        break;
+      }
       prop.propagate();
     }
     long elapse = System.currentTimeMillis() - start;
+    if (raw != null) {
+      try {
+        raw.flush();
+      } catch (IOException e) {
+      }
+    }
     if (showTty)
       ensureLineTerminated();
-    if (showHalt || retCode != 0) {
+    if (recorder != null)
+      displayTrace(recorder, format);
+    if (showHalt || retCode == 1) {
       if (retCode == 0) {
-        System.out.println(S.get("ttyHaltReasonPin"));
+        textOut.println(S.get("ttyHaltReasonPin"));
       } else if (retCode == 1) {
-        System.out.println(S.get("ttyHaltReasonOscillation"));
+        textOut.println(S.get("ttyHaltReasonOscillation"));
+      } else if (retCode == 2) {
+        textOut.println(S.get("ttyHaltReasonTrace"));
       }
     }
     if (showSpeed) {
       displaySpeed(tickCount, elapse);
     }
-    return retCode;
+    return retCode == 2 ? 0 : retCode;
   }
 
   private static int doTableAnalysis(Project proj, Circuit circuit,
@@ -782,13 +1117,29 @@ public class TtyInterface {
     for (int i = rowCount-tail; i < rowCount; i++)
       allidx[ii++] = i;
 
+    // With the raw format, each row becomes one record, numbered by row
+    // rather than by tick, holding the inputs followed by the outputs.
+    RawTable raw = null;
+    if ((format & FORMAT_RAW) != 0) {
+      int[] widths = new int[pinList.size()];
+      for (int j = 0; j < widths.length; j++)
+        widths[j] = pinList.get(j).getAttributeValue(StdAttr.WIDTH).getWidth();
+      try {
+        System.out.flush();
+        raw = new RawTable(headers, widths, (format & FORMAT_CHANGES) != 0);
+      } catch (IOException e) {
+        e.printStackTrace();
+        System.exit(-1);
+      }
+    }
+
     boolean needTableHeader = true;
     HashMap<Instance, Value> valueMap = new HashMap<>();
     int bodyii = 0;
     for (ii = 0; ii < allidx.length; ii++) {
       int i = allidx[ii];
-      if (ii == head || i == rowCount-tail)
-        System.out.println((format & FORMAT_PRETTY) != 0 ? "    ...." : "...");
+      if (raw == null && (ii == head || i == rowCount-tail))
+        textOut.println((format & FORMAT_PRETTY) != 0 ? "    ...." : "...");
       valueMap.clear();
       CircuitState circuitState = CircuitState.createRootState(proj, circuit);
       int incol = 0;
@@ -825,6 +1176,16 @@ public class TtyInterface {
           valueMap.put(pin, outValue);
         }
       }
+      if (raw != null) {
+        for (int j = 0; j < pinList.size(); j++)
+          raw.set(j, valueMap.get(pinList.get(j)));
+        try {
+          raw.write(i);
+        } catch (IOException e) {
+          break; // e.g. the reader has gone away
+        }
+        continue;
+      }
       ArrayList<Object> currValues = new ArrayList<>();
       for (Instance pin : pinList) {
         currValues.add(valueMap.get(pin));
@@ -832,13 +1193,19 @@ public class TtyInterface {
       displayTableRow(needTableHeader, null, currValues, headers, formats, format, numOutputs);
       needTableHeader = false;
     }
+    if (raw != null) {
+      try {
+        raw.flush();
+      } catch (IOException e) {
+      }
+    }
 
     return 0;
   }
 
   public static void sendFromTty(char c) {
     lastIsNewline = c == '\n';
-    System.out.print(c); // OK
+    textOut.print(c); // OK
   }
 
   public static final int FORMAT_TABLE = 1 << 0;
@@ -860,6 +1227,14 @@ public class TtyInterface {
 
   public static final int FORMAT_PRETTY = 1 << 13;
   public static final int FORMAT_INCLUDE_PNG = 1 << 14;
+  public static final int FORMAT_RAW = 1 << 15;
+  public static final int FORMAT_CHANGES = 1 << 16;
+  public static final int FORMAT_MEMTRACE = 1 << 17;
 
   private static boolean lastIsNewline = true;
+
+  // All text, including messages and tty component output, goes here:
+  // standard output, unless the raw format is writing binary records there,
+  // in which case standard error.
+  private static PrintStream textOut = System.out;
 }
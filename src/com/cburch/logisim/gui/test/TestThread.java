@@ -36,6 +36,8 @@
 package com.cburch.logisim.gui.test;
 import static com.cburch.logisim.gui.test.Strings.S;
 
+import java.util.List;
+
 import com.cburch.logisim.circuit.Circuit;
 import com.cburch.logisim.circuit.CircuitEvent;
 import com.cburch.logisim.circuit.CircuitListener;
@@ -99,6 +101,29 @@ public class TestThread extends UniquelyNamedThread implements CircuitListener {
     System.out.println(S.fmt("testResults", Integer.toString(numPass), Integer.toString(numFail)));
     return 0;
   }
+
+  // used by the simulation server: runs every row of vec against circuit,
+  // which must be the project's current circuit, and returns the number of
+  // rows that passed. Each failing row is described in failures.
+  public static int runTestVector(Project proj, Circuit circuit,
+      TestVector vec, List<String> failures) throws TestException {
+    TestThread tester = new TestThread(proj, circuit, vec);
+    int numPass = 0;
+    for (int i = 0; i < vec.data.size(); i++) {
+      try {
+        tester.test(i);
+        numPass++;
+      } catch (FailException e) {
+        StringBuilder msg = new StringBuilder(Integer.toString(i + 1));
+        for (String sep = ": "; e != null; e = e.getMore(), sep = "; ")
+          msg.append(sep).append(e.getMessage());
+        failures.add(msg.toString());
+      } catch (TestException e) {
+        failures.add((i + 1) + ": " + e.getMessage());
+      }
+    }
+    return numPass;
+  }
   private Instance[] pin;
   private Project project;
   private Circuit circuit;
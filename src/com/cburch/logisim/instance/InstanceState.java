@@ -56,6 +56,12 @@ public interface InstanceState {
 
   public int getTickCount();
 
+  // Runs r once the current propagation is done, or right away if the state
+  // is not being propagated.
+  public default void deferUntilPropagated(Runnable r) {
+    r.run();
+  }
+
   public boolean isCircuitRoot();
 
   public boolean isPortConnected(int portIndex);
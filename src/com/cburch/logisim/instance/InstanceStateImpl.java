@@ -111,6 +111,10 @@ public class InstanceStateImpl implements InstanceState {
     return circuitState.getPropagator().getTickCount();
   }
 
+  public void deferUntilPropagated(Runnable r) {
+    circuitState.getPropagator().deferUntilPropagated(r);
+  }
+
   public boolean isCircuitRoot() {
     return !circuitState.isSubstate();
   }
@@ -562,7 +562,8 @@ public class ProjectActions {
 
     File f = chooser.getSelectedFile();
     String circExt = LogisimFile.LOGISIM_EXTENSION;
-    if (!f.getName().endsWith(circExt)) {
+    if (!f.getName().endsWith(circExt)
+        && !f.getName().endsWith(LogisimFile.LOGISIM_EXTENSION_BINARY)) {
       String old = f.getName();
       int ext0 = old.lastIndexOf('.');
       if (ext0 < 0
@@ -31,32 +31,47 @@
 package com.cburch.logisim.std.gates;
 import static com.cburch.logisim.std.Strings.S;
 
-import java.util.Arrays;
 import java.util.List;
 
-import com.cburch.logisim.tools.AddTool;
+import com.cburch.logisim.tools.FactoryDescription;
 import com.cburch.logisim.tools.Library;
 import com.cburch.logisim.tools.Tool;
 
 public class Gates extends Library {
+
+  private static FactoryDescription[] DESCRIPTIONS = {
+    new FactoryDescription("NOT Gate", S.getter("notGateComponent"),
+        () -> NotGate.FACTORY),
+    new FactoryDescription("Buffer", S.getter("bufferComponent"),
+        () -> Buffer.FACTORY),
+    new FactoryDescription("AND Gate", S.getter("andGateComponent"),
+        () -> AndGate.FACTORY),
+    new FactoryDescription("OR Gate", S.getter("orGateComponent"),
+        () -> OrGate.FACTORY),
+    new FactoryDescription("NAND Gate", S.getter("nandGateComponent"),
+        () -> NandGate.FACTORY),
+    new FactoryDescription("NOR Gate", S.getter("norGateComponent"),
+        () -> NorGate.FACTORY),
+    new FactoryDescription("XOR Gate", S.getter("xorGateComponent"),
+        () -> XorGate.FACTORY),
+    new FactoryDescription("XNOR Gate", S.getter("xnorGateComponent"),
+        () -> XnorGate.FACTORY),
+    new FactoryDescription("Odd Parity", S.getter("oddParityComponent"),
+        () -> OddParityGate.FACTORY),
+    new FactoryDescription("Even Parity", S.getter("evenParityComponent"),
+        () -> EvenParityGate.FACTORY),
+    new FactoryDescription("Controlled Buffer",
+        S.getter("controlledBufferComponent"),
+        () -> ControlledBuffer.FACTORY_BUFFER),
+    new FactoryDescription("Controlled Inverter",
+        S.getter("controlledInverterComponent"),
+        () -> ControlledBuffer.FACTORY_INVERTER),
+    new FactoryDescription("PLA", S.getter("PLA"), () -> PLA.FACTORY),
+  };
+
   private List<Tool> tools = null;
 
   public Gates() {
-    tools = Arrays.asList(new Tool[] {
-      new AddTool(Gates.class, NotGate.FACTORY),
-      new AddTool(Gates.class, Buffer.FACTORY),
-      new AddTool(Gates.class, AndGate.FACTORY),
-      new AddTool(Gates.class, OrGate.FACTORY),
-      new AddTool(Gates.class, NandGate.FACTORY),
-      new AddTool(Gates.class, NorGate.FACTORY),
-      new AddTool(Gates.class, XorGate.FACTORY),
-      new AddTool(Gates.class, XnorGate.FACTORY),
-      new AddTool(Gates.class, OddParityGate.FACTORY),
-      new AddTool(Gates.class, EvenParityGate.FACTORY),
-      new AddTool(Gates.class, ControlledBuffer.FACTORY_BUFFER),
-      new AddTool(Gates.class, ControlledBuffer.FACTORY_INVERTER),
-      new AddTool(Gates.class, PLA.FACTORY),
-    });
   }
 
   @Override
@@ -71,6 +86,9 @@ public class Gates extends Library {
 
   @Override
   public List<Tool> getTools() {
+    if (tools == null) {
+      tools = FactoryDescription.getTools(Gates.class, DESCRIPTIONS);
+    }
     return tools;
   }
 }
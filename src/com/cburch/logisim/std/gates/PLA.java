@@ -97,9 +97,7 @@ class PLA extends InstanceFactory {
 
     @Override
     public java.awt.Component getCellEditor(Window source, PLATable tt) {
-      PLATable.EditorDialog dialog = new PLATable.EditorDialog((Frame)source);
-      dialog.setValue(tt);
-      return dialog;
+      return PLATable.EditorDialog.create(source, tt);
     }
 
     @Override
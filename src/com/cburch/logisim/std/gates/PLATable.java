@@ -348,6 +348,14 @@ public class PLATable {
     private PLATable oldTable, newTable;
     private BoundedRangeModel vScrollModel;
 
+    // Creates an editor for the attribute. This is done here, rather than by
+    // PLA, so that loading PLA in headless runs doesn't load any dialogs.
+    public static java.awt.Component create(java.awt.Window source, PLATable tt) {
+      EditorDialog dialog = new EditorDialog((Frame)source);
+      dialog.setValue(tt);
+      return dialog;
+    }
+
     public EditorDialog(Frame parent) {
       super(parent, S.get("plaEditorTitle"), true);
       // setLocation(300, 200);
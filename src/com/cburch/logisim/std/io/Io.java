@@ -33,9 +33,7 @@ import static com.cburch.logisim.std.Strings.S;
 
 import java.awt.Color;
 import java.util.List;
-import java.util.ArrayList;
 
-import com.cburch.logisim.tools.AddTool;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.Attributes;
 import com.cburch.logisim.tools.FactoryDescription;
@@ -89,6 +87,8 @@ public class Io extends Library {
         "fileviewer.gif", "FileViewer"),
     new FactoryDescription("Slideshow", S.getter("slideShowComponent"),
         "slideshow.gif", "Slideshow"),
+    new FactoryDescription("RGB Video", S.getter("rgbVideoComponent"),
+        () -> Video.factory),
   };
 
   private List<Tool> tools = null;
@@ -109,9 +109,7 @@ public class Io extends Library {
   @Override
   public List<Tool> getTools() {
     if (tools == null) {
-      tools = new ArrayList<>();
-      tools.addAll(FactoryDescription.getTools(Io.class, DESCRIPTIONS));
-      tools.add(new AddTool(Io.class, Video.factory));
+      tools = FactoryDescription.getTools(Io.class, DESCRIPTIONS);
     }
     return tools;
   }
@@ -55,7 +55,7 @@ import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.Attributes;
 import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Bounds;
-import com.cburch.logisim.gui.main.ExportImage;
+import com.cburch.logisim.file.Loader;
 import com.cburch.logisim.gui.main.Frame;
 import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.instance.InstanceData;
@@ -202,7 +202,7 @@ public class Slideshow extends InstanceFactory {
   private static final Attribute<Attributes.LinkedFile> ATTR_FILENAME_SINGLETON =
       Attributes.forFilename("filename", 
           S.getter("ioSlideshowFilename"), S.getter("ioSlideshowLoadDialogTitle"),
-          ExportImage.PNG_FILTER, ExportImage.JPG_FILTER);
+          Loader.PNG_FILTER, Loader.JPG_FILTER);
 
   private static class SlideAttribute extends Attribute<Slide> {
     int idx;
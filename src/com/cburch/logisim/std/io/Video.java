@@ -454,9 +454,9 @@ class Video extends ManagedComponent implements ToolTipMaker, AttributeListener
     @Override
     public java.awt.Component getCellEditor(ColorModelColor cmc) {
       if (cmc != null && cmc.indexed)
-        return new IndexColorChooser(cmc);
+        return IndexColorChooser.create(cmc);
       else
-        return new ColorChooser(cmc);
+        return ColorChooser.create(cmc);
     }
 
     @Override
@@ -487,6 +487,12 @@ class Video extends ManagedComponent implements ToolTipMaker, AttributeListener
     private static final long serialVersionUID = 1L;
     String model;
 
+    // Editors are made by their own classes, so that loading the attribute in
+    // headless runs doesn't load the pickers' Swing superclasses.
+    static java.awt.Component create(ColorModelColor initial) {
+      return new ColorChooser(initial);
+    }
+
     ColorChooser(ColorModelColor initial) {
       super(initial == null ? "888" : initial.depth, true, false);
       if (initial != null) {
@@ -515,6 +521,10 @@ class Video extends ManagedComponent implements ToolTipMaker, AttributeListener
     private static final long serialVersionUID = 1L;
     String model;
 
+    static java.awt.Component create(ColorModelColor initial) {
+      return new IndexColorChooser(initial);
+    }
+
     IndexColorChooser(ColorModelColor initial) {
       super((IndexColorModel)Video.getColorModel(initial.model), true);
       model = initial.model;
@@ -74,7 +74,7 @@ abstract class AbstractFlipFlop extends InstanceFactory {
     @Override
     public Value getLogValue(InstanceState state, Object option) {
       StateData s = (StateData) state.getData();
-      return s == null ? Value.FALSE : s.curValue;
+      return s == null ? Value.FALSE : s.getValue();
     }
   }
 
@@ -107,7 +107,7 @@ abstract class AbstractFlipFlop extends InstanceFactory {
         if (myState == null)
           return;
 
-        myState.curValue = myState.curValue.not();
+        myState.value = !myState.value;
         state.fireInvalidated();
       }
       isPressed = false;
@@ -122,11 +122,11 @@ abstract class AbstractFlipFlop extends InstanceFactory {
       if (myState == null)
         return;
       e.consume();
-      if (val == 0 && myState.curValue != Value.FALSE) {
-        myState.curValue = Value.FALSE;
+      if (val == 0 && myState.value) {
+        myState.value = false;
         state.fireInvalidated();
-      } else if (val == 1 && myState.curValue != Value.TRUE) {
-        myState.curValue = Value.TRUE;
+      } else if (val == 1 && !myState.value) {
+        myState.value = true;
         state.fireInvalidated();
       }
     }
@@ -136,20 +136,25 @@ abstract class AbstractFlipFlop extends InstanceFactory {
       StateData myState = (StateData) state.getData();
       if (myState == null)
         return;
-      if ((e.getKeyCode() == KeyEvent.VK_DOWN || e.getKeyCode() == KeyEvent.VK_LEFT) && myState.curValue != Value.FALSE) {
+      if ((e.getKeyCode() == KeyEvent.VK_DOWN || e.getKeyCode() == KeyEvent.VK_LEFT) && myState.value) {
         e.consume();
-        myState.curValue = Value.FALSE;
+        myState.value = false;
         state.fireInvalidated();
-      } else if ((e.getKeyCode() == KeyEvent.VK_UP ||e.getKeyCode() == KeyEvent.VK_RIGHT) && myState.curValue != Value.TRUE) {
+      } else if ((e.getKeyCode() == KeyEvent.VK_UP ||e.getKeyCode() == KeyEvent.VK_RIGHT) && !myState.value) {
         e.consume();
-        myState.curValue = Value.TRUE;
+        myState.value = true;
         state.fireInvalidated();
       }
     }
   }
 
+  // A flip-flop only ever holds 0 or 1, so its state is a primitive.
   private static class StateData extends ClockState implements InstanceData {
-    Value curValue = Value.FALSE;
+    boolean value;
+
+    Value getValue() {
+      return value ? Value.TRUE : Value.FALSE;
+    }
   }
 
   private static final int STD_PORTS = 5; // or 6, with enable
@@ -287,11 +292,11 @@ abstract class AbstractFlipFlop extends InstanceFactory {
       if (myState != null) {
         int x = loc.getX();
         int y = loc.getY();
-        g.setColor(myState.curValue.getColor());
+        g.setColor(myState.getValue().getColor());
         g.fillOval(x - 26, y + 4, 13, 13);
         g.setColor(Color.WHITE);
         GraphicsUtil.drawCenteredText(g, MemState.FONT,
-            myState.curValue.toDisplayString(), x - 20, y + 9);
+            myState.getValue().toDisplayString(), x - 20, y + 9);
         g.setColor(Color.BLACK);
       }
     }
@@ -327,11 +332,11 @@ abstract class AbstractFlipFlop extends InstanceFactory {
     if (painter.getShowState()) {
       StateData myState = (StateData) painter.getData();
       if (myState != null) {
-        g.setColor(myState.curValue.getColor());
+        g.setColor(myState.getValue().getColor());
         g.fillOval(x + 13, y + 23, 14, 14);
         g.setColor(Color.WHITE);
         GraphicsUtil.drawCenteredText(g, MemState.FONT,
-            myState.curValue.toDisplayString(), x + 19, y + 29);
+            myState.getValue().toDisplayString(), x + 19, y + 29);
       }
     }
 
@@ -398,11 +403,11 @@ abstract class AbstractFlipFlop extends InstanceFactory {
         .updateClock(state.getPortValue(n), triggerType);
 
     if (state.getPortValue(n + 3) == Value.TRUE) { // clear requested
-      // changed |= data.curValue != Value.FALSE;
-      data.curValue = Value.FALSE;
+      // changed |= data.value;
+      data.value = false;
     } else if (state.getPortValue(n + 4) == Value.TRUE) { // preset requested
-      // changed |= data.curValue != Value.TRUE;
-      data.curValue = Value.TRUE;
+      // changed |= !data.value;
+      data.value = true;
     } else if (triggered && (enable == 0 || state.getPortValue(n + 5) != Value.FALSE)) {
       // Clock has triggered and flip-flop is enabled: Update the state
       Value[] inputs = new Value[n];
@@ -410,15 +415,15 @@ abstract class AbstractFlipFlop extends InstanceFactory {
         inputs[i] = state.getPortValue(i);
       }
 
-      Value newVal = computeValue(inputs, data.curValue);
+      Value newVal = computeValue(inputs, data.getValue());
       if (newVal == Value.TRUE || newVal == Value.FALSE) {
-        // changed |= data.curValue != newVal;
-        data.curValue = newVal;
+        // changed |= data.getValue() != newVal;
+        data.value = newVal == Value.TRUE;
       }
     }
 
-    state.setPort(n + 1, data.curValue, Memory.DELAY);
-    state.setPort(n + 2, data.curValue.not(), Memory.DELAY);
+    state.setPort(n + 1, data.value ? Value.TRUE : Value.FALSE, Memory.DELAY);
+    state.setPort(n + 2, data.value ? Value.FALSE : Value.TRUE, Memory.DELAY);
   }
 
   @Override
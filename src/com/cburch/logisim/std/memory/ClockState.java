@@ -34,10 +34,15 @@ import com.cburch.logisim.data.Value;
 import com.cburch.logisim.instance.StdAttr;
 
 class ClockState implements Cloneable {
-  private Value lastClock;
+  // The last clock level is kept as a primitive, not a Value, so the state of
+  // each flip-flop, register, and counter is a small object with no pointers
+  // to chase when checking for a trigger.
+  private static final byte LOW = 0, HIGH = 1, OTHER = 2;
+
+  private byte lastClock;
 
   public ClockState() {
-    lastClock = Value.FALSE;
+    lastClock = LOW;
   }
 
   @Override
@@ -50,18 +55,19 @@ class ClockState implements Cloneable {
   }
 
   public boolean updateClock(Value newClock, Object trigger) {
-    Value oldClock = lastClock;
-    lastClock = newClock;
+    byte oldClock = lastClock;
+    byte clock = newClock == Value.TRUE ? HIGH : newClock == Value.FALSE ? LOW : OTHER;
+    lastClock = clock;
     if (trigger == null || trigger == StdAttr.TRIG_RISING) {
-      return oldClock == Value.FALSE && newClock == Value.TRUE;
+      return oldClock == LOW && clock == HIGH;
     } else if (trigger == StdAttr.TRIG_FALLING) {
-      return oldClock == Value.TRUE && newClock == Value.FALSE;
+      return oldClock == HIGH && clock == LOW;
     } else if (trigger == StdAttr.TRIG_HIGH) {
-      return newClock == Value.TRUE;
+      return clock == HIGH;
     } else if (trigger == StdAttr.TRIG_LOW) {
-      return newClock == Value.FALSE;
+      return clock == LOW;
     } else {
-      return oldClock == Value.FALSE && newClock == Value.TRUE;
+      return oldClock == LOW && clock == HIGH;
     }
   }
 }
@@ -0,0 +1,275 @@
+/**
+ * This file is part of Logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with Logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + Haute École Spécialisée Bernoise
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ *   + REDS Institute - HEIG-VD, Yverdon-les-Bains, Switzerland
+ *     http://reds.heig-vd.ch
+ * This version of the project is currently maintained by:
+ *   + Kevin Walsh (kwalsh@holycross.edu, http://mathcs.holycross.edu/~kwalsh)
+ */
+
+package com.cburch.logisim.std.memory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.ref.WeakReference;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+
+// MappedMemContents keeps memory contents in a file, mapped into the address
+// space with FileChannel.map(), rather than in on-heap pages. Loading is
+// zero-copy, changes go straight to the file (the operating system writes
+// them back), and heap usage does not depend on the memory size, so large
+// disk images or frame buffers, up to 32 address bits, can be attached to a
+// RAM or ROM.
+//
+// Each value occupies 1, 2, or 4 bytes of the file, depending on the data
+// width, stored little-endian. The file is extended with zeros if it is too
+// small. Since a single mapping is limited to 2 GB, the file is mapped in
+// chunks of 1 GB.
+//
+// A file is mapped at most once for given dimensions: all memories (and all
+// clones, e.g. for different circuit states) referring to the same file with
+// the same address and data widths share one instance, just as they would
+// share one physical disk. Memories of other dimensions get their own view
+// of the same file, and a mapped instance is never resized in place.
+class MappedMemContents extends MemContents {
+
+  private static final int CHUNK_BITS = 30;
+  private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+
+  private static final HashMap<String, WeakReference<MappedMemContents>> registry = new HashMap<>();
+
+  static MappedMemContents open(File file, int addrBits, int width) throws IOException {
+    File canonical = file.getCanonicalFile();
+    String key = addrBits + "x" + width + ":" + canonical.getPath();
+    synchronized (registry) {
+      WeakReference<MappedMemContents> ref = registry.get(key);
+      MappedMemContents ret = ref == null ? null : ref.get();
+      if (ret == null) {
+        ret = new MappedMemContents(canonical, addrBits, width);
+        registry.put(key, new WeakReference<>(ret));
+      }
+      return ret;
+    }
+  }
+
+  private final File file;
+  private MappedByteBuffer[] chunks;
+  private int shift; // log2 of bytes per value
+  private int mask;
+  private long last;
+
+  private MappedMemContents(File file, int addrBits, int width) throws IOException {
+    this.file = file;
+    map(addrBits, width);
+  }
+
+  private void map(int addrBits, int width) throws IOException {
+    shift = width <= 8 ? 0 : width <= 16 ? 1 : 2;
+    mask = width == 32 ? 0xffffffff : ((1 << width) - 1);
+    last = (1L << addrBits) - 1;
+    long size = (1L << addrBits) << shift;
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      if (raf.length() < size)
+        raf.setLength(size);
+      FileChannel channel = raf.getChannel();
+      int n = (int) ((size + CHUNK_MASK) >>> CHUNK_BITS);
+      MappedByteBuffer[] c = new MappedByteBuffer[n];
+      for (int i = 0; i < n; i++) {
+        long pos = (long) i << CHUNK_BITS;
+        c[i] = channel.map(FileChannel.MapMode.READ_WRITE, pos,
+            Math.min(size - pos, 1L << CHUNK_BITS));
+        c[i].order(ByteOrder.LITTLE_ENDIAN);
+      }
+      chunks = c; // mappings remain valid after the channel is closed
+    }
+    setSize(addrBits, width);
+  }
+
+  @Override
+  public boolean isMapped() {
+    return true;
+  }
+
+  File getFile() {
+    return file;
+  }
+
+  // Writes any changes back to the file now, rather than when the operating
+  // system gets around to it.
+  void force() {
+    for (MappedByteBuffer c : chunks)
+      c.force();
+  }
+
+  @Override
+  public MemContents clone() {
+    return this; // all users of a file share its contents
+  }
+
+  @Override
+  public int get(long addr) {
+    if (addr < 0 || addr > last)
+      return 0;
+    long off = addr << shift;
+    MappedByteBuffer c = chunks[(int) (off >>> CHUNK_BITS)];
+    int i = (int) (off & CHUNK_MASK);
+    switch (shift) {
+    case 0:
+      return c.get(i) & mask;
+    case 1:
+      return c.getShort(i) & mask;
+    default:
+      return c.getInt(i) & mask;
+    }
+  }
+
+  private void store(long addr, int val) {
+    long off = addr << shift;
+    MappedByteBuffer c = chunks[(int) (off >>> CHUNK_BITS)];
+    int i = (int) (off & CHUNK_MASK);
+    switch (shift) {
+    case 0:
+      c.put(i, (byte) val);
+      break;
+    case 1:
+      c.putShort(i, (short) val);
+      break;
+    default:
+      c.putInt(i, val);
+    }
+  }
+
+  @Override
+  public void set(long addr, int value) {
+    if (addr < 0 || addr > last)
+      return;
+    int old = get(addr);
+    int val = value & mask;
+    if (old != val) {
+      store(addr, val);
+      fireBytesChanged(addr, 1, new int[] { old });
+    }
+  }
+
+  @Override
+  public boolean write(long addr, int value) {
+    if (addr < 0 || addr > last)
+      return false;
+    int val = value & mask;
+    if (get(addr) == val)
+      return false;
+    store(addr, val);
+    return markDirty(addr);
+  }
+
+  @Override
+  public void get(long start, int[] values) {
+    for (int i = 0; i < values.length; i++)
+      values[i] = get(start + i);
+  }
+
+  @Override
+  public boolean write(long start, int[] values) {
+    boolean first = false;
+    for (int i = 0; i < values.length; i++)
+      first |= write(start + i, values[i]);
+    return first;
+  }
+
+  @Override
+  public void set(long start, int[] values) {
+    int n = (int) Math.min(values.length, last + 1 - start);
+    if (start < 0 || n <= 0)
+      return;
+    int[] oldValues = null;
+    for (int i = 0; i < n; i++) {
+      int old = get(start + i);
+      int val = values[i] & mask;
+      if (old != val) {
+        if (oldValues == null) {
+          oldValues = new int[n];
+          for (int j = 0; j < n; j++)
+            oldValues[j] = j < i ? values[j] & mask : get(start + j);
+        }
+        store(start + i, val);
+      }
+    }
+    if (oldValues != null)
+      fireBytesChanged(start, n, oldValues);
+  }
+
+  @Override
+  public void fill(long start, long len, int value) {
+    len = Math.min(len, last + 1 - start);
+    if (start < 0 || len <= 0)
+      return;
+    if (len > Integer.MAX_VALUE / 4) {
+      // too large to record for undo, so just do it
+      for (long a = start; a < start + len; a++)
+        store(a, value & mask);
+      fireBytesChanged(start, len, null);
+      return;
+    }
+    int[] vals = new int[(int) len];
+    Arrays.fill(vals, value);
+    set(start, vals);
+  }
+
+  @Override
+  public void clear() {
+    fill(0, last + 1, 0);
+  }
+
+  @Override
+  public long findNonZero(long start) {
+    for (long a = Math.max(start, 0); a <= last; a++) {
+      if (get(a) != 0)
+        return a;
+    }
+    return -1;
+  }
+
+  @Override
+  public boolean isClear() {
+    for (long a = 0; a <= last; a++) {
+      if (get(a) != 0)
+        return false;
+    }
+    return true;
+  }
+
+  @Override
+  public void setDimensions(int addrBits, int width) {
+    if (addrBits == getLogLength() && width == getWidth())
+      return;
+    throw new UnsupportedOperationException(String.format(
+          "%s is mapped as %d x %d bits and cannot be resized",
+          file, 1L << getLogLength(), getWidth()));
+  }
+}
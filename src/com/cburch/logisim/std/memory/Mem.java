@@ -32,8 +32,12 @@ import static com.cburch.logisim.std.Strings.S;
 
 import java.awt.Graphics;
 import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
 import java.util.WeakHashMap;
 
+import javax.swing.SwingUtilities;
+
 import com.cburch.hex.HexModel;
 import com.cburch.hex.HexModelListener;
 import com.cburch.logisim.circuit.CircuitState;
@@ -54,6 +58,7 @@ import com.cburch.logisim.proj.Project;
 import com.cburch.logisim.tools.MenuExtender;
 import com.cburch.logisim.tools.key.BitWidthConfigurator;
 import com.cburch.logisim.tools.key.JoinedConfigurator;
+import com.cburch.logisim.util.Errors;
 import com.cburch.logisim.util.GraphicsUtil;
 import com.cburch.logisim.util.StringGetter;
 
@@ -94,8 +99,19 @@ public abstract class Mem extends InstanceFactory {
         SINGLE, DUAL, QUAD });
 
   public static final int SymbolWidth = 200;
+  // Address widths beyond MAX_HEAP_ADDR_BITS are only allowed for memories
+  // attached to a backing file (see FILE_ATTR), whose contents stay off the
+  // heap. The attribute sets coerce wider values down when there is no file,
+  // and list FILE_ATTR before ADDR_ATTR so that it is loaded first.
   public static final Attribute<BitWidth> ADDR_ATTR = Attributes.forBitWidth(
-      "addrWidth", S.getter("ramAddrWidthAttr"), 2, 24);
+      "addrWidth", S.getter("ramAddrWidthAttr"), 2, 32);
+  static final int MAX_HEAP_ADDR_BITS = 24;
+
+  // When set, the contents are memory-mapped from this file (see
+  // MappedMemContents) instead of being held on the heap.
+  public static final Attribute<Attributes.LinkedFile> FILE_ATTR = Attributes.forFilename(
+      "backingFile", S.getter("memBackingFileAttr"),
+      S.getter("memBackingFileDialogTitle"));
 
   public static final Attribute<BitWidth> DATA_ATTR = Attributes.forBitWidth(
       "dataWidth", S.getter("ramDataWidthAttr"));
@@ -113,7 +129,7 @@ public abstract class Mem extends InstanceFactory {
     currentInstanceFiles = new WeakHashMap<Instance, File>();
     setInstancePoker(MemPoker.class);
     setKeyConfigurator(JoinedConfigurator.create(new BitWidthConfigurator(
-            ADDR_ATTR, 2, 24, 0), new BitWidthConfigurator(DATA_ATTR)));
+            ADDR_ATTR, 2, MAX_HEAP_ADDR_BITS, 0), new BitWidthConfigurator(DATA_ATTR)));
 
     setOffsetBounds(Bounds.create(-140, -40, 140, 80));
   }
@@ -165,7 +181,7 @@ public abstract class Mem extends InstanceFactory {
     g.drawLine(xpos + 48, ypos + 20, xpos + 45, ypos + 23);
     g.drawLine(xpos + 45, ypos + 23, xpos + 45, ypos + 30);
     g.drawLine(xpos + 40, ypos + 35, xpos + 45, ypos + 30);
-    String size = Integer.toString((1 << NrAddressBits) - 1);
+    String size = Long.toString((1L << NrAddressBits) - 1);
     int StrSize = g.getFontMetrics(g.getFont()).stringWidth(size);
     g.drawLine(xpos + 60, ypos + 20, xpos + 60 + StrSize, ypos + 20);
     GraphicsUtil.drawText(g, "0", xpos + 60 + (StrSize / 2), ypos + 19,
@@ -204,10 +220,36 @@ public abstract class Mem extends InstanceFactory {
     return Integer.toString(size) + Labels[pass];
   }
 
+  // Returns the mapped contents for the backing file, if one is configured,
+  // or null. A file that can't be mapped is reported once, after which the
+  // memory falls back to ordinary heap contents.
+  static MemContents mapBackingFile(Attributes.LinkedFile backing,
+      int addrBits, int dataBits) {
+    if (backing == null)
+      return null;
+    try {
+      return MemContents.createMapped(backing.absolute, addrBits, dataBits);
+    } catch (IOException e) {
+      synchronized (failedFiles) {
+        if (!failedFiles.add(backing.absolute))
+          return null;
+      }
+      SwingUtilities.invokeLater(() -> Errors.title(S.get("memBackingFileError"))
+          .show(S.fmt("memBackingFileErrorMessage", backing.absolute, e.getMessage()), e));
+      return null;
+    }
+  }
+
+  private static HashSet<File> failedFiles = new HashSet<>();
+
   abstract MemState getState(Instance instance, CircuitState state);
 
   abstract MemState getState(InstanceState state);
 
+  public MemContents getContents(InstanceState state) {
+    return getState(state).getContents();
+  }
+
   @Override
   public abstract void propagate(InstanceState state);
 
@@ -238,9 +280,9 @@ public abstract class Mem extends InstanceFactory {
     } else {
       int addrBits = painter.getAttributeValue(ADDR_ATTR).getWidth();
       int dataBits = painter.getAttributeValue(DATA_ATTR).getWidth();
-      int bytes = ((1 << addrBits)*dataBits + 7)/8;
+      long bytes = ((1L << addrBits)*dataBits + 7)/8;
       String label;
-      if (bytes >= 1<<30) {
+      if (bytes >= 1L<<30) {
         label = S.fmt(mem+"GigabyteLabel", "" + (bytes >>> 30));
       } else if (bytes >= 1<<20) {
         label = S.fmt(mem+"MegabyteLabel", "" + (bytes >> 20));
@@ -273,6 +315,26 @@ public abstract class Mem extends InstanceFactory {
     // painter.drawPort(CS, S.get("ramCSLabel"), Direction.SOUTH);
   }
 
+  // Returns the address width to use given the backing file, if any.
+  static BitWidth limitAddrBits(BitWidth addrBits, Attributes.LinkedFile backing) {
+    if (backing != null || addrBits.getWidth() <= MAX_HEAP_ADDR_BITS)
+      return addrBits;
+    return BitWidth.create(MAX_HEAP_ADDR_BITS);
+  }
+
+  // Returns the number of address bits to use for contents held on the heap,
+  // e.g. if a backing file could not be mapped.
+  static int heapAddrBits(int addrBits) {
+    return Math.min(addrBits, MAX_HEAP_ADDR_BITS);
+  }
+
+  // The HDL generators build arrays of 1 << addrWidth entries, and know
+  // nothing of backing files.
+  static boolean supportsHDL(AttributeSet attrs) {
+    return attrs.getValue(FILE_ATTR) == null
+        && attrs.getValue(ADDR_ATTR).getWidth() <= MAX_HEAP_ADDR_BITS;
+  }
+
   public static int lineSize(AttributeSet attrs) {
     AttributeOption v = attrs.getValue(LINE_ATTR);
     if (QUAD.equals(v)) return 4;
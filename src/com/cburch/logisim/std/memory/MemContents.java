@@ -30,6 +30,8 @@
 
 package com.cburch.logisim.std.memory;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
 
 import com.cburch.hex.HexModel;
@@ -52,11 +54,53 @@ public class MemContents implements Cloneable, HexModel {
   private int mask;
   private Page[] pages;
 
+  // Simulation writes, via write(), are not announced one at a time. Instead
+  // they are coalesced into a single dirty range, published as one
+  // bytesChanged() event by flushChanges(), typically once per propagation
+  // step. Such events carry no old values, so they are never recorded for
+  // undo. The range is empty when dirtyEnd < dirtyStart.
+  private long dirtyStart = 0, dirtyEnd = -1;
+
+  // Accesses by RAM/ROM components are recorded here while tracing is on.
+  private MemTrace trace = null;
+
   private MemContents(int addrBits, int width) {
     listeners = null;
     setDimensions(addrBits, width);
   }
 
+  // For subclasses that keep contents somewhere other than in pages, e.g.
+  // MappedMemContents. Such subclasses override every method that accesses
+  // pages, and leave pages null.
+  MemContents() {
+  }
+
+  // Sets the dimensions, without affecting the contents.
+  void setSize(int addrBits, int width) {
+    this.addrBits = addrBits;
+    this.width = width;
+    this.mask = width == 32 ? 0xffffffff : ((1 << width) - 1);
+  }
+
+  // Returns a file-backed MemContents for the given file, as described in
+  // MappedMemContents.
+  public static MemContents createMapped(File file, int addrBits, int width)
+      throws IOException {
+    return MappedMemContents.open(file, addrBits, width);
+  }
+
+  public boolean isMapped() {
+    return false;
+  }
+
+  public MemTrace getTrace() {
+    return trace;
+  }
+
+  public void setTrace(MemTrace value) {
+    trace = value;
+  }
+
   public void addHexModelWeakListener(Object owner, HexModelListener l) {
     if (listeners == null)
       listeners = new EventSourceWeakSupport<HexModelListener>();
@@ -83,7 +127,7 @@ public class MemContents implements Cloneable, HexModel {
         changed = true;
     }
     if (changed) {
-      pages[index] = null;
+      releasePage(index);
       fireBytesChanged(index << PAGE_SIZE_BITS, oldValues.length,
           oldValues);
     }
@@ -94,11 +138,14 @@ public class MemContents implements Cloneable, HexModel {
     try {
       MemContents ret = (MemContents) super.clone();
       ret.listeners = null;
-      ret.pages = new Page[this.pages.length];
-      for (int i = 0; i < ret.pages.length; i++) {
-        if (this.pages[i] != null) {
-          ret.pages[i] = this.pages[i].clone();
-        }
+      ret.dirtyStart = 0;
+      ret.dirtyEnd = -1;
+      ret.trace = null;
+      // Pages are shared copy-on-write, so cloning costs only the page table.
+      ret.pages = this.pages.clone();
+      for (Page page : ret.pages) {
+        if (page != null)
+          page.retain();
       }
       return ret;
     } catch (CloneNotSupportedException ex) {
@@ -107,10 +154,22 @@ public class MemContents implements Cloneable, HexModel {
     }
   }
 
-  private void ensurePage(int index) {
-    if (pages[index] == null) {
-      pages[index] = MemContentsSub.createPage(PAGE_SIZE, width);
-    }
+  // Returns the page at index, creating it if needed, and first making a
+  // private copy if the page is shared with a clone.
+  private Page writablePage(int index) {
+    Page page = pages[index];
+    if (page == null)
+      page = pages[index] = MemContentsSub.createPage(PAGE_SIZE, width);
+    else if (page.isShared())
+      page = pages[index] = page.unshare();
+    return page;
+  }
+
+  private void releasePage(int index) {
+    Page page = pages[index];
+    pages[index] = null;
+    if (page != null)
+      page.release();
   }
 
   public void fill(long start, long len, int value) {
@@ -124,15 +183,14 @@ public class MemContents implements Cloneable, HexModel {
     value &= mask;
 
     if (pageStart == pageEnd) {
-      ensurePage(pageStart);
+      Page page = writablePage(pageStart);
       int[] vals = new int[(int) len];
       Arrays.fill(vals, value);
-      Page page = pages[pageStart];
       if (!page.matches(vals, startOffs, mask)) {
         int[] oldValues = page.get(startOffs, (int) len);
         page.load(startOffs, vals, mask);
         if (value == 0 && page.isClear())
-          pages[pageStart] = null;
+          releasePage(pageStart);
         fireBytesChanged(start, len, oldValues);
       }
     } else {
@@ -142,16 +200,15 @@ public class MemContents implements Cloneable, HexModel {
         if (value == 0 && pages[pageStart] == null) {
           // nothing to do
         } else {
-          ensurePage(pageStart);
+          Page page = writablePage(pageStart);
           int[] vals = new int[PAGE_SIZE - startOffs];
           Arrays.fill(vals, value);
-          Page page = pages[pageStart];
           if (!page.matches(vals, startOffs, mask)) {
             int[] oldValues = page.get(startOffs, vals.length);
             page.load(startOffs, vals, mask);
             if (value == 0 && page.isClear())
-              pages[pageStart] = null;
-            fireBytesChanged(start, PAGE_SIZE - pageStart,
+              releasePage(pageStart);
+            fireBytesChanged(start, PAGE_SIZE - startOffs,
                 oldValues);
           }
         }
@@ -165,8 +222,7 @@ public class MemContents implements Cloneable, HexModel {
         int[] vals = new int[PAGE_SIZE];
         Arrays.fill(vals, value);
         for (int i = pageStart + 1; i < pageEnd; i++) {
-          ensurePage(i);
-          Page page = pages[i];
+          Page page = writablePage(i);
           if (!page.matches(vals, 0, mask)) {
             int[] oldValues = page.get(0, PAGE_SIZE);
             page.load(0, vals, mask);
@@ -176,18 +232,17 @@ public class MemContents implements Cloneable, HexModel {
         }
       }
       if (endOffs >= 0) {
-        Page page = pages[pageEnd];
-        if (value == 0 && page == null) {
+        if (value == 0 && pages[pageEnd] == null) {
           // nothing to do
         } else {
-          ensurePage(pageEnd);
+          Page page = writablePage(pageEnd);
           int[] vals = new int[endOffs + 1];
           Arrays.fill(vals, value);
           if (!page.matches(vals, 0, mask)) {
             int[] oldValues = page.get(0, endOffs + 1);
             page.load(0, vals, mask);
             if (value == 0 && page.isClear())
-              pages[pageEnd] = null;
+              releasePage(pageEnd);
             fireBytesChanged((long) pageEnd << PAGE_SIZE_BITS,
                 endOffs + 1, oldValues);
           }
@@ -196,7 +251,7 @@ public class MemContents implements Cloneable, HexModel {
     }
   }
 
-  private void fireBytesChanged(long start, long numBytes, int[] oldValues) {
+  void fireBytesChanged(long start, long numBytes, int[] oldValues) {
     if (listeners == null)
       return;
     boolean found = false;
@@ -208,7 +263,7 @@ public class MemContents implements Cloneable, HexModel {
       listeners = null;
   }
 
-  private void fireMetainfoChanged() {
+  void fireMetainfoChanged() {
     if (listeners == null)
       return;
     boolean found = false;
@@ -228,6 +283,45 @@ public class MemContents implements Cloneable, HexModel {
     return pages[page].get(offs) & mask;
   }
 
+  // Reads values.length consecutive values, starting at start, e.g. a whole
+  // line of a multi-word memory. Each page is looked up once for the run,
+  // rather than once per value as with get(long).
+  public void get(long start, int[] values) {
+    int n = values.length;
+    for (int i = 0; i < n; ) {
+      long addr = start + i;
+      int page = (int) (addr >>> PAGE_SIZE_BITS);
+      int offs = (int) (addr & PAGE_MASK);
+      int len = Math.min(n - i, PAGE_SIZE - offs);
+      Page p = page >= 0 && page < pages.length ? pages[page] : null;
+      if (p == null)
+        Arrays.fill(values, i, i + len, 0);
+      else
+        p.get(offs, values, i, len, mask);
+      i += len;
+    }
+  }
+
+  // Returns the first address at or after start holding a non-zero value, or
+  // -1 if there is none. Pages that were never written are skipped whole.
+  public long findNonZero(long start) {
+    long last = getLastOffset();
+    long addr = Math.max(start, 0);
+    while (addr <= last) {
+      int index = (int) (addr >>> PAGE_SIZE_BITS);
+      Page page = pages[index];
+      if (page == null) {
+        addr = (long) (index + 1) << PAGE_SIZE_BITS;
+        continue;
+      }
+      for (int offs = (int) (addr & PAGE_MASK), n = page.getLength(); offs < n; offs++, addr++) {
+        if ((page.get(offs) & mask) != 0)
+          return addr;
+      }
+    }
+    return -1;
+  }
+
   public long getFirstOffset() {
     return 0;
   }
@@ -277,14 +371,93 @@ public class MemContents implements Cloneable, HexModel {
     int old = pages[page] == null ? 0 : pages[page].get(offs) & mask;
     int val = value & mask;
     if (old != val) {
-      if (pages[page] == null) {
-        pages[page] = MemContentsSub.createPage(PAGE_SIZE, width);
-      }
-      pages[page].set(offs, val);
+      writablePage(page).set(offs, val);
       fireBytesChanged(addr, 1, new int[] { old });
     }
   }
 
+  // Stores a value on behalf of the simulator, deferring notification until
+  // the next flushChanges(). Returns true if this is the first change since
+  // the last flush, in which case the caller should arrange for a flush.
+  public boolean write(long addr, int value) {
+    int page = (int) (addr >>> PAGE_SIZE_BITS);
+    int offs = (int) (addr & PAGE_MASK);
+    if (page < 0 || page >= pages.length)
+      return false;
+    int val = value & mask;
+    Page p = pages[page];
+    if (p == null) {
+      if (val == 0)
+        return false;
+      p = pages[page] = MemContentsSub.createPage(PAGE_SIZE, width);
+    } else if ((p.get(offs) & mask) == val) {
+      return false;
+    } else if (p.isShared()) {
+      p = pages[page] = p.unshare();
+    }
+    p.set(offs, val);
+    return markDirty(addr);
+  }
+
+  // Stores consecutive values on behalf of the simulator, like write(long,
+  // int), but looking up (and if need be unsharing) each page once for the
+  // whole run. Returns true if this is the first change since the last flush.
+  public boolean write(long start, int[] values) {
+    long lo = -1, hi = -1;
+    int n = values.length;
+    for (int i = 0; i < n; ) {
+      long addr = start + i;
+      int page = (int) (addr >>> PAGE_SIZE_BITS);
+      int offs = (int) (addr & PAGE_MASK);
+      int len = Math.min(n - i, PAGE_SIZE - offs);
+      if (page < 0 || page >= pages.length)
+        break;
+      Page p = pages[page];
+      for (int j = 0; j < len; j++) {
+        int val = values[i + j] & mask;
+        if ((p == null ? 0 : p.get(offs + j) & mask) == val)
+          continue;
+        if (p == null)
+          p = pages[page] = MemContentsSub.createPage(PAGE_SIZE, width);
+        else if (p.isShared())
+          p = pages[page] = p.unshare();
+        p.set(offs + j, val);
+        if (lo < 0)
+          lo = addr + j;
+        hi = addr + j;
+      }
+      i += len;
+    }
+    if (lo < 0)
+      return false;
+    boolean first = markDirty(lo);
+    markDirty(hi);
+    return first;
+  }
+
+  // Adds addr to the dirty range, returning true if the range was empty.
+  boolean markDirty(long addr) {
+    if (dirtyEnd < dirtyStart) {
+      dirtyStart = dirtyEnd = addr;
+      return true;
+    }
+    if (addr < dirtyStart)
+      dirtyStart = addr;
+    else if (addr > dirtyEnd)
+      dirtyEnd = addr;
+    return false;
+  }
+
+  // Publishes all changes made by write() since the last flush.
+  public void flushChanges() {
+    if (dirtyEnd < dirtyStart)
+      return;
+    long start = dirtyStart, len = dirtyEnd - dirtyStart + 1;
+    dirtyStart = 0;
+    dirtyEnd = -1;
+    fireBytesChanged(start, len, null);
+  }
+
   public void set(long start, int[] values) {
     if (values.length == 0)
       return;
@@ -295,13 +468,12 @@ public class MemContents implements Cloneable, HexModel {
     int endOffs = (int) ((start + values.length - 1) & PAGE_MASK);
 
     if (pageStart == pageEnd) {
-      ensurePage(pageStart);
-      Page page = pages[pageStart];
+      Page page = writablePage(pageStart);
       if (!page.matches(values, startOffs, mask)) {
         int[] oldValues = page.get(startOffs, values.length);
         page.load(startOffs, values, mask);
         if (page.isClear())
-          pages[pageStart] = null;
+          releasePage(pageStart);
         fireBytesChanged(start, values.length, oldValues);
       }
     } else {
@@ -310,16 +482,15 @@ public class MemContents implements Cloneable, HexModel {
         pageStart--;
         nextOffs = 0;
       } else {
-        ensurePage(pageStart);
+        Page page = writablePage(pageStart);
         int[] vals = new int[PAGE_SIZE - startOffs];
         System.arraycopy(values, 0, vals, 0, vals.length);
-        Page page = pages[pageStart];
         if (!page.matches(vals, startOffs, mask)) {
           int[] oldValues = page.get(startOffs, vals.length);
           page.load(startOffs, vals, mask);
           if (page.isClear())
-            pages[pageStart] = null;
-          fireBytesChanged(start, PAGE_SIZE - pageStart, oldValues);
+            releasePage(pageStart);
+          fireBytesChanged(start, PAGE_SIZE - startOffs, oldValues);
         }
         nextOffs = vals.length;
       }
@@ -342,26 +513,26 @@ public class MemContents implements Cloneable, HexModel {
         }
         if (page != null) {
           System.arraycopy(values, offs, vals, 0, PAGE_SIZE);
-          if (!page.matches(vals, startOffs, mask)) {
+          if (!page.matches(vals, 0, mask)) {
+            page = writablePage(i);
             int[] oldValues = page.get(0, PAGE_SIZE);
             page.load(0, vals, mask);
             if (page.isClear())
-              pages[i] = null;
+              releasePage(i);
             fireBytesChanged((long) i << PAGE_SIZE_BITS, PAGE_SIZE,
                 oldValues);
           }
         }
       }
       if (endOffs >= 0) {
-        ensurePage(pageEnd);
+        Page page = writablePage(pageEnd);
         vals = new int[endOffs + 1];
         System.arraycopy(values, offs, vals, 0, endOffs + 1);
-        Page page = pages[pageEnd];
-        if (!page.matches(vals, startOffs, mask)) {
+        if (!page.matches(vals, 0, mask)) {
           int[] oldValues = page.get(0, endOffs + 1);
           page.load(0, vals, mask);
           if (page.isClear())
-            pages[pageEnd] = null;
+            releasePage(pageEnd);
           fireBytesChanged((long) pageEnd << PAGE_SIZE_BITS,
               endOffs + 1, oldValues);
         }
@@ -382,6 +553,15 @@ public class MemContents implements Cloneable, HexModel {
             "memory offset out of range: offset 0x%x count 0x%x exceeds last valid offset 0x%x",
             offs, count, src.getLastOffset()));
 
+    if (pages == null || src.pages == null) {
+      // at least one side is not paged, so copy value by value
+      int[] vals = new int[count];
+      for (int i = 0; i < count; i++)
+        vals[i] = src.get(offs + i);
+      set(start, vals);
+      return;
+    }
+
     int dp = (int) (start >>> PAGE_SIZE_BITS);
     int di = (int) (start & PAGE_MASK);
     int dstPageEnd = (int) ((start + count - 1) >>> PAGE_SIZE_BITS);
@@ -403,8 +583,7 @@ public class MemContents implements Cloneable, HexModel {
         // clearing locations di..di+n on this page
         fill(dp*PAGE_SIZE+di, n, 0);
       } else {
-        if (dstPage == null)
-          dstPage = pages[dp] = MemContentsSub.createPage(PAGE_SIZE, width);
+        dstPage = writablePage(dp);
         // copy locations di..di+n on this page
         int[] oldVals = dstPage.get(di, n);
         int[] vals = srcPage.get(si, n);
@@ -429,9 +608,7 @@ public class MemContents implements Cloneable, HexModel {
   public void setDimensions(int addrBits, int width) {
     if (addrBits == this.addrBits && width == this.width)
       return;
-    this.addrBits = addrBits;
-    this.width = width;
-    this.mask = width == 32 ? 0xffffffff : ((1 << width) - 1);
+    setSize(addrBits, width);
 
     Page[] oldPages = pages;
     int pageCount;
@@ -457,6 +634,10 @@ public class MemContents implements Cloneable, HexModel {
           }
         }
       }
+      for (Page page : oldPages) {
+        if (page != null)
+          page.release();
+      }
     }
     if (copiedPages == 0 && pages[0] == null) {
       pages[0] = MemContentsSub.createPage(pageLength, width);
@@ -464,18 +645,47 @@ public class MemContents implements Cloneable, HexModel {
     fireMetainfoChanged();
   }
 
+  // Pages are reference counted so that clones of a MemContents can share
+  // them, copying a page only when one of the sharers first writes to it. A
+  // MemContents that is garbage collected never releases its pages, so the
+  // count may overestimate, which costs at most one unneeded copy per page.
   static abstract class Page implements Cloneable {
+    private volatile int owners = 1;
+
     abstract void clear();
 
     @Override
     public Page clone() {
       try {
-        return (Page) super.clone();
+        Page ret = (Page) super.clone();
+        ret.owners = 1;
+        return ret;
       } catch (CloneNotSupportedException e) {
         return this;
       }
     }
 
+    boolean isShared() {
+      return owners > 1;
+    }
+
+    synchronized void retain() {
+      owners++;
+    }
+
+    synchronized void release() {
+      owners--;
+    }
+
+    // Returns a private copy of this shared page, for the caller to use in
+    // place of this one. The copy is made before this page is released, so
+    // no other owner can be writing to it meanwhile.
+    synchronized Page unshare() {
+      Page copy = clone();
+      owners--;
+      return copy;
+    }
+
     abstract int get(int addr);
 
     int[] get(int start, int len) {
@@ -485,6 +695,11 @@ public class MemContents implements Cloneable, HexModel {
       return ret;
     }
 
+    void get(int start, int[] dst, int dstOffs, int len, int mask) {
+      for (int i = 0; i < len; i++)
+        dst[dstOffs + i] = get(start + i) & mask;
+    }
+
     void set(int start, int[] val) {
       for (int i = 0; i < val.length; i++)
         set(start + i, val[i]);
@@ -58,6 +58,12 @@ class MemContentsSub {
       return addr >= 0 && addr < data.length ? data[addr] : 0;
     }
 
+    @Override
+    void get(int start, int[] dst, int dstOffs, int len, int mask) {
+      for (int i = 0; i < len; i++)
+        dst[dstOffs + i] = data[start + i] & mask;
+    }
+
     //
     // methods for accessing data within memory
     //
@@ -110,6 +116,12 @@ class MemContentsSub {
       return addr >= 0 && addr < data.length ? data[addr] : 0;
     }
 
+    @Override
+    void get(int start, int[] dst, int dstOffs, int len, int mask) {
+      for (int i = 0; i < len; i++)
+        dst[dstOffs + i] = data[start + i] & mask;
+    }
+
     //
     // methods for accessing data within memory
     //
@@ -162,6 +174,12 @@ class MemContentsSub {
       return addr >= 0 && addr < data.length ? data[addr] : 0;
     }
 
+    @Override
+    void get(int start, int[] dst, int dstOffs, int len, int mask) {
+      for (int i = 0; i < len; i++)
+        dst[dstOffs + i] = data[start + i] & mask;
+    }
+
     //
     // methods for accessing data within memory
     //
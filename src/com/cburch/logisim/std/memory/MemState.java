@@ -32,9 +32,12 @@ package com.cburch.logisim.std.memory;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics;
+import java.util.Arrays;
+import java.util.Objects;
 
 import com.cburch.hex.HexModel;
 import com.cburch.hex.HexModelListener;
+import com.cburch.logisim.data.Attributes;
 import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.instance.InstanceData;
 import com.cburch.logisim.util.GraphicsUtil;
@@ -43,6 +46,9 @@ import com.cburch.logisim.util.StringUtil;
 class MemState implements InstanceData, Cloneable, HexModelListener {
 
   private MemContents contents;
+  private Attributes.LinkedFile backing; // file the contents were mapped from
+  private int[] line; // scratch space for whole-line accesses, see getLine()
+  private long[] lastRead; // address last read by each read port, see isNewRead()
   private long curScroll = 0;
   private long cursorLoc = -1;
   private long curAddr = -1;
@@ -90,14 +96,14 @@ class MemState implements InstanceData, Cloneable, HexModelListener {
       NrDataSymbolsEachLine--;
     NrOfLines = Math.max(1, DisplayHeight / (CharHeight + 2));
     int TotalShowableEntries = NrDataSymbolsEachLine * NrOfLines;
-    int TotalNrOfEntries = (1 << addrBits);
+    long TotalNrOfEntries = (1L << addrBits);
     while (TotalShowableEntries > (TotalNrOfEntries + NrDataSymbolsEachLine - 1)) {
       NrOfLines--;
       TotalShowableEntries -= NrDataSymbolsEachLine;
     }
     if (NrOfLines == 0) {
       NrOfLines = 1;
-      NrDataSymbolsEachLine = TotalNrOfEntries;
+      NrDataSymbolsEachLine = (int) TotalNrOfEntries;
     }
     /* here we calculate to total x-sizes */
     DataBlockSize = NrDataSymbolsEachLine * (DataSize);
@@ -113,6 +119,8 @@ class MemState implements InstanceData, Cloneable, HexModelListener {
       MemState ret = (MemState) super.clone();
       ret.contents = contents.clone();
       ret.contents.addHexModelWeakListener(null, ret);
+      ret.line = null;
+      ret.lastRead = null;
       return ret;
     } catch (CloneNotSupportedException e) {
       return null;
@@ -170,6 +178,46 @@ class MemState implements InstanceData, Cloneable, HexModelListener {
     return contents;
   }
 
+  Attributes.LinkedFile getBacking() {
+    return backing;
+  }
+
+  void setBacking(Attributes.LinkedFile value) {
+    backing = value;
+  }
+
+  // Returns true if this state was made for the given backing file and, if
+  // the file is mapped, for the given dimensions. Mapped contents are shared
+  // by everything using the file, so they are never resized in place.
+  boolean isFor(Attributes.LinkedFile value, int addrBits, int dataBits) {
+    if (!Objects.equals(backing, value))
+      return false;
+    return !contents.isMapped()
+        || (contents.getLogLength() == addrBits && contents.getWidth() == dataBits);
+  }
+
+  // Returns a buffer of n values, reused across calls, for moving a whole
+  // line of a multi-word memory to or from the contents in one access.
+  int[] getLine(int n) {
+    if (line == null || line.length != n)
+      line = new int[n];
+    return line;
+  }
+
+  // Notes that read port p now delivers addr, or -1 while it is not reading,
+  // and returns whether that is a new access. Components propagate whenever
+  // any input changes, so traces use this to count each read only once.
+  boolean isNewRead(int p, long addr) {
+    if (lastRead == null || lastRead.length <= p) {
+      int n = lastRead == null ? 0 : lastRead.length;
+      lastRead = Arrays.copyOf(lastRead == null ? new long[0] : lastRead, p + 1);
+      Arrays.fill(lastRead, n, p + 1, -1);
+    }
+    boolean changed = lastRead[p] != addr;
+    lastRead[p] = addr;
+    return changed && addr >= 0;
+  }
+
   long getCurrent() {
     return curAddr;
   }
@@ -226,7 +274,7 @@ class MemState implements InstanceData, Cloneable, HexModelListener {
       CalculateDisplayParameters(g, offsetX, offsetY, DisplayWidth, DisplayHeight);
     }
     int BlockHeight = NrOfLines * (CharHeight + 2);
-    int TotalNrOfEntries = (1 << getAddrBits());
+    long TotalNrOfEntries = (1L << getAddrBits());
     g.setColor(Color.LIGHT_GRAY);
     g.fillRect(leftX + xOffset, topY + yOffset, DataBlockSize
         + AddrBlockSize, BlockHeight);
@@ -235,7 +283,7 @@ class MemState implements InstanceData, Cloneable, HexModelListener {
         DataBlockSize, BlockHeight);
     g.setColor(Color.BLACK);
     /* draw the addresses */
-    int addr = (int) curScroll;
+    long addr = curScroll;
     if ((addr + (NrOfLines * NrDataSymbolsEachLine)) > TotalNrOfEntries) {
       addr = TotalNrOfEntries - (NrOfLines * NrDataSymbolsEachLine);
       if (addr < 0)
@@ -252,7 +300,7 @@ class MemState implements InstanceData, Cloneable, HexModelListener {
     for (int i = 0; i < NrOfLines; i++) {
       /* Draw address */
       GraphicsUtil.drawText(g,
-          StringUtil.toHexString(getAddrBits(), addr), leftX
+          StringUtil.toHexString(getAddrBits(), (int) addr), leftX
           + xOffset + (AddrBlockSize / 2), firsty + i
           * (yinc), GraphicsUtil.H_CENTER,
           GraphicsUtil.V_CENTER);
@@ -298,7 +346,7 @@ class MemState implements InstanceData, Cloneable, HexModelListener {
       long curScrollEnd = curScroll + NrOfLines * NrDataSymbolsEachLine - 1;
       long linesToScroll = (addr - curScrollEnd + NrDataSymbolsEachLine-1)/NrDataSymbolsEachLine;
       curScroll += linesToScroll * NrDataSymbolsEachLine;
-      long TotalNrOfEntries = (1 << addrBits);
+      long TotalNrOfEntries = (1L << addrBits);
       if ((curScroll + (NrOfLines * NrDataSymbolsEachLine)) > TotalNrOfEntries)
         curScroll = TotalNrOfEntries - (NrOfLines * NrDataSymbolsEachLine);
     }
@@ -329,7 +377,7 @@ class MemState implements InstanceData, Cloneable, HexModelListener {
   void setScroll(long addr) {
     if (RecalculateParameters)
       return;
-    long maxAddr = (1 << getAddrBits())
+    long maxAddr = (1L << getAddrBits())
         - (NrOfLines * NrDataSymbolsEachLine);
     if (addr > maxAddr) {
       addr = maxAddr; // note: maxAddr could be negative
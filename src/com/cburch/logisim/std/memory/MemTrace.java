@@ -0,0 +1,192 @@
+/**
+ * This file is part of Logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with Logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + Haute École Spécialisée Bernoise
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ *   + REDS Institute - HEIG-VD, Yverdon-les-Bains, Switzerland
+ *     http://reds.heig-vd.ch
+ * This version of the project is currently maintained by:
+ *   + Kevin Walsh (kwalsh@holycross.edu, http://mathcs.holycross.edu/~kwalsh)
+ */
+
+package com.cburch.logisim.std.memory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+// MemTrace records the reads and writes that RAM and ROM components make to
+// their contents during simulation. A trace is attached to a MemContents only
+// while someone is interested (the hex editor's heatmap, or -tty memtrace);
+// otherwise the components pay for a single null check per access.
+//
+// The most recent accesses are kept in a ring of longs, each holding the
+// address shifted left by one with the low bit set for writes. Accesses are
+// recorded only by the simulation thread, so the ring needs no locking: the
+// entry is stored before the volatile count is advanced, and readers (the
+// GUI) take a snapshot and discard whatever was overwritten meanwhile.
+// Per-address counts are kept in buckets, one bucket per address for
+// memories of up to 2^16 words, and covering several addresses otherwise.
+// Counts are longs, as long simulations easily pass 2^31 accesses to a
+// bucket.
+public class MemTrace {
+
+  public static class Loop {
+    public final long start, end; // first and last address of the body
+    public final int iterations;
+
+    Loop(long start, long end, int iterations) {
+      this.start = start;
+      this.end = end;
+      this.iterations = iterations;
+    }
+  }
+
+  private static final int RING_BITS = 16;
+  private static final int MAX_BUCKET_BITS = 16;
+
+  private final long[] ring = new long[1 << RING_BITS];
+  private final int ringMask = ring.length - 1;
+  private volatile long count;
+  private final int bucketShift;
+  private final long[] reads, writes;
+
+  public MemTrace(int addrBits) {
+    bucketShift = Math.max(0, addrBits - MAX_BUCKET_BITS);
+    reads = new long[1 << (addrBits - bucketShift)];
+    writes = new long[reads.length];
+  }
+
+  public void read(long addr) {
+    long n = count;
+    ring[(int) (n & ringMask)] = addr << 1;
+    reads[(int) (addr >>> bucketShift)]++;
+    count = n + 1;
+  }
+
+  public void write(long addr) {
+    long n = count;
+    ring[(int) (n & ringMask)] = (addr << 1) | 1;
+    writes[(int) (addr >>> bucketShift)]++;
+    count = n + 1;
+  }
+
+  // Total number of accesses recorded, including any no longer in the ring.
+  public long getCount() {
+    return count;
+  }
+
+  public int getBucketShift() {
+    return bucketShift;
+  }
+
+  public long getReadCount(long addr) {
+    return reads[(int) (addr >>> bucketShift)];
+  }
+
+  public long getWriteCount(long addr) {
+    return writes[(int) (addr >>> bucketShift)];
+  }
+
+  public long getTotalReads() {
+    long total = 0;
+    for (long r : reads)
+      total += r;
+    return total;
+  }
+
+  public long getTotalWrites() {
+    long total = 0;
+    for (long w : writes)
+      total += w;
+    return total;
+  }
+
+  // Largest read plus write count of any bucket.
+  public long getMaxCount() {
+    long max = 0;
+    for (int i = 0; i < reads.length; i++)
+      max = Math.max(max, reads[i] + writes[i]);
+    return max;
+  }
+
+  // Returns the first addresses of the (at most) max busiest buckets, busiest
+  // first.
+  public long[] getHottest(int max) {
+    Integer[] idx = new Integer[reads.length];
+    int n = 0;
+    for (int i = 0; i < reads.length; i++) {
+      if (reads[i] + writes[i] > 0)
+        idx[n++] = i;
+    }
+    Arrays.sort(idx, 0, n, (a, b) -> Long.compare(reads[b] + writes[b], reads[a] + writes[a]));
+    long[] ret = new long[Math.min(n, max)];
+    for (int i = 0; i < ret.length; i++)
+      ret[i] = (long) idx[i] << bucketShift;
+    return ret;
+  }
+
+  // Returns up to max of the most recent accesses, oldest first, in the
+  // encoding described above.
+  public long[] getRecent(int max) {
+    long end = count;
+    long start = Math.max(0, Math.max(end - ring.length, end - max));
+    long[] ret = new long[(int) (end - start)];
+    for (long i = start; i < end; i++)
+      ret[(int) (i - start)] = ring[(int) (i & ringMask)];
+    // entries the simulator overwrote while we were copying are unreliable
+    long lost = count - ring.length - start;
+    if (lost > 0)
+      ret = Arrays.copyOfRange(ret, (int) Math.min(lost, ret.length), ret.length);
+    return ret;
+  }
+
+  // Finds the loops executing most often among the recent reads, such as
+  // instruction fetches from a program memory: a backward step from address
+  // b to some a < b marks one iteration of a loop whose body spans a..b.
+  public List<Loop> findHotLoops(int max) {
+    HashMap<Long, long[]> jumps = new HashMap<>(); // {a, b, iterations}
+    long prev = -1;
+    for (long e : getRecent(ring.length)) {
+      if ((e & 1) != 0)
+        continue;
+      long addr = e >>> 1;
+      if (addr < prev)
+        jumps.computeIfAbsent((addr << 32) | prev, k -> new long[] { addr, k & 0xffffffffL, 0 })[2]++;
+      prev = addr;
+    }
+    ArrayList<Loop> ret = new ArrayList<>();
+    for (long[] j : jumps.values()) {
+      if (j[2] >= 2)
+        ret.add(new Loop(j[0], j[1], (int) j[2]));
+    }
+    ret.sort((a, b) -> b.iterations - a.iterations);
+    return ret.size() > max ? ret.subList(0, max) : ret;
+  }
+
+  public void reset() {
+    Arrays.fill(reads, 0);
+    Arrays.fill(writes, 0);
+    count = 0;
+  }
+}
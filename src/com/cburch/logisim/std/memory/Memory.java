@@ -56,6 +56,9 @@ public class Memory extends Library {
     new FactoryDescription("Register",
         S.getter("registerComponent"), "register.gif",
         "Register"),
+    new FactoryDescription("Register File",
+        S.getter("registerFileComponent"), "register.gif",
+        "RegisterFile"),
     new FactoryDescription("Counter",
         S.getter("counterComponent"), "counter.gif",
         "Counter"),
@@ -66,6 +69,8 @@ public class Memory extends Library {
         "random.gif", "Random"),
     new FactoryDescription("RAM", S.getter("ramComponent"),
         "ram.gif", "Ram"),
+    new FactoryDescription("Multi-Port RAM", S.getter("multiPortRamComponent"),
+        "ram.gif", "MultiPortRam"),
     new FactoryDescription("ROM", S.getter("romComponent"),
         "rom.gif", "Rom"), };
 
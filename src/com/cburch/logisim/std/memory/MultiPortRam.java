@@ -0,0 +1,242 @@
+/**
+ * This file is part of Logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with Logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + Haute École Spécialisée Bernoise
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ *   + REDS Institute - HEIG-VD, Yverdon-les-Bains, Switzerland
+ *     http://reds.heig-vd.ch
+ * This version of the project is currently maintained by:
+ *   + Kevin Walsh (kwalsh@holycross.edu, http://mathcs.holycross.edu/~kwalsh)
+ */
+
+package com.cburch.logisim.std.memory;
+import static com.cburch.logisim.std.Strings.S;
+
+import java.awt.Graphics;
+
+import com.bfh.logisim.hdlgenerator.HDLSupport;
+import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Bounds;
+import com.cburch.logisim.data.Direction;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.InstancePainter;
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.instance.Port;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.util.GraphicsUtil;
+
+// A RAM with several independent read ports and one or two write ports, all
+// sharing a single MemContents, e.g. for register files and multi-issue
+// datapaths. Reads are combinational, like those of Ram. Writes happen on the
+// clock trigger; if two write ports store to the same address on the same
+// trigger, the higher-numbered port wins. Reads that see the address being
+// written return the newly stored value. Everything else (state, reset,
+// non-volatile contents, backing files, hex editor, tty image loading) is
+// inherited from Ram.
+public class MultiPortRam extends Ram {
+
+  // Port layout: read data 0 and read address 0 sit at the usual Mem.DATA and
+  // Mem.ADDR indexes, followed by (address, data) for the remaining read
+  // ports, then (address, data, store) for each write port, then the clock.
+
+  static int readAddr(int r) {
+    return r == 0 ? ADDR : MEM_INPUTS + 2*(r-1);
+  }
+
+  static int readData(int r) {
+    return r == 0 ? DATA : MEM_INPUTS + 2*(r-1) + 1;
+  }
+
+  static int writeAddr(AttributeSet attrs, int w) {
+    int nr = MultiPortRamAttributes.readPorts(attrs);
+    return MEM_INPUTS + 2*(nr-1) + 3*w;
+  }
+
+  static int writeData(AttributeSet attrs, int w) {
+    return writeAddr(attrs, w) + 1;
+  }
+
+  static int writeEnable(AttributeSet attrs, int w) {
+    return writeAddr(attrs, w) + 2;
+  }
+
+  static int clock(AttributeSet attrs) {
+    return writeAddr(attrs, MultiPortRamAttributes.writePorts(attrs));
+  }
+
+  public MultiPortRam() {
+    super("Multi-Port RAM", S.getter("multiPortRamComponent"));
+  }
+
+  @Override
+  void configurePorts(Instance instance) {
+    AttributeSet attrs = instance.getAttributeSet();
+    int nr = MultiPortRamAttributes.readPorts(attrs);
+    int nw = MultiPortRamAttributes.writePorts(attrs);
+    int clk = clock(attrs);
+    Port[] ps = new Port[clk + 1];
+    int ypos = 10;
+    for (int r = 0; r < nr; r++) {
+      ps[readAddr(r)] = new Port(0, ypos, Port.INPUT, ADDR_ATTR);
+      ps[readAddr(r)].setToolTip(S.getter("mpramReadAddrTip", ""+r));
+      ps[readData(r)] = new Port(SymbolWidth + 40, ypos, Port.OUTPUT, DATA_ATTR);
+      ps[readData(r)].setToolTip(S.getter("mpramReadDataTip", ""+r));
+      ypos += 20;
+    }
+    for (int w = 0; w < nw; w++) {
+      ps[writeAddr(attrs, w)] = new Port(0, ypos, Port.INPUT, ADDR_ATTR);
+      ps[writeAddr(attrs, w)].setToolTip(S.getter("mpramWriteAddrTip", ""+w));
+      ps[writeData(attrs, w)] = new Port(0, ypos + 20, Port.INPUT, DATA_ATTR);
+      ps[writeData(attrs, w)].setToolTip(S.getter("mpramWriteDataTip", ""+w));
+      ps[writeEnable(attrs, w)] = new Port(0, ypos + 40, Port.INPUT, 1);
+      ps[writeEnable(attrs, w)].setToolTip(S.getter("mpramWriteEnableTip", ""+w));
+      ypos += 60;
+    }
+    ps[clk] = new Port(0, ypos, Port.INPUT, 1);
+    ps[clk].setToolTip(S.getter("ramClkTip"));
+    instance.setPorts(ps);
+  }
+
+  @Override
+  public AttributeSet createAttributeSet() {
+    return new MultiPortRamAttributes();
+  }
+
+  @Override
+  public int getControlHeight(AttributeSet attrs) {
+    int nr = MultiPortRamAttributes.readPorts(attrs);
+    int nw = MultiPortRamAttributes.writePorts(attrs);
+    return 20 * (nr + 3*nw + 1);
+  }
+
+  @Override
+  public Bounds getOffsetBounds(AttributeSet attrs) {
+    return Bounds.create(0, 0, SymbolWidth + 40, getControlHeight(attrs));
+  }
+
+  @Override
+  public HDLSupport getHDLSupport(HDLSupport.ComponentContext ctx) {
+    if (MultiPortRamHDLGenerator.supports(ctx.lang, ctx.attrs, ctx.vendor))
+      return new MultiPortRamHDLGenerator(ctx);
+    else
+      return null;
+  }
+
+  @Override
+  protected void instanceAttributeChanged(Instance instance, Attribute<?> attr) {
+    super.instanceAttributeChanged(instance, attr);
+    if (attr == MultiPortRamAttributes.ATTR_PORTS) {
+      instance.recomputeBounds();
+      configurePorts(instance);
+    }
+  }
+
+  @Override
+  public void paintInstance(InstancePainter painter) {
+    Graphics g = painter.getGraphics();
+    Bounds bds = painter.getBounds();
+    AttributeSet attrs = painter.getAttributeSet();
+    int nr = MultiPortRamAttributes.readPorts(attrs);
+    int nw = MultiPortRamAttributes.writePorts(attrs);
+
+    painter.drawBounds();
+    painter.drawLabel();
+
+    if (painter.getShowState()) {
+      MemState state = getState(painter);
+      state.paint(g, bds.getX(), bds.getY(),
+          30, 15, bds.getWidth() - 60, bds.getHeight() - 20, true, 1);
+    }
+
+    GraphicsUtil.drawCenteredText(g,
+        "RAM " + GetSizeLabel(attrs.getValue(ADDR_ATTR).getWidth())
+        + " x " + attrs.getValue(DATA_ATTR).getWidth()
+        + " (" + nr + "R" + nw + "W)",
+        bds.getX() + (SymbolWidth / 2) + 20, bds.getY() + 6);
+
+    String a = S.get("ramAddrLabel"), d = S.get("ramDataLabel");
+    String wr = S.get("mpramWriteLabel");
+    for (int r = 0; r < nr; r++) {
+      painter.drawPort(readAddr(r), a + r, Direction.EAST);
+      painter.drawPort(readData(r), d + r, Direction.WEST);
+    }
+    for (int w = 0; w < nw; w++) {
+      painter.drawPort(writeAddr(attrs, w), wr + a + w, Direction.EAST);
+      painter.drawPort(writeData(attrs, w), wr + d + w, Direction.EAST);
+      painter.drawPort(writeEnable(attrs, w), S.get("ramWELabel") + w, Direction.EAST);
+    }
+    painter.drawClock(clock(attrs), Direction.EAST);
+  }
+
+  @Override
+  public void propagate(InstanceState state) {
+    AttributeSet attrs = state.getAttributeSet();
+    RamState myState = (RamState) getState(state);
+    MemContents contents = myState.getContents();
+    MemTrace trace = contents.getTrace();
+    int nr = MultiPortRamAttributes.readPorts(attrs);
+    int nw = MultiPortRamAttributes.writePorts(attrs);
+
+    // perform writes, in port order so the last port wins
+    Object trigger = state.getAttributeValue(StdAttr.TRIGGER);
+    boolean triggered = myState.setClock(state.getPortValue(clock(attrs)), trigger);
+    for (int w = 0; triggered && w < nw; w++) {
+      if (state.getPortValue(writeEnable(attrs, w)) != Value.TRUE)
+        continue;
+      Value addrValue = state.getPortValue(writeAddr(attrs, w));
+      if (!addrValue.isFullyDefined())
+        continue;
+      long addr = addrValue.toIntValue() & 0xffffffffL;
+      int dataValue = state.getPortValue(writeData(attrs, w)).toIntValue();
+      if (contents.write(addr, dataValue))
+        state.deferUntilPropagated(contents::flushChanges);
+      if (trace != null)
+        trace.write(addr);
+    }
+
+    // perform reads, counting one per new address on each port, or clock
+    BitWidth width = state.getAttributeValue(DATA_ATTR);
+    for (int r = 0; r < nr; r++) {
+      Value addrValue = state.getPortValue(readAddr(r));
+      long addr = addrValue.toIntValue() & 0xffffffffL;
+      boolean reading = addrValue.isFullyDefined();
+      boolean newRead = myState.isNewRead(r, reading ? addr : -1) || (reading && triggered);
+      if (reading) {
+        if (r == 0 && addr != myState.getCurrent()) {
+          myState.setCurrent(addr);
+          myState.scrollToShow(addr);
+        }
+        state.setPort(readData(r), Value.createKnown(width, contents.get(addr)), DELAY);
+        if (trace != null && newRead)
+          trace.read(addr);
+      } else if (addrValue.isErrorValue()) {
+        state.setPort(readData(r), Value.createError(width), DELAY);
+      } else {
+        state.setPort(readData(r), Value.createUnknown(width), DELAY);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,146 @@
+/**
+ * This file is part of Logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with Logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + Haute École Spécialisée Bernoise
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ *   + REDS Institute - HEIG-VD, Yverdon-les-Bains, Switzerland
+ *     http://reds.heig-vd.ch
+ * This version of the project is currently maintained by:
+ *   + Kevin Walsh (kwalsh@holycross.edu, http://mathcs.holycross.edu/~kwalsh)
+ */
+
+package com.cburch.logisim.std.memory;
+import static com.cburch.logisim.std.Strings.S;
+
+import java.awt.Font;
+import java.util.Arrays;
+import java.util.List;
+
+import com.cburch.logisim.data.AbstractAttributeSet;
+import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeOption;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.Attributes;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.instance.StdAttr;
+
+public class MultiPortRamAttributes extends AbstractAttributeSet {
+
+  static final AttributeOption PORTS_2R1W = new AttributeOption("2r1w",
+      S.getter("mpramPorts2r1w"));
+  static final AttributeOption PORTS_2R2W = new AttributeOption("2r2w",
+      S.getter("mpramPorts2r2w"));
+  static final AttributeOption PORTS_4R1W = new AttributeOption("4r1w",
+      S.getter("mpramPorts4r1w"));
+  static final AttributeOption PORTS_4R2W = new AttributeOption("4r2w",
+      S.getter("mpramPorts4r2w"));
+  static final Attribute<AttributeOption> ATTR_PORTS = Attributes.forOption(
+      "ports", S.getter("mpramPortsAttr"), new AttributeOption[] {
+        PORTS_2R1W, PORTS_2R2W, PORTS_4R1W, PORTS_4R2W });
+
+  private static List<Attribute<?>> ATTRIBUTES = Arrays
+      .asList(new Attribute<?>[] { Mem.FILE_ATTR, Mem.ADDR_ATTR, Mem.DATA_ATTR,
+        ATTR_PORTS, StdAttr.TRIGGER, RamAttributes.ATTR_TYPE,
+        StdAttr.LABEL, StdAttr.LABEL_FONT });
+
+  private BitWidth addrBits = BitWidth.create(8);
+  private BitWidth dataBits = BitWidth.create(8);
+  private AttributeOption ports = PORTS_2R1W;
+  private String Label = "";
+  private AttributeOption Trigger = StdAttr.TRIG_RISING;
+  private AttributeOption Type = RamAttributes.VOLATILE;
+  private Font LabelFont = StdAttr.DEFAULT_LABEL_FONT;
+  private Attributes.LinkedFile backing = null;
+
+  MultiPortRamAttributes() { }
+
+  static int readPorts(AttributeSet attrs) {
+    AttributeOption v = attrs.getValue(ATTR_PORTS);
+    return (v == PORTS_4R1W || v == PORTS_4R2W) ? 4 : 2;
+  }
+
+  static int writePorts(AttributeSet attrs) {
+    AttributeOption v = attrs.getValue(ATTR_PORTS);
+    return (v == PORTS_2R2W || v == PORTS_4R2W) ? 2 : 1;
+  }
+
+  @Override
+  protected void copyInto(AbstractAttributeSet dest) {
+    MultiPortRamAttributes d = (MultiPortRamAttributes) dest;
+    d.addrBits = addrBits;
+    d.dataBits = dataBits;
+    d.ports = ports;
+    d.Label = Label;
+    d.Trigger = Trigger;
+    d.Type = Type;
+    d.LabelFont = LabelFont;
+    d.backing = backing;
+  }
+
+  @Override
+  public List<Attribute<?>> getAttributes() {
+    return ATTRIBUTES;
+  }
+
+  @Override
+  public <V> V getValue(Attribute<V> attr) {
+    if (attr == Mem.ADDR_ATTR)
+      return (V) addrBits;
+    if (attr == Mem.DATA_ATTR)
+      return (V) dataBits;
+    if (attr == ATTR_PORTS)
+      return (V) ports;
+    if (attr == StdAttr.LABEL)
+      return (V) Label;
+    if (attr == StdAttr.TRIGGER)
+      return (V) Trigger;
+    if (attr == RamAttributes.ATTR_TYPE)
+      return (V) Type;
+    if (attr == StdAttr.LABEL_FONT)
+      return (V) LabelFont;
+    if (attr == Mem.FILE_ATTR)
+      return (V) backing;
+    return null;
+  }
+
+  @Override
+  public <V> void updateAttr(Attribute<V> attr, V value) {
+    if (attr == Mem.ADDR_ATTR)
+      addrBits = Mem.limitAddrBits((BitWidth) value, backing);
+    else if (attr == Mem.DATA_ATTR)
+      dataBits = (BitWidth) value;
+    else if (attr == ATTR_PORTS)
+      ports = (AttributeOption) value;
+    else if (attr == StdAttr.LABEL)
+      Label = (String) value;
+    else if (attr == StdAttr.TRIGGER)
+      Trigger = (AttributeOption) value;
+    else if (attr == RamAttributes.ATTR_TYPE)
+      Type = (AttributeOption) value;
+    else if (attr == StdAttr.LABEL_FONT)
+      LabelFont = (Font) value;
+    else if (attr == Mem.FILE_ATTR) {
+      backing = (Attributes.LinkedFile) value;
+      setAttr(Mem.ADDR_ATTR, Mem.limitAddrBits(addrBits, backing));
+    }
+  }
+}
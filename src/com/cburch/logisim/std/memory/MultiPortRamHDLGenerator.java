@@ -0,0 +1,128 @@
+/**
+ * This file is part of Logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with Logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + Haute École Spécialisée Bernoise
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ *   + REDS Institute - HEIG-VD, Yverdon-les-Bains, Switzerland
+ *     http://reds.heig-vd.ch
+ * This version of the project is currently maintained by:
+ *   + Kevin Walsh (kwalsh@holycross.edu, http://mathcs.holycross.edu/~kwalsh)
+ */
+
+package com.cburch.logisim.std.memory;
+
+import com.bfh.logisim.hdlgenerator.HDLGenerator;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.hdl.Hdl;
+import com.cburch.logisim.instance.StdAttr;
+
+public class MultiPortRamHDLGenerator extends HDLGenerator {
+
+  static boolean supports(String lang, AttributeSet attrs, char vendor) {
+    Object trigger = attrs.getValue(StdAttr.TRIGGER);
+    boolean synch = trigger == StdAttr.TRIG_RISING || trigger == StdAttr.TRIG_FALLING;
+    boolean nvram = attrs.getValue(RamAttributes.ATTR_TYPE) == RamAttributes.NONVOLATILE;
+    return lang.equals("VHDL") && synch && !nvram && Mem.supportsHDL(attrs);
+  }
+
+  public MultiPortRamHDLGenerator(ComponentContext ctx) {
+    super(ctx, "memory", deriveHDLName(ctx.attrs), "i_MPRAM");
+    int nr = MultiPortRamAttributes.readPorts(_attrs);
+    int nw = MultiPortRamAttributes.writePorts(_attrs);
+    for (int r = 0; r < nr; r++) {
+      inPorts.add("Address"+r, addrWidth(), MultiPortRam.readAddr(r), false);
+      outPorts.add("DataOut"+r, dataWidth(), MultiPortRam.readData(r), null);
+    }
+    for (int w = 0; w < nw; w++) {
+      inPorts.add("WrAddress"+w, addrWidth(), MultiPortRam.writeAddr(_attrs, w), false);
+      inPorts.add("DataIn"+w, dataWidth(), MultiPortRam.writeData(_attrs, w), false);
+      inPorts.add("WE"+w, 1, MultiPortRam.writeEnable(_attrs, w), false);
+    }
+    clockPort = new ClockPortInfo("GlobalClock", "ClockEnable", MultiPortRam.clock(_attrs));
+  }
+
+  private static String deriveHDLName(AttributeSet attrs) {
+    int wd = attrs.getValue(Mem.DATA_ATTR).getWidth();
+    int wa = attrs.getValue(Mem.ADDR_ATTR).getWidth();
+    int nr = MultiPortRamAttributes.readPorts(attrs);
+    int nw = MultiPortRamAttributes.writePorts(attrs);
+    return String.format("MPRAM_%dx%d_%dR%dW", wd, 1<<wa, nr, nw);
+  }
+
+  @Override
+  protected Hdl getArchitecture() {
+    Hdl out = new Hdl(_lang, _err);
+    generateFileHeader(out);
+
+    int wd = dataWidth();
+    int rows = (1 << addrWidth());
+    int nr = MultiPortRamAttributes.readPorts(_attrs);
+    int nw = MultiPortRamAttributes.writePorts(_attrs);
+
+    if (out.isVhdl) {
+
+      out.stmt("architecture logisim_generated of " + hdlModuleName + " is ");
+      out.indent();
+      out.stmt("type MEMORY_ARRAY is array (%d downto 0) of %s;", rows-1, out.typeForWidth(wd));
+      out.comment("memory definitions");
+      out.stmt("signal s_mem_contents : MEMORY_ARRAY;");
+      out.stmt();
+      out.dedent();
+
+      out.stmt("begin");
+      out.indent();
+      out.stmt();
+      // All write ports share one clocked process. Signal assignments within
+      // a process take effect in order, so the last write port wins, matching
+      // the simulator. Reads are asynchronous, as in the simulator, so they
+      // see data written at the last clock edge without a cycle of latency.
+      out.stmt("Mem : PROCESS( GlobalClock )");
+      out.stmt("BEGIN");
+      out.stmt("   IF (GlobalClock'event AND (GlobalClock = '1')) THEN");
+      for (int w = 0; w < nw; w++) {
+        out.stmt("      IF (WE%d = '1' and ClockEnable = '1') THEN", w);
+        out.stmt("         s_mem_contents(to_integer(unsigned(WrAddress%d))) <= DataIn%d;", w, w);
+        out.stmt("      END IF;");
+      }
+      out.stmt("   END IF;");
+      out.stmt("END PROCESS Mem;");
+      out.stmt();
+      for (int r = 0; r < nr; r++)
+        out.stmt("DataOut%d <= s_mem_contents(to_integer(unsigned(Address%d)));", r, r);
+      out.stmt();
+      out.dedent();
+      out.stmt("end logisim_generated;");
+    } else {
+      // todo: Verilog support
+    }
+    return out;
+  }
+
+  protected int addrWidth() {
+    return _attrs.getValue(Mem.ADDR_ATTR).getWidth();
+  }
+
+  protected int dataWidth() {
+    return _attrs.getValue(Mem.DATA_ATTR).getWidth();
+  }
+
+}
@@ -41,6 +41,7 @@ import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeOption;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.AttributeSets;
+import com.cburch.logisim.data.Attributes;
 import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.data.Location;
@@ -57,6 +58,7 @@ import com.cburch.logisim.instance.Port;
 import com.cburch.logisim.instance.StdAttr;
 import com.cburch.logisim.proj.Project;
 import com.cburch.logisim.util.GraphicsUtil;
+import com.cburch.logisim.util.StringGetter;
 
 public class Ram extends Mem {
 
@@ -206,7 +208,11 @@ public class Ram extends Mem {
   private static Object[][] logOptions = new Object[9][];
 
   public Ram() {
-    super("RAM", S.getter("ramComponent"), 3);
+    this("RAM", S.getter("ramComponent"));
+  }
+
+  protected Ram(String name, StringGetter desc) {
+    super(name, desc, 3);
     setIconName("ram.gif");
     setInstanceLogger(Logger.class);
   }
@@ -558,8 +564,9 @@ public class Ram extends Mem {
       return true;
     MemContents contents = ret.getContents();
 
+    // A mapped file is persistent storage, regardless of the memory type.
     AttributeOption type = instance.getAttributeValue(RamAttributes.ATTR_TYPE);
-    if (type == RamAttributes.VOLATILE)
+    if (type == RamAttributes.VOLATILE && !contents.isMapped())
       contents.clear();
     // if no window, we could discard, but its also okay to just keep it around
     // synchronized (windowRegistry) {
@@ -588,6 +595,8 @@ public class Ram extends Mem {
     AttributeOption type = comp.getAttributeSet().getValue(RamAttributes.ATTR_TYPE);
     if (type != RamAttributes.NONVOLATILE)
       return null;
+    if (comp.getAttributeSet().getValue(FILE_ATTR) != null)
+      return null; // already kept in the backing file
     MemContents contents;
     if (state == null) {
       int addrBits = comp.getAttributeSet().getValue(ADDR_ATTR).getWidth();
@@ -636,10 +645,6 @@ public class Ram extends Mem {
     }
   }
 
-  public MemContents getContents(InstanceState ramState) {
-    return (MemContents)getState(ramState).getContents();
-  }
-
   @Override
   MemState getState(Instance instance, CircuitState state) {
     return getState(state.getInstanceState(instance));
@@ -648,13 +653,16 @@ public class Ram extends Mem {
   @Override
   MemState getState(InstanceState state) {
     RamState ret = (RamState)state.getData();
-    if (ret == null) {
-      AttributeOption type = state.getInstance().getAttributeValue(RamAttributes.ATTR_TYPE);
-      int addrBits = state.getAttributeValue(ADDR_ATTR).getWidth();
-      int dataBits = state.getAttributeValue(DATA_ATTR).getWidth();
-      MemContents contents = MemContents.create(addrBits, dataBits);
+    Attributes.LinkedFile backing = state.getAttributeValue(FILE_ATTR);
+    int addrBits = state.getAttributeValue(ADDR_ATTR).getWidth();
+    int dataBits = state.getAttributeValue(DATA_ATTR).getWidth();
+    if (ret == null || !ret.isFor(backing, addrBits, dataBits)) {
+      MemContents contents = mapBackingFile(backing, addrBits, dataBits);
+      if (contents == null)
+        contents = MemContents.create(heapAddrBits(addrBits), dataBits);
       Instance instance = state.getInstance();
       ret = new RamState(instance, contents, new MemListener(instance));
+      ret.setBacking(backing);
       state.setData(ret);
     } else {
       ret.setRam(state.getInstance());
@@ -746,8 +754,8 @@ public class Ram extends Mem {
 
     // get address
     Value addrValue = state.getPortValue(ADDR);
-    int addr = addrValue.toIntValue();
-    boolean goodAddr = (addrValue.isFullyDefined() && addr >= 0);
+    long addr = addrValue.toIntValue() & 0xffffffffL;
+    boolean goodAddr = addrValue.isFullyDefined();
     if (goodAddr && addr != myState.getCurrent()) {
       myState.setCurrent(addr);
       myState.scrollToShow(addr);
@@ -767,25 +775,47 @@ public class Ram extends Mem {
     Object trigger = state.getAttributeValue(StdAttr.TRIGGER);
     boolean triggered = myState.setClock(state.getPortValue(CLK), trigger);
     boolean writeEnabled = triggered && (state.getPortValue(WE) == Value.TRUE);
-    if (writeEnabled && goodAddr && (addr % dataLines == 0)) {
+    MemContents contents = myState.getContents();
+    MemTrace trace = contents.getTrace();
+    if (writeEnabled && goodAddr && dataLines == 1) {
+      int dataValue = state.getPortValue(DATAIN[0]).toIntValue();
+      if (contents.write(addr, dataValue))
+        state.deferUntilPropagated(contents::flushChanges);
+      if (trace != null)
+        trace.write(addr);
+    } else if (writeEnabled && goodAddr && (addr % dataLines == 0)) {
+      // The whole line goes through the contents in one access. Words whose
+      // enable is low are written back with their current values.
+      int[] line = myState.getLine(dataLines);
+      contents.get(addr, line);
       for (int i = 0; i < dataLines; i++) {
-        if (dataLines > 1) {
-          Value le = state.getPortValue(LE+i);
-          if (le != null && le.equals(Value.FALSE))
-            continue;
-        }
-        int dataValue = state.getPortValue(DATAIN[i]).toIntValue();
-        myState.getContents().set(addr+i, dataValue);
+        Value le = state.getPortValue(LE+i);
+        if (le != null && le.equals(Value.FALSE))
+          continue;
+        line[i] = state.getPortValue(DATAIN[i]).toIntValue();
+        if (trace != null)
+          trace.write(addr+i);
       }
+      if (contents.write(addr, line))
+        state.deferUntilPropagated(contents::flushChanges);
     }
 
-    // perform reads
+    // perform reads, counting one per new address or output enable, or clock
     BitWidth width = state.getAttributeValue(DATA_ATTR);
     boolean outputEnabled = separate || !state.getPortValue(OE).equals(Value.FALSE);
-    if (outputEnabled && goodAddr && (addr % dataLines == 0)) {
+    boolean reading = outputEnabled && goodAddr && (addr % dataLines == 0);
+    boolean newRead = myState.isNewRead(0, reading ? addr : -1) || (reading && triggered);
+    if (outputEnabled && goodAddr && dataLines == 1) {
+      state.setPort(DATA, Value.createKnown(width, contents.get(addr)), DELAY);
+      if (trace != null && newRead)
+        trace.read(addr);
+    } else if (outputEnabled && goodAddr && (addr % dataLines == 0)) {
+      int[] line = myState.getLine(dataLines);
+      contents.get(addr, line);
       for (int i = 0; i < dataLines; i++) {
-        int val = myState.getContents().get(addr+i);
-        state.setPort(DATAOUT[i], Value.createKnown(width, val), DELAY);
+        state.setPort(DATAOUT[i], Value.createKnown(width, line[i]), DELAY);
+        if (trace != null && newRead)
+          trace.read(addr+i);
       }
     } else if (outputEnabled && (addrValue.isErrorValue() || (goodAddr && (addr % dataLines != 0)))) {
       for (int i = 0; i < dataLines; i++)
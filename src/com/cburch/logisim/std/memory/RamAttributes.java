@@ -60,8 +60,8 @@ public class RamAttributes extends AbstractAttributeSet {
         BUS_BIDIR, BUS_SEP });
 
   private static List<Attribute<?>> ATTRIBUTES = Arrays
-      .asList(new Attribute<?>[] { Mem.ADDR_ATTR, Mem.DATA_ATTR, Mem.LINE_ATTR,
-        StdAttr.TRIGGER, ATTR_TYPE, ATTR_DBUS,
+      .asList(new Attribute<?>[] { Mem.FILE_ATTR, Mem.ADDR_ATTR, Mem.DATA_ATTR,
+        Mem.LINE_ATTR, StdAttr.TRIGGER, ATTR_TYPE, ATTR_DBUS,
         StdAttr.LABEL, StdAttr.LABEL_FONT,
         StdAttr.APPEARANCE});
 
@@ -74,6 +74,7 @@ public class RamAttributes extends AbstractAttributeSet {
   private AttributeOption BusStyle = BUS_SEP; // BUS_BIDIR;
   private Font LabelFont = StdAttr.DEFAULT_LABEL_FONT;
   private AttributeOption Appearance = StdAttr.APPEAR_CLASSIC;
+  private Attributes.LinkedFile backing = null;
 
   RamAttributes() { }
 
@@ -87,6 +88,7 @@ public class RamAttributes extends AbstractAttributeSet {
     d.LabelFont = LabelFont;
     d.Appearance = Appearance;
     d.lineSize = lineSize;
+    d.backing = backing;
   }
 
   @Override
@@ -114,13 +116,15 @@ public class RamAttributes extends AbstractAttributeSet {
       return (V) LabelFont;
     if (attr == StdAttr.APPEARANCE)
       return (V) Appearance;
+    if (attr == Mem.FILE_ATTR)
+      return (V) backing;
     return null;
   }
 
   @Override
   public <V> void updateAttr(Attribute<V> attr, V value) {
     if (attr == Mem.ADDR_ATTR)
-      addrBits = (BitWidth) value;
+      addrBits = Mem.limitAddrBits((BitWidth) value, backing);
     else if (attr == Mem.DATA_ATTR)
       dataBits = (BitWidth) value;
     else if (attr == Mem.LINE_ATTR)
@@ -137,5 +141,9 @@ public class RamAttributes extends AbstractAttributeSet {
       LabelFont = (Font) value;
     else if (attr == StdAttr.APPEARANCE)
       Appearance = (AttributeOption) value;
+    else if (attr == Mem.FILE_ATTR) {
+      backing = (Attributes.LinkedFile) value;
+      setAttr(Mem.ADDR_ATTR, Mem.limitAddrBits(addrBits, backing));
+    }
   }
 }
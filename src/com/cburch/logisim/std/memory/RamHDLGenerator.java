@@ -48,7 +48,8 @@ public class RamHDLGenerator extends HDLGenerator {
     Object trigger = attrs.getValue(StdAttr.TRIGGER);
     boolean synch = trigger == StdAttr.TRIG_RISING || trigger == StdAttr.TRIG_FALLING;
     boolean nvram = attrs.getValue(RamAttributes.ATTR_TYPE) == RamAttributes.NONVOLATILE;
-    return lang.equals("VHDL") && separate && synch && (!nvram || vendor == 'A');
+    return lang.equals("VHDL") && separate && synch && (!nvram || vendor == 'A')
+        && Mem.supportsHDL(attrs);
   }
 
   public RamHDLGenerator(ComponentContext ctx) {
@@ -65,7 +65,9 @@ public class RamState extends MemState
     AttributeSet attrs = e.getSource();
     BitWidth addrBits = attrs.getValue(Mem.ADDR_ATTR);
     BitWidth dataBits = attrs.getValue(Mem.DATA_ATTR);
-    getContents().setDimensions(addrBits.getWidth(), dataBits.getWidth());
+    if (getContents().isMapped())
+      return; // Ram.getState() maps the file again instead
+    getContents().setDimensions(Mem.heapAddrBits(addrBits.getWidth()), dataBits.getWidth());
   }
 
   @Override
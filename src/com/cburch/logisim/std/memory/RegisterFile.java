@@ -0,0 +1,388 @@
+/**
+ * This file is part of Logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with Logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + Haute École Spécialisée Bernoise
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ *   + REDS Institute - HEIG-VD, Yverdon-les-Bains, Switzerland
+ *     http://reds.heig-vd.ch
+ * This version of the project is currently maintained by:
+ *   + Kevin Walsh (kwalsh@holycross.edu, http://mathcs.holycross.edu/~kwalsh)
+ */
+
+package com.cburch.logisim.std.memory;
+import static com.cburch.logisim.std.Strings.S;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.util.Arrays;
+import java.util.List;
+
+import com.bfh.logisim.hdlgenerator.HDLSupport;
+import com.cburch.logisim.data.AbstractAttributeSet;
+import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeOption;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.Attributes;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Bounds;
+import com.cburch.logisim.data.Direction;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.InstanceFactory;
+import com.cburch.logisim.instance.InstancePainter;
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.instance.Port;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.tools.key.BitWidthConfigurator;
+import com.cburch.logisim.tools.key.JoinedConfigurator;
+import com.cburch.logisim.util.GraphicsUtil;
+import com.cburch.logisim.util.StringUtil;
+
+// A bank of 2^select registers with several combinational read ports and one
+// or two clocked write ports. Unlike a file built from Register components,
+// decoders, and multiplexers, the whole bank is a single component whose
+// values live in one int[] (RegisterFileData), so each change costs one
+// propagate call. When two write ports store to the same register on the same
+// trigger, the higher-numbered port wins. Optionally register 0 ignores writes
+// and always reads as zero, as in MIPS and RISC-V.
+public class RegisterFile extends InstanceFactory {
+
+  static final int DELAY = 8;
+
+  public static final Attribute<BitWidth> ATTR_SELECT = Attributes.forBitWidth(
+      "select", S.getter("registerFileSelectAttr"), 1, 6);
+  public static final Attribute<Integer> ATTR_READ_PORTS = Attributes.forIntegerRange(
+      "readPorts", S.getter("registerFileReadPortsAttr"), 1, 4);
+  public static final Attribute<Integer> ATTR_WRITE_PORTS = Attributes.forIntegerRange(
+      "writePorts", S.getter("registerFileWritePortsAttr"), 1, 2);
+  public static final Attribute<Boolean> ATTR_ZERO = Attributes.forBoolean(
+      "zeroRegister", S.getter("registerFileZeroAttr"));
+
+  // Port layout: (address, data) for each read port, then (address, data,
+  // store) for each write port, then clock and clear.
+
+  static int readAddr(int r) {
+    return 2*r;
+  }
+
+  static int readData(int r) {
+    return 2*r + 1;
+  }
+
+  static int writeAddr(AttributeSet attrs, int w) {
+    return 2*attrs.getValue(ATTR_READ_PORTS) + 3*w;
+  }
+
+  static int writeData(AttributeSet attrs, int w) {
+    return writeAddr(attrs, w) + 1;
+  }
+
+  static int writeEnable(AttributeSet attrs, int w) {
+    return writeAddr(attrs, w) + 2;
+  }
+
+  static int clock(AttributeSet attrs) {
+    return writeAddr(attrs, attrs.getValue(ATTR_WRITE_PORTS));
+  }
+
+  static int clear(AttributeSet attrs) {
+    return clock(attrs) + 1;
+  }
+
+  static int getCount(AttributeSet attrs) {
+    return 1 << attrs.getValue(ATTR_SELECT).getWidth();
+  }
+
+  // Register values are shown in columns of at most this many rows.
+  private static final int ROWS = 16;
+  private static final int ROW_HEIGHT = 14;
+  private static final int CHAR_WIDTH = 7;
+
+  public RegisterFile() {
+    super("Register File", S.getter("registerFileComponent"));
+    setKeyConfigurator(JoinedConfigurator.create(
+          new BitWidthConfigurator(ATTR_SELECT, 1, 6, 0),
+          new BitWidthConfigurator(StdAttr.WIDTH)));
+    setIconName("register.gif");
+    setInstanceLogger(RegisterFileLogger.class);
+  }
+
+  @Override
+  public AttributeSet createAttributeSet() {
+    return new RegisterFileAttributes();
+  }
+
+  @Override
+  public Bounds getOffsetBounds(AttributeSet attrs) {
+    int count = getCount(attrs);
+    int digits = (attrs.getValue(StdAttr.WIDTH).getWidth() + 3) / 4;
+    int cols = (count + ROWS - 1) / ROWS;
+    int width = 60 + cols * CHAR_WIDTH * (digits + 4);
+    width = Math.max(120, (width + 9) / 10 * 10);
+    int rows = attrs.getValue(ATTR_READ_PORTS) + 3*attrs.getValue(ATTR_WRITE_PORTS) + 2;
+    int height = Math.max(20 * rows, Math.min(count, ROWS) * ROW_HEIGHT + 30);
+    height = (height + 9) / 10 * 10;
+    return Bounds.create(0, 0, width, height);
+  }
+
+  @Override
+  protected void configureNewInstance(Instance instance) {
+    instance.addAttributeListener();
+    updatePorts(instance);
+    updateLabel(instance);
+  }
+
+  private void updateLabel(Instance instance) {
+    Bounds bds = instance.getBounds();
+    instance.setTextField(StdAttr.LABEL, StdAttr.LABEL_FONT,
+        bds.getX() + bds.getWidth() / 2, bds.getY() - 2,
+        GraphicsUtil.H_CENTER, GraphicsUtil.V_BOTTOM);
+  }
+
+  private void updatePorts(Instance instance) {
+    AttributeSet attrs = instance.getAttributeSet();
+    int nr = attrs.getValue(ATTR_READ_PORTS);
+    int nw = attrs.getValue(ATTR_WRITE_PORTS);
+    int xmax = getOffsetBounds(attrs).getWidth();
+    Port[] ps = new Port[clear(attrs) + 1];
+    int ypos = 10;
+    for (int r = 0; r < nr; r++) {
+      ps[readAddr(r)] = new Port(0, ypos, Port.INPUT, ATTR_SELECT);
+      ps[readAddr(r)].setToolTip(S.getter("registerFileReadAddrTip", ""+r));
+      ps[readData(r)] = new Port(xmax, ypos, Port.OUTPUT, StdAttr.WIDTH);
+      ps[readData(r)].setToolTip(S.getter("registerFileReadDataTip", ""+r));
+      ypos += 20;
+    }
+    for (int w = 0; w < nw; w++) {
+      ps[writeAddr(attrs, w)] = new Port(0, ypos, Port.INPUT, ATTR_SELECT);
+      ps[writeAddr(attrs, w)].setToolTip(S.getter("registerFileWriteAddrTip", ""+w));
+      ps[writeData(attrs, w)] = new Port(0, ypos + 20, Port.INPUT, StdAttr.WIDTH);
+      ps[writeData(attrs, w)].setToolTip(S.getter("registerFileWriteDataTip", ""+w));
+      ps[writeEnable(attrs, w)] = new Port(0, ypos + 40, Port.INPUT, 1);
+      ps[writeEnable(attrs, w)].setToolTip(S.getter("registerFileWriteEnableTip", ""+w));
+      ypos += 60;
+    }
+    ps[clock(attrs)] = new Port(0, ypos, Port.INPUT, 1);
+    ps[clock(attrs)].setToolTip(S.getter("registerClkTip"));
+    ps[clear(attrs)] = new Port(0, ypos + 20, Port.INPUT, 1);
+    ps[clear(attrs)].setToolTip(S.getter("registerFileClrTip"));
+    instance.setPorts(ps);
+  }
+
+  @Override
+  public HDLSupport getHDLSupport(HDLSupport.ComponentContext ctx) {
+    if (RegisterFileHDLGenerator.supports(ctx.lang, ctx.attrs, ctx.vendor))
+      return new RegisterFileHDLGenerator(ctx);
+    else
+      return null;
+  }
+
+  @Override
+  public void paintInstance(InstancePainter painter) {
+    Graphics g = painter.getGraphics();
+    Bounds bds = painter.getBounds();
+    AttributeSet attrs = painter.getAttributeSet();
+    int nr = attrs.getValue(ATTR_READ_PORTS);
+    int nw = attrs.getValue(ATTR_WRITE_PORTS);
+    int width = attrs.getValue(StdAttr.WIDTH).getWidth();
+    int count = getCount(attrs);
+
+    painter.drawBounds();
+    painter.drawLabel();
+
+    GraphicsUtil.drawCenteredText(g, S.fmt("registerFileTitle", count, width),
+        bds.getX() + bds.getWidth() / 2, bds.getY() + 8);
+
+    if (painter.getShowState()) {
+      RegisterFileData data = (RegisterFileData) painter.getData();
+      int digits = (width + 3) / 4;
+      int colWidth = CHAR_WIDTH * (digits + 4);
+      for (int i = 0; i < count; i++) {
+        int val = data == null || i >= data.getCount() ? 0 : data.get(i);
+        int x = bds.getX() + 30 + (i / ROWS) * colWidth;
+        int y = bds.getY() + 20 + (i % ROWS) * ROW_HEIGHT;
+        g.setColor(Color.GRAY);
+        GraphicsUtil.drawText(g, MemState.FONT, "" + i, x + 2 * CHAR_WIDTH, y,
+            GraphicsUtil.H_RIGHT, GraphicsUtil.V_TOP);
+        g.setColor(Color.BLACK);
+        GraphicsUtil.drawText(g, MemState.FONT, StringUtil.toHexString(width, val),
+            x + 3 * CHAR_WIDTH, y, GraphicsUtil.H_LEFT, GraphicsUtil.V_TOP);
+      }
+    }
+
+    String a = S.get("ramAddrLabel"), d = S.get("ramDataLabel");
+    String wr = S.get("mpramWriteLabel");
+    for (int r = 0; r < nr; r++) {
+      painter.drawPort(readAddr(r), a + r, Direction.EAST);
+      painter.drawPort(readData(r), d + r, Direction.WEST);
+    }
+    for (int w = 0; w < nw; w++) {
+      painter.drawPort(writeAddr(attrs, w), wr + a + w, Direction.EAST);
+      painter.drawPort(writeData(attrs, w), wr + d + w, Direction.EAST);
+      painter.drawPort(writeEnable(attrs, w), S.get("ramWELabel") + w, Direction.EAST);
+    }
+    painter.drawClock(clock(attrs), Direction.EAST);
+    g.setColor(Color.GRAY);
+    painter.drawPort(clear(attrs), "0", Direction.EAST);
+    g.setColor(Color.BLACK);
+  }
+
+  @Override
+  public void propagate(InstanceState state) {
+    AttributeSet attrs = state.getAttributeSet();
+    int count = getCount(attrs);
+    RegisterFileData data = (RegisterFileData) state.getData();
+    if (data == null) {
+      data = new RegisterFileData(count);
+      state.setData(data);
+    } else {
+      data.setCount(count);
+    }
+    int[] values = data.values;
+    // Register 0 may hold a value written before it was made constant.
+    int first = attrs.getValue(ATTR_ZERO) ? 1 : 0;
+    if (first > 0)
+      values[0] = 0;
+
+    Object trigger = state.getAttributeValue(StdAttr.TRIGGER);
+    boolean triggered = data.updateClock(state.getPortValue(clock(attrs)), trigger);
+
+    if (state.getPortValue(clear(attrs)) == Value.TRUE) {
+      data.clear();
+    } else if (triggered) {
+      int nw = attrs.getValue(ATTR_WRITE_PORTS);
+      for (int w = 0; w < nw; w++) {
+        if (state.getPortValue(writeEnable(attrs, w)) != Value.TRUE)
+          continue;
+        Value addr = state.getPortValue(writeAddr(attrs, w));
+        Value in = state.getPortValue(writeData(attrs, w));
+        if (!addr.isFullyDefined() || !in.isFullyDefined())
+          continue;
+        int i = addr.toIntValue();
+        if (i >= first && i < count)
+          values[i] = in.toIntValue();
+      }
+    }
+
+    BitWidth dataWidth = state.getAttributeValue(StdAttr.WIDTH);
+    int nr = attrs.getValue(ATTR_READ_PORTS);
+    for (int r = 0; r < nr; r++) {
+      Value addr = state.getPortValue(readAddr(r));
+      Value out;
+      if (addr.isFullyDefined())
+        out = Value.createKnown(dataWidth, values[addr.toIntValue() & (count - 1)]);
+      else if (addr.isErrorValue())
+        out = Value.createError(dataWidth);
+      else
+        out = Value.createUnknown(dataWidth);
+      state.setPort(readData(r), out, DELAY);
+    }
+  }
+
+  @Override
+  protected void instanceAttributeChanged(Instance instance, Attribute<?> attr) {
+    if (attr == StdAttr.WIDTH || attr == ATTR_SELECT
+        || attr == ATTR_READ_PORTS || attr == ATTR_WRITE_PORTS) {
+      instance.recomputeBounds();
+      updatePorts(instance);
+      updateLabel(instance);
+    } else if (attr == ATTR_ZERO) {
+      instance.fireInvalidated();
+    }
+  }
+
+  private static final List<Attribute<?>> ATTRIBUTES = Arrays.asList(
+      new Attribute<?>[] {
+        ATTR_SELECT, StdAttr.WIDTH, ATTR_READ_PORTS, ATTR_WRITE_PORTS,
+        ATTR_ZERO, StdAttr.TRIGGER, StdAttr.LABEL, StdAttr.LABEL_FONT });
+
+  private static class RegisterFileAttributes extends AbstractAttributeSet {
+    BitWidth select = BitWidth.create(5);
+    BitWidth width = BitWidth.create(32);
+    Integer readPorts = 2;
+    Integer writePorts = 1;
+    Boolean zero = Boolean.FALSE;
+    AttributeOption trigger = StdAttr.TRIG_RISING;
+    String label = "";
+    Font labelFont = StdAttr.DEFAULT_LABEL_FONT;
+
+    @Override
+    protected void copyInto(AbstractAttributeSet destObj) {
+      RegisterFileAttributes dest = (RegisterFileAttributes) destObj;
+      dest.select = this.select;
+      dest.width = this.width;
+      dest.readPorts = this.readPorts;
+      dest.writePorts = this.writePorts;
+      dest.zero = this.zero;
+      dest.trigger = this.trigger;
+      dest.label = this.label;
+      dest.labelFont = this.labelFont;
+    }
+
+    @Override
+    public List<Attribute<?>> getAttributes() {
+      return ATTRIBUTES;
+    }
+
+    @Override
+    public <V> V getValue(Attribute<V> attr) {
+      if (attr == ATTR_SELECT)
+        return (V) select;
+      if (attr == StdAttr.WIDTH)
+        return (V) width;
+      if (attr == ATTR_READ_PORTS)
+        return (V) readPorts;
+      if (attr == ATTR_WRITE_PORTS)
+        return (V) writePorts;
+      if (attr == ATTR_ZERO)
+        return (V) zero;
+      if (attr == StdAttr.TRIGGER)
+        return (V) trigger;
+      if (attr == StdAttr.LABEL)
+        return (V) label;
+      if (attr == StdAttr.LABEL_FONT)
+        return (V) labelFont;
+      return null;
+    }
+
+    @Override
+    public <V> void updateAttr(Attribute<V> attr, V value) {
+      if (attr == ATTR_SELECT)
+        select = (BitWidth) value;
+      else if (attr == StdAttr.WIDTH)
+        width = (BitWidth) value;
+      else if (attr == ATTR_READ_PORTS)
+        readPorts = (Integer) value;
+      else if (attr == ATTR_WRITE_PORTS)
+        writePorts = (Integer) value;
+      else if (attr == ATTR_ZERO)
+        zero = (Boolean) value;
+      else if (attr == StdAttr.TRIGGER)
+        trigger = (AttributeOption) value;
+      else if (attr == StdAttr.LABEL)
+        label = (String) value;
+      else if (attr == StdAttr.LABEL_FONT)
+        labelFont = (Font) value;
+    }
+  }
+}
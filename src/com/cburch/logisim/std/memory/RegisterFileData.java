@@ -0,0 +1,69 @@
+/**
+ * This file is part of Logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with Logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + Haute École Spécialisée Bernoise
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ *   + REDS Institute - HEIG-VD, Yverdon-les-Bains, Switzerland
+ *     http://reds.heig-vd.ch
+ * This version of the project is currently maintained by:
+ *   + Kevin Walsh (kwalsh@holycross.edu, http://mathcs.holycross.edu/~kwalsh)
+ */
+
+package com.cburch.logisim.std.memory;
+
+import java.util.Arrays;
+
+import com.cburch.logisim.instance.InstanceData;
+
+// State of a RegisterFile: all register values in one primitive array, so the
+// whole file is a single piece of instance data, updated in one propagate call.
+class RegisterFileData extends ClockState implements InstanceData {
+  int[] values;
+
+  public RegisterFileData(int count) {
+    values = new int[count];
+  }
+
+  @Override
+  public RegisterFileData clone() {
+    RegisterFileData ret = (RegisterFileData) super.clone();
+    ret.values = this.values.clone();
+    return ret;
+  }
+
+  public int get(int index) {
+    return values[index];
+  }
+
+  public int getCount() {
+    return values.length;
+  }
+
+  void setCount(int count) {
+    if (values.length != count)
+      values = Arrays.copyOf(values, count);
+  }
+
+  void clear() {
+    Arrays.fill(values, 0);
+  }
+}
@@ -0,0 +1,140 @@
+/**
+ * This file is part of Logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with Logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + Haute École Spécialisée Bernoise
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ *   + REDS Institute - HEIG-VD, Yverdon-les-Bains, Switzerland
+ *     http://reds.heig-vd.ch
+ * This version of the project is currently maintained by:
+ *   + Kevin Walsh (kwalsh@holycross.edu, http://mathcs.holycross.edu/~kwalsh)
+ */
+
+package com.cburch.logisim.std.memory;
+
+import com.bfh.logisim.hdlgenerator.HDLGenerator;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.hdl.Hdl;
+import com.cburch.logisim.instance.StdAttr;
+
+public class RegisterFileHDLGenerator extends HDLGenerator {
+
+  static boolean supports(String lang, AttributeSet attrs, char vendor) {
+    Object trigger = attrs.getValue(StdAttr.TRIGGER);
+    return trigger == StdAttr.TRIG_RISING || trigger == StdAttr.TRIG_FALLING;
+  }
+
+  public RegisterFileHDLGenerator(ComponentContext ctx) {
+    super(ctx, "memory", deriveHDLName(ctx.attrs), "i_REGFILE");
+    int nr = _attrs.getValue(RegisterFile.ATTR_READ_PORTS);
+    int nw = _attrs.getValue(RegisterFile.ATTR_WRITE_PORTS);
+    for (int r = 0; r < nr; r++) {
+      inPorts.addVector("ReadAddr"+r, selWidth(), RegisterFile.readAddr(r), false);
+      outPorts.add("ReadData"+r, dataWidth(), RegisterFile.readData(r), null);
+    }
+    for (int w = 0; w < nw; w++) {
+      inPorts.addVector("WriteAddr"+w, selWidth(), RegisterFile.writeAddr(_attrs, w), false);
+      inPorts.add("WriteData"+w, dataWidth(), RegisterFile.writeData(_attrs, w), false);
+      inPorts.add("WE"+w, 1, RegisterFile.writeEnable(_attrs, w), false);
+    }
+    inPorts.add("Reset", 1, RegisterFile.clear(_attrs), false);
+    clockPort = new ClockPortInfo("GlobalClock", "ClockEnable", RegisterFile.clock(_attrs));
+  }
+
+  private static String deriveHDLName(AttributeSet attrs) {
+    int wd = attrs.getValue(StdAttr.WIDTH).getWidth();
+    int n = RegisterFile.getCount(attrs);
+    int nr = attrs.getValue(RegisterFile.ATTR_READ_PORTS);
+    int nw = attrs.getValue(RegisterFile.ATTR_WRITE_PORTS);
+    boolean zero = attrs.getValue(RegisterFile.ATTR_ZERO);
+    return String.format("RegFile_%dx%d_%dR%dW%s", n, wd, nr, nw, zero ? "_Z" : "");
+  }
+
+  @Override
+  protected void generateVhdlTypes(Hdl out) {
+    int n = RegisterFile.getCount(_attrs);
+    String zero = dataWidth() == 1 ? "'0'" : "(others => '0')";
+    out.stmt("type REGISTER_ARRAY is array (%d downto 0) of %s;", n-1, out.typeForWidth(dataWidth()));
+    out.stmt("signal s_regs : REGISTER_ARRAY := (others => %s);", zero);
+  }
+
+  @Override
+  protected void generateBehavior(Hdl out) {
+    int n = RegisterFile.getCount(_attrs);
+    int nr = _attrs.getValue(RegisterFile.ATTR_READ_PORTS);
+    int nw = _attrs.getValue(RegisterFile.ATTR_WRITE_PORTS);
+    // With a zero register, writes to register 0 are dropped, so it keeps
+    // its initial (and reset) value of zero.
+    boolean zeroReg = _attrs.getValue(RegisterFile.ATTR_ZERO);
+    if (out.isVhdl) {
+      String zero = dataWidth() == 1 ? "'0'" : "(others => '0')";
+      for (int r = 0; r < nr; r++)
+        out.stmt("ReadData%d <= s_regs(to_integer(unsigned(ReadAddr%d)));", r, r);
+      out.stmt();
+      out.stmt("make_registers : PROCESS( GlobalClock , Reset )");
+      out.stmt("BEGIN");
+      out.stmt("   IF (Reset = '1') THEN s_regs <= (others => %s);", zero);
+      out.stmt("   ELSIF (GlobalClock'event AND (GlobalClock = '1')) THEN");
+      for (int w = 0; w < nw; w++) {
+        if (zeroReg)
+          out.stmt("      IF (WE%d = '1' AND ClockEnable = '1' AND unsigned(WriteAddr%d) /= 0) THEN", w, w);
+        else
+          out.stmt("      IF (WE%d = '1' AND ClockEnable = '1') THEN", w);
+        out.stmt("         s_regs(to_integer(unsigned(WriteAddr%d))) <= WriteData%d;", w, w);
+        out.stmt("      END IF;");
+      }
+      out.stmt("   END IF;");
+      out.stmt("END PROCESS make_registers;");
+    } else {
+      out.stmt("reg [%d:0] s_regs [0:%d];", dataWidth()-1, n-1);
+      out.stmt("integer i;");
+      out.stmt();
+      for (int r = 0; r < nr; r++)
+        out.stmt("assign ReadData%d = s_regs[ReadAddr%d];", r, r);
+      out.stmt();
+      out.stmt("initial");
+      out.stmt("   for (i = 0; i < %d; i = i + 1) s_regs[i] = 0;", n);
+      out.stmt();
+      out.stmt("always @(posedge GlobalClock or posedge Reset)");
+      out.stmt("begin");
+      out.stmt("   if (Reset)");
+      out.stmt("      for (i = 0; i < %d; i = i + 1) s_regs[i] <= 0;", n);
+      out.stmt("   else begin");
+      for (int w = 0; w < nw; w++) {
+        if (zeroReg)
+          out.stmt("      if (WE%d & ClockEnable & (WriteAddr%d != 0)) s_regs[WriteAddr%d] <= WriteData%d;", w, w, w, w);
+        else
+          out.stmt("      if (WE%d & ClockEnable) s_regs[WriteAddr%d] <= WriteData%d;", w, w, w);
+      }
+      out.stmt("   end");
+      out.stmt("end");
+    }
+  }
+
+  protected int selWidth() {
+    return _attrs.getValue(RegisterFile.ATTR_SELECT).getWidth();
+  }
+
+  protected int dataWidth() {
+    return _attrs.getValue(StdAttr.WIDTH).getWidth();
+  }
+
+}
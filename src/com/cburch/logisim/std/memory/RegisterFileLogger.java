@@ -0,0 +1,83 @@
+/**
+ * This file is part of Logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with Logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + Haute École Spécialisée Bernoise
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ *   + REDS Institute - HEIG-VD, Yverdon-les-Bains, Switzerland
+ *     http://reds.heig-vd.ch
+ * This version of the project is currently maintained by:
+ *   + Kevin Walsh (kwalsh@holycross.edu, http://mathcs.holycross.edu/~kwalsh)
+ */
+
+package com.cburch.logisim.std.memory;
+import static com.cburch.logisim.std.Strings.S;
+
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.InstanceLogger;
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.instance.StdAttr;
+
+// Logs each register of a RegisterFile separately, with the register number
+// as the option, e.g. "regs[5]".
+public class RegisterFileLogger extends InstanceLogger {
+  @Override
+  public String getLogName(InstanceState state, Object option) {
+    String name = state.getAttributeValue(StdAttr.LABEL);
+    if (name == null || name.equals("")) {
+      name = S.get("registerFileComponent")
+          + state.getInstance().getLocation();
+    }
+    if (option instanceof Integer) {
+      return name + "[" + option + "]";
+    } else {
+      return name;
+    }
+  }
+
+  @Override
+  public BitWidth getBitWidth(InstanceState state, Object option) {
+    return state.getAttributeValue(StdAttr.WIDTH);
+  }
+
+  @Override
+  public Object[] getLogOptions(InstanceState state) {
+    int count = RegisterFile.getCount(state.getAttributeSet());
+    Object[] ret = new Object[count];
+    for (int i = 0; i < ret.length; i++) {
+      ret[i] = Integer.valueOf(i);
+    }
+    return ret;
+  }
+
+  @Override
+  public Value getLogValue(InstanceState state, Object option) {
+    BitWidth dataWidth = state.getAttributeValue(StdAttr.WIDTH);
+    if (dataWidth == null)
+      dataWidth = BitWidth.create(0);
+    RegisterFileData data = (RegisterFileData) state.getData();
+    int index = option instanceof Integer ? ((Integer) option).intValue() : 0;
+    if (data == null || index >= data.getCount())
+      return Value.createKnown(dataWidth, 0);
+    return Value.createKnown(dataWidth, data.get(index));
+  }
+}
@@ -46,6 +46,7 @@ import com.bfh.logisim.hdlgenerator.HDLSupport;
 import com.cburch.logisim.circuit.CircuitState;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.Attributes;
 import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.data.Value;
@@ -275,7 +276,10 @@ public class Rom extends Mem {
 
   @Override
   HexFrame getHexFrame(Project proj, Instance instance, CircuitState state) {
-    return RomAttributes.getHexFrame(getMemContents(instance), proj, instance);
+    MemContents contents = getMemContents(instance);
+    if (state != null && instance.getAttributeValue(FILE_ATTR) != null)
+      contents = getState(instance, state).getContents();
+    return RomAttributes.getHexFrame(contents, proj, instance);
   }
 
   public static MemContents getMemContents(Instance instance) {
@@ -302,9 +306,11 @@ public class Rom extends Mem {
   @Override
   MemState getState(Instance instance, CircuitState state) {
     MemState ret = (MemState) instance.getData(state);
-    if (ret == null) {
-      MemContents contents = getMemContents(instance);
-      ret = new MemState(contents);
+    Attributes.LinkedFile backing = instance.getAttributeValue(FILE_ATTR);
+    if (ret == null || !ret.isFor(backing, instance.getAttributeValue(ADDR_ATTR).getWidth(),
+          instance.getAttributeValue(DATA_ATTR).getWidth())) {
+      ret = new MemState(getStateContents(instance, backing));
+      ret.setBacking(backing);
       instance.setData(state, ret);
     }
     return ret;
@@ -313,14 +319,25 @@ public class Rom extends Mem {
   @Override
   MemState getState(InstanceState state) {
     MemState ret = (MemState) state.getData();
-    if (ret == null) {
-      MemContents contents = getMemContents(state.getInstance());
-      ret = new MemState(contents);
+    Attributes.LinkedFile backing = state.getAttributeValue(FILE_ATTR);
+    if (ret == null || !ret.isFor(backing, state.getAttributeValue(ADDR_ATTR).getWidth(),
+          state.getAttributeValue(DATA_ATTR).getWidth())) {
+      ret = new MemState(getStateContents(state.getInstance(), backing));
+      ret.setBacking(backing);
       state.setData(ret);
     }
     return ret;
   }
 
+  // With a backing file, the file replaces the contents stored in the circuit.
+  private static MemContents getStateContents(Instance instance,
+      Attributes.LinkedFile backing) {
+    int addrBits = instance.getAttributeValue(ADDR_ATTR).getWidth();
+    int dataBits = instance.getAttributeValue(DATA_ATTR).getWidth();
+    MemContents contents = mapBackingFile(backing, addrBits, dataBits);
+    return contents != null ? contents : getMemContents(instance);
+  }
+
   @Override
   public HDLSupport getHDLSupport(HDLSupport.ComponentContext ctx) {
     if (RomHDLGenerator.supports(ctx.lang, ctx.attrs, ctx.vendor)) // fixme
@@ -398,8 +415,10 @@ public class Rom extends Mem {
 
     Value addrValue = state.getPortValue(ADDR);
 
-    int addr = addrValue.toIntValue();
-    if (addrValue.isErrorValue() || (addrValue.isFullyDefined() && addr < 0)) {
+    long addr = addrValue.toIntValue() & 0xffffffffL;
+    boolean newRead = myState.isNewRead(0,
+        addrValue.isFullyDefined() && addr % dataLines == 0 ? addr : -1);
+    if (addrValue.isErrorValue()) {
       state.setPort(DATA, Value.createError(dataBits), DELAY);
       for (int i = 1; i < dataLines; i++)
         state.setPort(MEM_INPUTS+i-1, Value.createError(dataBits), DELAY);
@@ -421,11 +440,21 @@ public class Rom extends Mem {
         state.setPort(MEM_INPUTS+i-1, Value.createError(dataBits), DELAY);
       return;
     }
-    int val = myState.getContents().get(addr);
-    state.setPort(DATA, Value.createKnown(dataBits, val), DELAY);
-    for (int i = 1; i < dataLines; i++) {
-      val = myState.getContents().get(addr+i);
-      state.setPort(MEM_INPUTS+i-1, Value.createKnown(dataBits, val), DELAY);
+    MemContents contents = myState.getContents();
+    MemTrace trace = contents.getTrace();
+    if (dataLines == 1) {
+      state.setPort(DATA, Value.createKnown(dataBits, contents.get(addr)), DELAY);
+      if (trace != null && newRead)
+        trace.read(addr);
+      return;
+    }
+    int[] line = myState.getLine(dataLines);
+    contents.get(addr, line);
+    for (int i = 0; i < dataLines; i++) {
+      int port = i == 0 ? DATA : MEM_INPUTS+i-1;
+      state.setPort(port, Value.createKnown(dataBits, line[i]), DELAY);
+      if (trace != null && newRead)
+        trace.read(addr+i);
     }
   }
 
@@ -37,6 +37,7 @@ import java.util.WeakHashMap;
 import com.cburch.logisim.data.AbstractAttributeSet;
 import com.cburch.logisim.data.AttributeOption;
 import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.Attributes;
 import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.gui.hex.HexFrame;
 import com.cburch.logisim.instance.Instance;
@@ -76,8 +77,8 @@ class RomAttributes extends AbstractAttributeSet {
   }
 
   private static List<Attribute<?>> ATTRIBUTES = Arrays
-      .asList(new Attribute<?>[] { Mem.ADDR_ATTR, Mem.DATA_ATTR, Mem.LINE_ATTR,
-        Rom.CONTENTS_ATTR, StdAttr.LABEL, StdAttr.LABEL_FONT,
+      .asList(new Attribute<?>[] { Mem.FILE_ATTR, Mem.ADDR_ATTR, Mem.DATA_ATTR,
+        Mem.LINE_ATTR, Rom.CONTENTS_ATTR, StdAttr.LABEL, StdAttr.LABEL_FONT,
         StdAttr.APPEARANCE});
 
   // fixme: this isn't necessary since EventSourceWeakSupport now has an owner
@@ -92,6 +93,7 @@ class RomAttributes extends AbstractAttributeSet {
   private String Label = "";
   private Font LabelFont = StdAttr.DEFAULT_LABEL_FONT;
   private AttributeOption Appearance = StdAttr.APPEAR_CLASSIC;
+  private Attributes.LinkedFile backing = null;
 
   RomAttributes() {
     contents = MemContents.create(addrBits.getWidth(), dataBits.getWidth());
@@ -106,6 +108,7 @@ class RomAttributes extends AbstractAttributeSet {
     d.lineSize = lineSize;
     d.LabelFont = LabelFont;
     d.Appearance = Appearance;
+    d.backing = backing;
   }
 
   @Override
@@ -129,6 +132,8 @@ class RomAttributes extends AbstractAttributeSet {
       return (V) LabelFont;
     if (attr == StdAttr.APPEARANCE)
       return (V) Appearance;
+    if (attr == Mem.FILE_ATTR)
+      return (V) backing;
     return null;
   }
 
@@ -139,11 +144,11 @@ class RomAttributes extends AbstractAttributeSet {
   @Override
   public <V> void updateAttr(Attribute<V> attr, V value) {
     if (attr == Mem.ADDR_ATTR) {
-      addrBits = (BitWidth) value;
-      contents.setDimensions(addrBits.getWidth(), dataBits.getWidth());
+      addrBits = Mem.limitAddrBits((BitWidth) value, backing);
+      contents.setDimensions(Mem.heapAddrBits(addrBits.getWidth()), dataBits.getWidth());
     } else if (attr == Mem.DATA_ATTR) {
       dataBits = (BitWidth) value;
-      contents.setDimensions(addrBits.getWidth(), dataBits.getWidth());
+      contents.setDimensions(Mem.heapAddrBits(addrBits.getWidth()), dataBits.getWidth());
     }
     else if (attr == Mem.LINE_ATTR)
       lineSize = (AttributeOption) value;
@@ -155,5 +160,9 @@ class RomAttributes extends AbstractAttributeSet {
       LabelFont = (Font) value;
     else if (attr == StdAttr.APPEARANCE)
       Appearance = (AttributeOption) value;
+    else if (attr == Mem.FILE_ATTR) {
+      backing = (Attributes.LinkedFile) value;
+      setAttr(Mem.ADDR_ATTR, Mem.limitAddrBits(addrBits, backing));
+    }
   }
 }
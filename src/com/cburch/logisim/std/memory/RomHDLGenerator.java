@@ -36,7 +36,8 @@ import com.cburch.logisim.hdl.Hdl;
 public class RomHDLGenerator extends HDLGenerator {
   
   static boolean supports(String lang, AttributeSet attrs, char vendor) {
-    return lang.equals("VHDL") || Mem.lineSize(attrs) == 1; // TODO: Verilog support
+    return (lang.equals("VHDL") || Mem.lineSize(attrs) == 1) // TODO: Verilog support
+        && Mem.supportsHDL(attrs);
   }
 
   public RomHDLGenerator(ComponentContext ctx) {
@@ -31,13 +31,11 @@
 package com.cburch.logisim.std.wiring;
 import static com.cburch.logisim.std.Strings.S;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeOption;
 import com.cburch.logisim.data.Attributes;
-import com.cburch.logisim.tools.AddTool;
 import com.cburch.logisim.tools.FactoryDescription;
 import com.cburch.logisim.tools.Library;
 import com.cburch.logisim.tools.Tool;
@@ -63,6 +61,8 @@ public class Analog extends Library {
     new FactoryDescription("Transmission Gate",
         S.getter("transmissionGateComponent"),
         "transmis.gif", "TransmissionGate"),
+    new FactoryDescription("Pull Resistor", S.getter("pullComponent"),
+        () -> PullResistor.FACTORY),
   };
 
   private List<Tool> tools = null;
@@ -83,10 +83,7 @@ public class Analog extends Library {
   @Override
   public List<Tool> getTools() {
     if (tools == null) {
-      List<Tool> ret = new ArrayList<>(1 + DESCRIPTIONS.length);
-      ret.addAll(FactoryDescription.getTools(Analog.class, DESCRIPTIONS));
-      ret.add(new AddTool(Analog.class, PullResistor.FACTORY));
-      tools = ret;
+      tools = FactoryDescription.getTools(Analog.class, DESCRIPTIONS);
     }
     return tools;
   }
@@ -314,7 +314,7 @@ public class Pin extends InstanceFactory implements DynamicValueProvider {
       if (src instanceof Canvas && !state.isCircuitRoot()) {
         Canvas canvas = (Canvas)src;
         CircuitState circState = canvas.getCircuitState();
-        java.awt.Component frame = SwingUtilities.getRoot(canvas);
+        java.awt.Component frame = SwingUtilities.getRoot(src);
         int choice = JOptionPane.showConfirmDialog(frame,
             S.get("pinFrozenQuestion"),
             S.get("pinFrozenTitle"),
@@ -31,11 +31,9 @@
 package com.cburch.logisim.std.wiring;
 import static com.cburch.logisim.std.Strings.S;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import com.cburch.logisim.circuit.SplitterFactory;
-import com.cburch.logisim.tools.AddTool;
 import com.cburch.logisim.tools.FactoryDescription;
 import com.cburch.logisim.tools.Library;
 import com.cburch.logisim.tools.Tool;
@@ -43,6 +41,19 @@ import com.cburch.logisim.tools.Tool;
 public class Wiring extends Library {
 
   private static FactoryDescription[] DESCRIPTIONS = {
+    new FactoryDescription("Splitter",
+        com.cburch.logisim.circuit.Strings.S.getter("splitterComponent"),
+        () -> SplitterFactory.instance),
+    new FactoryDescription("Pin", S.getter("pinComponent"),
+        () -> Pin.FACTORY),
+    new FactoryDescription("Probe", S.getter("probeComponent"),
+        () -> Probe.FACTORY),
+    new FactoryDescription("Tunnel", S.getter("tunnelComponent"),
+        () -> Tunnel.FACTORY),
+    new FactoryDescription("Clock", S.getter("clockComponent"),
+        () -> Clock.FACTORY),
+    new FactoryDescription("Constant", S.getter("constantComponent"),
+        () -> Constant.FACTORY),
     new FactoryDescription("Bit Extender",
         S.getter("extenderComponent"), "extender.gif",
         "BitExtender"),
@@ -66,15 +77,7 @@ public class Wiring extends Library {
   @Override
   public List<Tool> getTools() {
     if (tools == null) {
-      List<Tool> ret = new ArrayList<>(6 + DESCRIPTIONS.length);
-      ret.add(new AddTool(Wiring.class, SplitterFactory.instance));
-      ret.add(new AddTool(Wiring.class, Pin.FACTORY));
-      ret.add(new AddTool(Wiring.class, Probe.FACTORY));
-      ret.add(new AddTool(Wiring.class, Tunnel.FACTORY));
-      ret.add(new AddTool(Wiring.class, Clock.FACTORY));
-      ret.add(new AddTool(Wiring.class, Constant.FACTORY));
-      ret.addAll(FactoryDescription.getTools(Wiring.class, DESCRIPTIONS));
-      tools = ret;
+      tools = FactoryDescription.getTools(Wiring.class, DESCRIPTIONS);
     }
     return tools;
   }
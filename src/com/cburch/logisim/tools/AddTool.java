@@ -227,7 +227,7 @@ public class AddTool extends Tool {
     }
   }
 
-  private void expose(java.awt.Component c, int x, int y) {
+  private void expose(Canvas c, int x, int y) {
     Bounds bds = getBounds();
     c.repaint(x + bds.getX(), y + bds.getY(), bds.getWidth(),
         bds.getHeight());
@@ -479,7 +479,7 @@ public class AddTool extends Tool {
       if (libToPromote == file || file.getLibraries().contains(libToPromote))
         libToPromote = null;
       else {
-        int action = JOptionPane.showConfirmDialog(canvas,
+        int action = canvas.showConfirmDialog(
             S.fmt("promoteLibraryMessage", libToPromote.getDisplayName()),
             S.get("promoteLibraryTitle"),
             JOptionPane.OK_CANCEL_OPTION,
@@ -520,8 +520,7 @@ public class AddTool extends Tool {
         lastAddition = action;
         added = c;
       } catch (CircuitException ex) {
-        JOptionPane.showMessageDialog(canvas.getProject().getFrame(),
-            ex.getMessage());
+        canvas.showMessageDialog(ex.getMessage());
       }
       setState(canvas, SHOW_GHOST);
     } else if (state == SHOW_ADD_NO) {
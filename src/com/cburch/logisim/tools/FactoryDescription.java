@@ -32,6 +32,7 @@ package com.cburch.logisim.tools;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Supplier;
 
 import javax.swing.Icon;
 
@@ -46,7 +47,10 @@ import com.cburch.logisim.util.StringGetter;
  * to needing to use it. Note that for this to work, the relevant
  * ComponentFactory class must be in the same package as its Library class, the
  * ComponentFactory class must be public, and it must include a public
- * no-arguments constructor.
+ * no-arguments constructor. Alternatively, for a factory kept as a singleton
+ * in a static field (e.g. AndGate.FACTORY, which other code compares against),
+ * a supplier for the field can be given instead, and the factory class is
+ * loaded only when the supplier is first called.
  */
 public class FactoryDescription {
 
@@ -65,6 +69,7 @@ public class FactoryDescription {
   private boolean iconLoadAttempted;
   private Icon icon;
   private String factoryClassName;
+  private Supplier<ComponentFactory> singleton;
   private boolean factoryLoadAttempted;
   private ComponentFactory factory;
   private StringGetter toolTip;
@@ -90,6 +95,12 @@ public class FactoryDescription {
     this.toolTip = null;
   }
 
+  public FactoryDescription(String name, StringGetter displayName,
+      Supplier<ComponentFactory> singleton) {
+    this(name, displayName, (String)null);
+    this.singleton = singleton;
+  }
+
   public FactoryDescription(String name, StringGetter displayName,
       String iconName, String factoryClassName) {
     this(name, displayName, factoryClassName);
@@ -106,6 +117,10 @@ public class FactoryDescription {
     ComponentFactory ret = factory;
     if (factory != null || factoryLoadAttempted) {
       return ret;
+    } else if (singleton != null) {
+      factory = singleton.get();
+      factoryLoadAttempted = true;
+      return factory;
     } else {
       String msg = "";
       try {
@@ -33,6 +33,9 @@ package com.cburch.logisim.util;
 import java.awt.Component;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Toolkit;
+import java.net.URL;
 
 import javax.swing.Icon;
 import javax.swing.ImageIcon;
@@ -40,12 +43,74 @@ import javax.swing.ImageIcon;
 import com.cburch.logisim.data.Direction;
 
 public class Icons {
+  // Most icons are held in static fields of tool and component classes, so
+  // decoding them eagerly costs startup time even in headless runs that never
+  // paint anything. The image is instead read when the icon is first painted
+  // or measured. It is still an ImageIcon, so Swing can gray it out when used
+  // on a disabled button.
+  private static class LazyIcon extends ImageIcon {
+    private static final long serialVersionUID = 1L;
+    private final URL url;
+    private boolean loaded;
+
+    LazyIcon(URL url) {
+      this.url = url;
+    }
+
+    private synchronized void load() {
+      if (loaded)
+        return;
+      loaded = true;
+      super.setImage(Toolkit.getDefaultToolkit().getImage(url));
+    }
+
+    @Override
+    public Image getImage() {
+      load();
+      return super.getImage();
+    }
+
+    @Override
+    public synchronized void setImage(Image image) {
+      loaded = true;
+      super.setImage(image);
+    }
+
+    @Override
+    public int getImageLoadStatus() {
+      load();
+      return super.getImageLoadStatus();
+    }
+
+    @Override
+    public int getIconWidth() {
+      load();
+      return super.getIconWidth();
+    }
+
+    @Override
+    public int getIconHeight() {
+      load();
+      return super.getIconHeight();
+    }
+
+    @Override
+    public void paintIcon(Component c, Graphics g, int x, int y) {
+      load();
+      super.paintIcon(c, g, x, y);
+    }
+
+    @Override
+    public String toString() {
+      return url.toString();
+    }
+  }
+
   public static Icon getIcon(String name) {
-    java.net.URL url = Icons.class.getClassLoader().getResource(
-        path + "/" + name);
+    URL url = Icons.class.getClassLoader().getResource(path + "/" + name);
     if (url == null)
       return null;
-    return new ImageIcon(url);
+    return new LazyIcon(url);
   }
 
   public static void paintRotated(Graphics g, int x, int y, Direction dir,
@@ -40,7 +40,6 @@ import java.util.ResourceBundle;
 import java.util.StringTokenizer;
 
 import javax.swing.JComponent;
-import javax.swing.JScrollPane;
 
 public class LocaleManager {
   private static class LocaleGetter implements StringGetter {
@@ -251,7 +250,7 @@ public class LocaleManager {
         cur = new Locale("en");
       locales = new Locale[] { cur };
     }
-    return new JScrollPane(new LocaleSelector(locales));
+    return LocaleSelector.create(locales);
   }
 
   public String get(String key) {
@@ -33,7 +33,9 @@ package com.cburch.logisim.util;
 import java.util.Locale;
 
 import javax.swing.DefaultListModel;
+import javax.swing.JComponent;
 import javax.swing.JList;
+import javax.swing.JScrollPane;
 import javax.swing.ListSelectionModel;
 import javax.swing.SwingUtilities;
 import javax.swing.event.ListSelectionEvent;
@@ -79,6 +81,12 @@ class LocaleSelector extends JList
 
   private LocaleOption[] items;
 
+  // Made here rather than in LocaleManager, which headless runs also load,
+  // so that they don't load list and scroll pane classes.
+  static JComponent create(Locale[] locales) {
+    return new JScrollPane(new LocaleSelector(locales));
+  }
+
   @SuppressWarnings("unchecked")
   LocaleSelector(Locale[] locales) {
     setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
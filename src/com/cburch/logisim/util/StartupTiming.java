@@ -0,0 +1,85 @@
+/**
+ * This file is part of Logisim-evolution.
+ *
+ * Logisim-evolution is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Logisim-evolution is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with Logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Original code by Carl Burch (http://www.cburch.com), 2011.
+ * Subsequent modifications by:
+ *   + Haute École Spécialisée Bernoise
+ *     http://www.bfh.ch
+ *   + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *     http://hepia.hesge.ch/
+ *   + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *     http://www.heig-vd.ch/
+ *   + REDS Institute - HEIG-VD, Yverdon-les-Bains, Switzerland
+ *     http://reds.heig-vd.ch
+ * This version of the project is currently maintained by:
+ *   + Kevin Walsh (kwalsh@holycross.edu, http://mathcs.holycross.edu/~kwalsh)
+ */
+
+package com.cburch.logisim.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+
+// StartupTiming records when each phase of startup finishes, measured from the
+// start of Main.main(), and with the -timing option prints a summary to stderr
+// as the JVM exits. The time the JVM spent before reaching main() is estimated
+// from the JVM's own start time. Marks are cheap, so they are always recorded.
+public class StartupTiming {
+
+  private static long startNanos, startMillis;
+  private static ArrayList<String> phases = new ArrayList<>();
+  private static ArrayList<Long> times = new ArrayList<>();
+  private static boolean enabled;
+
+  private StartupTiming() { }
+
+  // Called first thing in main(), which is where the timer starts.
+  public static synchronized void begin() {
+    startNanos = System.nanoTime();
+    startMillis = System.currentTimeMillis();
+  }
+
+  public static synchronized void mark(String phase) {
+    phases.add(phase);
+    times.add(System.nanoTime());
+  }
+
+  public static synchronized void enable() {
+    if (enabled)
+      return;
+    enabled = true;
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> report()));
+  }
+
+  private static synchronized void report() {
+    mark("exit");
+    System.err.println("Startup timing (ms):");
+    try {
+      long jvm = startMillis - ManagementFactory.getRuntimeMXBean().getStartTime();
+      System.err.printf("  %8d  %8d  %s\n", jvm, 0, "jvm start to main");
+    } catch (Throwable t) {
+      // management module unavailable, skip it
+    }
+    long prev = startNanos;
+    for (int i = 0; i < phases.size(); i++) {
+      long t = times.get(i);
+      System.err.printf("  %8d  %8d  %s\n",
+          (t - prev) / 1000000, (t - startNanos) / 1000000, phases.get(i));
+      prev = t;
+    }
+    System.err.flush();
+  }
+}
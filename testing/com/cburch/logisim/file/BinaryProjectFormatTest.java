@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.file;
+
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class BinaryProjectFormatTest {
+
+	// Header with a one-string table ("a") and the given section lengths.
+	private static ByteArrayOutputStream header(int... sections) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.writeBytes(new byte[] { 'L', 'G', 'S', 'B', 1, 1, 1, 'a' });
+		out.write(sections.length);
+		for (int len : sections) {
+			out.write(0);
+			out.write(len);
+		}
+		return out;
+	}
+
+	private static void assertCorrupt(ByteArrayOutputStream out) {
+		try {
+			BinaryProjectFormat.decode(new ByteArrayInputStream(out.toByteArray()));
+			fail("decoded a corrupt file");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * A section that refers to itself must be rejected as corrupt, rather
+	 * than recursing until the stack overflows.
+	 */
+	@Test
+	public void shouldRejectSelfReferentialSection() {
+		ByteArrayOutputStream out = header(5);
+		byte[] element = { 0, 0, 1, 2, 0 }; // <a> holding section 0
+		out.writeBytes(element); // root
+		out.writeBytes(element); // section 0
+		assertCorrupt(out);
+	}
+
+	/**
+	 * Sections may be referenced only by the root, so that a few sections
+	 * referring to each other twice over can't expand exponentially.
+	 */
+	@Test
+	public void shouldRejectSectionsOutsideRoot() {
+		ByteArrayOutputStream out = header(5, 3);
+		out.writeBytes(new byte[] { 0, 0, 1, 2, 0 }); // root holds section 0
+		out.writeBytes(new byte[] { 0, 0, 1, 2, 1 }); // section 0 holds section 1
+		out.writeBytes(new byte[] { 0, 0, 0 });
+		assertCorrupt(out);
+	}
+
+	/**
+	 * Each section must be referenced exactly once.
+	 */
+	@Test
+	public void shouldRejectRepeatedOrUnusedSection() {
+		ByteArrayOutputStream out = header(3);
+		out.writeBytes(new byte[] { 0, 0, 2, 2, 0, 2, 0 }); // section 0 twice
+		out.writeBytes(new byte[] { 0, 0, 0 });
+		assertCorrupt(out);
+
+		out = header(3);
+		out.writeBytes(new byte[] { 0, 0, 0 }); // section 0 never used
+		out.writeBytes(new byte[] { 0, 0, 0 });
+		assertCorrupt(out);
+	}
+
+	/**
+	 * A memory page number large enough to overflow when shifted into an
+	 * address must be rejected as corrupt, not passed on to the memory.
+	 */
+	@Test
+	public void shouldRejectOverflowingMemoryPage() {
+		ByteArrayOutputStream out = header();
+		out.writeBytes(new byte[] { 0, 0, 1, 3, 8, 8 }); // <a> with 8x8 image
+		// page 2^52 + 1, which shifted by 12 bits wraps to address 0
+		out.writeBytes(new byte[] { (byte)0x81, (byte)0x80, (byte)0x80,
+				(byte)0x80, (byte)0x80, (byte)0x80, (byte)0x80, 0x08 });
+		out.writeBytes(new byte[256]);
+		out.write(0);
+		assertCorrupt(out);
+	}
+
+	/**
+	 * Elements nested far more deeply than any real project must be rejected
+	 * as corrupt, rather than overflowing the stack.
+	 */
+	@Test
+	public void shouldRejectDeeplyNestedElements() {
+		ByteArrayOutputStream out = header();
+		for (int i = 0; i < 100000; i++)
+			out.writeBytes(new byte[] { 0, 0, 1, 0 }); // <a> holding one <a>
+		out.writeBytes(new byte[] { 0, 0, 0 });
+		assertCorrupt(out);
+	}
+}
@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+public class XmlTreeTest {
+
+	private static final String SAMPLE = "<?xml version=\"1.0\"?>\n"
+			+ "<!-- header -->\n"
+			+ "<project source=\"3.1\" version=\"1.0\">\n"
+			+ "  <?note ignored?>\n"
+			+ "  This file is intended to be loaded by Logisim.\n"
+			+ "  <circuit name=\"main\">\n"
+			+ "    <a name=\"label\" val=\"a &amp; b\"/>\n"
+			+ "    <a name=\"contents\">addr/data: 8 8\n"
+			+ "0 1 <!-- split --> 2\n"
+			+ "</a>\n"
+			+ "    <a name=\"blank\">   </a>\n"
+			+ "    <vhdl><![CDATA[x <= y;]]> -- end</vhdl>\n"
+			+ "  </circuit>\n"
+			+ "</project>\n";
+
+	/**
+	 * The tree must match what a plain DocumentBuilder parse yields, less
+	 * comments, processing instructions, and blank text beside other nodes.
+	 */
+	@Test
+	public void shouldMatchDocumentBuilderTree() throws Exception {
+		compare(SAMPLE.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Same as above, for the bundled demo circuits.
+	 */
+	@Test
+	public void shouldMatchDocumentBuilderTreeForDemos() throws Exception {
+		File[] demos = new File("demo").listFiles((d, n) -> n.endsWith(".circ"));
+		if (demos == null)
+			return;
+		for (File f : demos)
+			compare(Files.readAllBytes(f.toPath()));
+	}
+
+	private static void compare(byte[] xml) throws Exception {
+		DocumentBuilderFactory f = DocumentBuilderFactory.newInstance();
+		f.setNamespaceAware(true);
+		Document expected = f.newDocumentBuilder().parse(new ByteArrayInputStream(xml));
+		Document actual = XmlReader.loadXmlFrom(new ByteArrayInputStream(xml));
+		compare(expected.getDocumentElement(), actual.getDocumentElement());
+	}
+
+	private static void compare(Element expected, Element actual) {
+		assertEquals(expected.getTagName(), actual.getTagName());
+		NamedNodeMap attrs = expected.getAttributes();
+		assertEquals(attrs.getLength(), actual.getAttributes().getLength());
+		for (int i = 0; i < attrs.getLength(); i++) {
+			Node a = attrs.item(i);
+			assertEquals(a.getNodeValue(), actual.getAttribute(a.getNodeName()));
+		}
+		List<Object> want = content(expected);
+		List<Node> got = new ArrayList<>();
+		for (Node n = actual.getFirstChild(); n != null; n = n.getNextSibling())
+			got.add(n);
+		assertEquals(want.size(), got.size());
+		for (int i = 0; i < want.size(); i++) {
+			if (want.get(i) instanceof Element) {
+				assertTrue(got.get(i) instanceof Element);
+				compare((Element)want.get(i), (Element)got.get(i));
+			} else {
+				assertEquals(Node.TEXT_NODE, got.get(i).getNodeType());
+				assertEquals(want.get(i), got.get(i).getNodeValue());
+			}
+		}
+	}
+
+	// Child elements and runs of text, with blank runs dropped unless they
+	// are all the element contains.
+	private static List<Object> content(Element e) {
+		List<Object> ret = new ArrayList<>();
+		StringBuilder text = new StringBuilder();
+		for (Node n = e.getFirstChild(); n != null; n = n.getNextSibling()) {
+			if (n.getNodeType() == Node.ELEMENT_NODE) {
+				if (!text.toString().trim().isEmpty())
+					ret.add(text.toString());
+				text.setLength(0);
+				ret.add(n);
+			} else if (n.getNodeType() == Node.TEXT_NODE
+					|| n.getNodeType() == Node.CDATA_SECTION_NODE) {
+				text.append(n.getNodeValue());
+			}
+		}
+		if (text.length() > 0 && (ret.isEmpty() || !text.toString().trim().isEmpty()))
+			ret.add(text.toString());
+		return ret;
+	}
+}
@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.gui.hex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+import com.cburch.logisim.std.memory.MemContents;
+
+public class ImageLoaderTest {
+
+	/**
+	 * Raw binary files must be left to the caller unless it asks for them,
+	 * and then load in the byte order it gives.
+	 */
+	@Test
+	public void shouldLoadRawOnlyWithCallersByteOrder() throws Exception {
+		File f = File.createTempFile("image", ".bin");
+		try {
+			Files.write(f.toPath(), new byte[] { 0x01, 0x02, 0x03, 0x04 });
+			MemContents m = MemContents.create(4, 16);
+			assertNull(ImageLoader.load(m, f, false));
+			assertEquals(0, m.get(0));
+
+			ImageLoader.loadRaw(m, f, true);
+			assertEquals(0x0201, m.get(0));
+			assertEquals(0x0403, m.get(1));
+
+			ImageLoader.loadRaw(m, f, false);
+			assertEquals(0x0102, m.get(0));
+			assertEquals(0x0304, m.get(1));
+		} finally {
+			f.delete();
+		}
+	}
+}
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.std.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import com.cburch.logisim.data.Attributes;
+import com.cburch.logisim.data.BitWidth;
+
+public class MappedMemContentsTest {
+
+	/**
+	 * Memories of different dimensions on one file get separate views, and
+	 * neither is resized by the other.
+	 */
+	@Test
+	public void shouldKeepDimensionsPerView() throws Exception {
+		File f = File.createTempFile("mapped", ".bin");
+		f.deleteOnExit();
+		MemContents a = MemContents.createMapped(f, 8, 8);
+		MemContents b = MemContents.createMapped(f, 10, 16);
+		assertNotSame(a, b);
+		assertSame(a, MemContents.createMapped(f, 8, 8));
+		assertEquals(8, a.getLogLength());
+		assertEquals(8, a.getWidth());
+		assertEquals(10, b.getLogLength());
+		assertEquals(16, b.getWidth());
+		try {
+			a.setDimensions(12, 8);
+			fail("mapped contents were resized");
+		} catch (UnsupportedOperationException e) {
+		}
+		assertEquals(8, a.getLogLength());
+	}
+
+	/**
+	 * Address widths above the heap limit are only kept with a backing file.
+	 */
+	@Test
+	public void shouldLimitAddressWidthWithoutBackingFile() {
+		RamAttributes attrs = new RamAttributes();
+		attrs.setAttr(Mem.ADDR_ATTR, BitWidth.create(32));
+		assertEquals(Mem.MAX_HEAP_ADDR_BITS, attrs.getValue(Mem.ADDR_ATTR).getWidth());
+
+		File f = new File("disk.img");
+		attrs.setAttr(Mem.FILE_ATTR, new Attributes.LinkedFile(f, f));
+		attrs.setAttr(Mem.ADDR_ATTR, BitWidth.create(32));
+		assertEquals(32, attrs.getValue(Mem.ADDR_ATTR).getWidth());
+
+		attrs.setAttr(Mem.FILE_ATTR, null);
+		assertEquals(Mem.MAX_HEAP_ADDR_BITS, attrs.getValue(Mem.ADDR_ATTR).getWidth());
+	}
+
+}
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.std.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class MemContentsTest {
+
+	/**
+	 * An unaligned bulk set spanning three pages must overwrite the tail of
+	 * the last page even when the old contents at the start offset happen to
+	 * match the new values.
+	 */
+	@Test
+	public void shouldSetUnalignedRangeAcrossPages() {
+		MemContents m = MemContents.create(16, 8);
+		m.set(0x1005, 9);
+		m.set(0x2003, 7);
+		int[] zeroes = new int[0x1020];
+		m.set(0x0ff0, zeroes);
+		assertEquals(0, m.get(0x1005));
+		assertEquals(0, m.get(0x2003));
+
+		int[] vals = new int[0x1100];
+		for (int i = 0; i < vals.length; i++)
+			vals[i] = (i * 7 + 1) & 0xff;
+		m.set(0x0f80, vals);
+		for (int i = 0; i < vals.length; i++)
+			assertEquals(vals[i], m.get(0x0f80 + i));
+		assertEquals(0, m.get(0x0f7f));
+		assertEquals(0, m.get(0x0f80 + vals.length));
+	}
+
+	/**
+	 * Rewriting a value with its top bit set must not count as a change, on
+	 * pages that store values in signed bytes or shorts.
+	 */
+	@Test
+	public void shouldIgnoreSimulatorRewriteOfSameValue() {
+		MemContents bytes = MemContents.create(8, 8);
+		assertTrue(bytes.write(3, 0x90));
+		bytes.flushChanges();
+		assertFalse(bytes.write(3, 0x90));
+
+		MemContents shorts = MemContents.create(8, 16);
+		assertTrue(shorts.write(3, 0x9000));
+		shorts.flushChanges();
+		assertFalse(shorts.write(3, 0x9000));
+	}
+
+}
@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.std.memory;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class MemStateTest {
+
+	/**
+	 * Propagating again with the same address must not count as another
+	 * read, while a new address, or a port that resumes reading, does.
+	 */
+	@Test
+	public void shouldReportOnlyNewReads() {
+		MemState s = new MemState(MemContents.create(8, 8));
+		assertTrue(s.isNewRead(0, 5));
+		assertFalse(s.isNewRead(0, 5));
+		assertTrue(s.isNewRead(0, 6));
+		assertTrue(s.isNewRead(2, 6));
+		assertFalse(s.isNewRead(2, 6));
+		assertFalse(s.isNewRead(0, -1));
+		assertTrue(s.isNewRead(0, 6));
+		assertFalse(s.isNewRead(2, 6));
+	}
+}